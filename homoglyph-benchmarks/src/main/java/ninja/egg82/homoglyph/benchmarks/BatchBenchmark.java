@@ -0,0 +1,66 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import ninja.egg82.homoglyph.HomoglyphHelper;
+import ninja.egg82.homoglyph.TransformMode;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+    /**
+     * A batch of short records, cut from one long run of a corpus
+     */
+    @State(Scope.Benchmark)
+    public static class RecordState {
+        @Param({ "ASCII", "FULLWIDTH", "MIXED" })
+        public Corpus corpus;
+
+        @Param({ "1000", "100000" })
+        public int count;
+
+        public HomoglyphHelper helper;
+        public List<String> records;
+
+        @Setup
+        public void setup() throws IOException {
+            helper = HomoglyphHelper.create();
+            String text = corpus.generate(count * 32 + 1);
+            records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                // Mixed has surrogate pairs, so don't cut one in half
+                int start = i * 32;
+                int end = Character.isLowSurrogate(text.charAt(start + 32)) ? start + 31 : start + 32;
+                if (Character.isLowSurrogate(text.charAt(start))) {
+                    start++;
+                }
+                records.add(text.substring(start, end));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> loop(RecordState state) {
+        List<String> result = new ArrayList<>(state.records.size());
+        for (String record : state.records) {
+            result.add(state.helper.toASCII(record));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<String> batch(RecordState state) { return state.helper.toASCII(state.records); }
+
+    @Benchmark
+    public List<String> parallel(RecordState state) { return state.helper.transform(state.records, TransformMode.ASCII, ForkJoinPool.commonPool()); }
+
+    @Benchmark
+    public boolean containsAnyParallel(RecordState state) { return state.helper.containsAny(state.records, "zzzzq", ForkJoinPool.commonPool()); }
+}
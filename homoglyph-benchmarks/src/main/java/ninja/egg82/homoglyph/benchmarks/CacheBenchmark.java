@@ -0,0 +1,45 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import ninja.egg82.homoglyph.HomoglyphCache;
+import ninja.egg82.homoglyph.HomoglyphHelper;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CacheBenchmark {
+    /**
+     * A small set of names which come up over and over, like usernames in chat
+     */
+    @State(Scope.Benchmark)
+    public static class NameState {
+        @Param({ "FULLWIDTH", "MIXED" })
+        public Corpus corpus;
+
+        public HomoglyphHelper helper;
+        public HomoglyphCache cache;
+        public String[] names;
+
+        @Setup
+        public void setup() throws IOException {
+            helper = HomoglyphHelper.create();
+            cache = helper.newCache(4096, 64);
+            names = new String[1000];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = corpus.generate(16) + i;
+            }
+        }
+    }
+
+    @Benchmark
+    public String uncached(NameState state) { return state.helper.toASCII(state.names[ThreadLocalRandom.current().nextInt(state.names.length)]); }
+
+    @Benchmark
+    public String cached(NameState state) { return state.cache.toASCII(state.names[ThreadLocalRandom.current().nextInt(state.names.length)]); }
+}
@@ -0,0 +1,20 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompareBenchmark {
+    @Benchmark
+    public boolean equals(TextState state) { return state.helper.equals(state.text, state.ascii); }
+
+    @Benchmark
+    public boolean startsWith(TextState state) { return state.helper.startsWith(state.text, state.prefix); }
+
+    @Benchmark
+    public boolean endsWith(TextState state) { return state.helper.endsWith(state.text, state.suffix); }
+}
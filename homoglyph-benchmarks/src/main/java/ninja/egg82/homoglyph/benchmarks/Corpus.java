@@ -0,0 +1,79 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * The kinds of text the benchmarks run against. Every corpus is generated
+ * from a fixed seed, so runs are comparable with each other.
+ */
+public enum Corpus {
+    /**
+     * Plain ASCII words, which no transform changes
+     */
+    ASCII {
+        int nextCodePoint(SplittableRandom random) { return asciiCodePoint(random); }
+    },
+    /**
+     * ASCII words written with fullwidth forms, which every transform changes
+     */
+    FULLWIDTH {
+        int nextCodePoint(SplittableRandom random) {
+            int c = asciiCodePoint(random);
+            return c == ' ' ? '　' : c + 0xFEE0;
+        }
+    },
+    /**
+     * Latin mixed with Cyrillic, Greek, fullwidth and mathematical lookalikes
+     */
+    MIXED {
+        private final int[] lookalikes = "аеорсухАВЕКМНОРСТХΑΒΕΖΗΙΚΜΝΟΡΤΥΧａｂｃｄｅ𝐚𝐛𝐜𝐝𝐞𝐀𝐁𝐂𝐃𝐄".codePoints().toArray();
+
+        int nextCodePoint(SplittableRandom random) { return random.nextInt(3) == 0 ? lookalikes[random.nextInt(lookalikes.length)] : asciiCodePoint(random); }
+    },
+    /**
+     * ASCII words broken up by emoji, which take two chars each and have no homoglyphs
+     */
+    EMOJI {
+        int nextCodePoint(SplittableRandom random) { return random.nextInt(4) == 0 ? 0x1F600 + random.nextInt(0x50) : asciiCodePoint(random); }
+    },
+    /**
+     * The same character over and over in different forms, which is the
+     * worst case for searches that backtrack
+     */
+    REPETITIVE {
+        private final int[] forms = { 'a', 'ａ', 'а' };
+
+        int nextCodePoint(SplittableRandom random) { return forms[random.nextInt(forms.length)]; }
+    };
+
+    private static final long SEED = 0x48474C59L;
+
+    abstract int nextCodePoint(SplittableRandom random);
+
+    private static int asciiCodePoint(SplittableRandom random) {
+        int r = random.nextInt(32);
+        if (r < 5) {
+            return ' ';
+        }
+        if (r < 6) {
+            return ",.!?-".charAt(random.nextInt(5));
+        }
+        return r < 9 ? 'A' + random.nextInt(26) : 'a' + random.nextInt(26);
+    }
+
+    /**
+     * Returns text from this corpus which is the given number of chars long.
+     */
+    public String generate(int length) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        StringBuilder builder = new StringBuilder(length + 1);
+        while (builder.length() < length) {
+            int c = nextCodePoint(random);
+            if (builder.length() + Character.charCount(c) > length) {
+                c = 'a';
+            }
+            builder.appendCodePoint(c);
+        }
+        return builder.toString();
+    }
+}
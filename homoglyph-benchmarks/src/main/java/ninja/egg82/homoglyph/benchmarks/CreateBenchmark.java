@@ -0,0 +1,25 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import ninja.egg82.homoglyph.HomoglyphHelper;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateBenchmark {
+    /**
+     * Loads the precompiled table, which is what create() does when it's available
+     */
+    @Benchmark
+    public HomoglyphHelper create() throws IOException { return HomoglyphHelper.create(); }
+
+    /**
+     * Parses and compiles the text list, which is what create() falls back to
+     */
+    @Benchmark
+    public HomoglyphHelper createFromList() throws IOException { return HomoglyphHelper.create("char_codes.lst"); }
+}
@@ -0,0 +1,20 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    @Benchmark
+    public int indexOf(TextState state) { return state.helper.indexOf(state.text, state.needle); }
+
+    @Benchmark
+    public int lastIndexOf(TextState state) { return state.helper.lastIndexOf(state.text, state.needle); }
+
+    @Benchmark
+    public boolean contains(TextState state) { return state.helper.contains(state.text, state.needle); }
+}
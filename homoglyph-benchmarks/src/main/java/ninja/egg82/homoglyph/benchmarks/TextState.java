@@ -0,0 +1,70 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import ninja.egg82.homoglyph.HomoglyphHelper;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A helper and some text to run it against, for every corpus and length.
+ */
+@State(Scope.Benchmark)
+public class TextState {
+    @Param({ "ASCII", "FULLWIDTH", "MIXED", "EMOJI", "REPETITIVE" })
+    public Corpus corpus;
+
+    @Param({ "16", "256", "4096" })
+    public int length;
+
+    public HomoglyphHelper helper;
+
+    /**
+     * The text itself
+     */
+    public String text;
+    /**
+     * The text converted to ASCII, which is homoglyph-equal to the text
+     */
+    public String ascii;
+    /**
+     * The first and last quarters of the text, converted to ASCII
+     */
+    public String prefix;
+    public String suffix;
+    /**
+     * Something to search the text for. For the repetitive corpus this is
+     * a run of the repeated character followed by one that never appears,
+     * which is the worst case for searches that backtrack.
+     */
+    public String needle;
+    /**
+     * The text and its ASCII conversion as UTF-8
+     */
+    public byte[] utf8;
+    public byte[] asciiUtf8;
+
+    @Setup
+    public void setup() throws IOException {
+        helper = HomoglyphHelper.create();
+        text = corpus.generate(length);
+        ascii = helper.toASCII(text);
+        utf8 = text.getBytes(StandardCharsets.UTF_8);
+        asciiUtf8 = ascii.getBytes(StandardCharsets.UTF_8);
+
+        int quarter = text.codePointCount(0, text.length()) / 4;
+        prefix = helper.toASCII(text.substring(0, text.offsetByCodePoints(0, quarter)));
+        suffix = helper.toASCII(text.substring(text.offsetByCodePoints(text.length(), -quarter)));
+
+        if (corpus == Corpus.REPETITIVE) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < Math.min(quarter, 64); i++) {
+                builder.append('a');
+            }
+            needle = builder.append('b').toString();
+        } else {
+            // A short piece from near the end, so the search has to cover most of the text
+            int start = text.offsetByCodePoints(0, Math.max(quarter * 3 - 1, 0));
+            needle = helper.toASCII(text.substring(start, text.offsetByCodePoints(start, Math.min(quarter, 8) + 1)));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+    @Benchmark
+    public String toOrderedASCII(TextState state) { return state.helper.toOrderedASCII(state.text); }
+
+    @Benchmark
+    public String toAlphanumeric(TextState state) { return state.helper.toAlphanumeric(state.text); }
+
+    @Benchmark
+    public String toStandardCharset(TextState state) { return state.helper.toStandardCharset(state.text); }
+
+    @Benchmark
+    public String toASCII(TextState state) { return state.helper.toASCII(state.text); }
+}
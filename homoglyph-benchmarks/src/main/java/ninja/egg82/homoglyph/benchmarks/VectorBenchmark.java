@@ -0,0 +1,82 @@
+package ninja.egg82.homoglyph.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The UTF-8 kernels with and without jdk.incubator.vector, which the JDK 17+
+ * version of the library uses when the module is resolved. Needs JDK 17 or newer to run,
+ * and JDK 17 to 19 for the direct buffer benchmarks to use vectors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VectorBenchmark {
+    @State(Scope.Thread)
+    public static class Output {
+        public byte[] bytes;
+
+        @Setup
+        public void setup(TextState state) { bytes = new byte[state.utf8.length]; }
+    }
+
+    @State(Scope.Thread)
+    public static class Direct {
+        public ByteBuffer utf8;
+        public ByteBuffer asciiUtf8;
+        public ByteBuffer out;
+
+        @Setup
+        public void setup(TextState state) {
+            utf8 = direct(state.utf8);
+            asciiUtf8 = direct(state.asciiUtf8);
+            out = ByteBuffer.allocateDirect(state.utf8.length);
+        }
+
+        private static ByteBuffer direct(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return buffer;
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+    public int toASCIIVector(TextState state, Output out) { return state.helper.toASCII(state.utf8, 0, state.utf8.length, out.bytes, 0); }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector", "-Dhomoglyph.vector=false" })
+    public int toASCIIScalar(TextState state, Output out) { return state.helper.toASCII(state.utf8, 0, state.utf8.length, out.bytes, 0); }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+    public boolean equalsVector(TextState state) { return state.helper.equalsUTF8(state.utf8, 0, state.utf8.length, state.asciiUtf8, 0, state.asciiUtf8.length); }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector", "-Dhomoglyph.vector=false" })
+    public boolean equalsScalar(TextState state) { return state.helper.equalsUTF8(state.utf8, 0, state.utf8.length, state.asciiUtf8, 0, state.asciiUtf8.length); }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+    public int toASCIIDirectVector(TextState state, Direct direct) { return toASCII(state, direct); }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector", "-Dhomoglyph.vector=false" })
+    public int toASCIIDirectScalar(TextState state, Direct direct) { return toASCII(state, direct); }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+    public boolean equalsDirectVector(TextState state, Direct direct) { return state.helper.equalsUTF8(direct.utf8, direct.asciiUtf8); }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector", "-Dhomoglyph.vector=false" })
+    public boolean equalsDirectScalar(TextState state, Direct direct) { return state.helper.equalsUTF8(direct.utf8, direct.asciiUtf8); }
+
+    private static int toASCII(TextState state, Direct direct) {
+        direct.utf8.rewind();
+        direct.out.clear();
+        return state.helper.toASCII(direct.utf8, direct.out);
+    }
+}
@@ -0,0 +1,123 @@
+package ninja.egg82.homoglyph;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * The loops behind the {@link HomoglyphHelper} batch methods.
+ * Work is split into contiguous chunks which each write only their own
+ * slots of the result, so the output is the same no matter how the
+ * executor schedules them.
+ */
+final class BatchKernel {
+    // Below this many elements per chunk, handing work to another thread costs more than it saves
+    static final int MIN_CHUNK = 256;
+
+    private BatchKernel() { }
+
+    interface Chunk {
+        void run(int start, int end);
+    }
+
+    /**
+     * Runs the chunk over [0, size) on the executor, or on the calling thread if
+     * the executor is null or the batch is too small to split. The last chunk always
+     * runs on the calling thread, so a busy or single-threaded executor can't stall it.
+     * If it throws, or the executor rejects a chunk, the chunks already handed to the
+     * executor are cancelled, so any that haven't started yet never run.
+     */
+    static void run(int size, Executor executor, Chunk chunk) {
+        int chunks = executor == null ? 1 : Math.min(size / MIN_CHUNK, Runtime.getRuntime().availableProcessors() * 4);
+        if (chunks <= 1) {
+            chunk.run(0, size);
+            return;
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks - 1];
+        boolean finished = false;
+        try {
+            for (int i = 0; i < futures.length; i++) {
+                int start = (int) ((long) size * i / chunks);
+                int end = (int) ((long) size * (i + 1) / chunks);
+                futures[i] = CompletableFuture.runAsync(() -> chunk.run(start, end), executor);
+            }
+            chunk.run((int) ((long) size * (chunks - 1) / chunks), size);
+            finished = true;
+        } finally {
+            if (!finished) {
+                for (CompletableFuture<?> future : futures) {
+                    // Null past the chunk the executor rejected
+                    if (future != null) {
+                        future.cancel(false);
+                    }
+                }
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Transforms every element of the input into the same slot of the output.
+     * Elements the transform doesn't change are passed through as-is, and the
+     * rest are built in one scratch builder per chunk. If there are recorders,
+     * every element is recorded as a call of its own.
+     */
+    static String[] transform(CodePointMap transform, String[] unicode, Executor executor, Supplier<CallRecorder> recorders) {
+        String[] result = new String[unicode.length];
+        run(unicode.length, executor, (start, end) -> {
+            StringBuilder scratch = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                String s = unicode[i];
+                CallRecorder recorder = recorders != null ? recorders.get() : null;
+                int first = TransformKernel.firstChange(transform, s, 0, s.length(), recorder);
+                if (first == -1) {
+                    result[i] = s;
+                } else {
+                    scratch.setLength(0);
+                    scratch.append(s, 0, first);
+                    result[i] = TransformKernel.append(transform, s, first, s.length(), scratch, recorder).toString();
+                }
+                if (recorder != null) {
+                    recorder.finish(s.length());
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns true if the pattern is found in any of the haystacks.
+     * Chunks stop as soon as any of them finds a match. If there are recorders,
+     * every haystack searched is recorded as a call of its own.
+     */
+    static boolean containsAny(HomoglyphPattern pattern, CharSequence[] haystacks, Executor executor, Supplier<CallRecorder> recorders) {
+        AtomicBoolean found = new AtomicBoolean(false);
+        run(haystacks.length, executor, (start, end) -> {
+            for (int i = start; i < end && !found.get(); i++) {
+                CallRecorder recorder = recorders != null ? recorders.get() : null;
+                if (pattern.indexOf(haystacks[i], 0, recorder) > -1) {
+                    found.set(true);
+                }
+                if (recorder != null) {
+                    recorder.finish(haystacks[i] != null ? haystacks[i].length() : 0);
+                }
+            }
+        });
+        return found.get();
+    }
+}
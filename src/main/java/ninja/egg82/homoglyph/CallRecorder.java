@@ -0,0 +1,42 @@
+package ninja.egg82.homoglyph;
+
+/**
+ * Collects what one call read of its input for a {@link HomoglyphListener}, so the
+ * listener hears about it from the pass the call makes anyway instead of a second one.
+ * Helpers only make one when they have a listener, and the kernels hand it every code
+ * point they decode from the input being reported on. ASCII runs the kernels skip
+ * without decoding don't need to be handed over, since they can't change the result.
+ */
+final class CallRecorder {
+    private final HomoglyphListener listener;
+    private final HomoglyphListener.Operation operation;
+    private final HomoglyphTable table;
+    private final long start;
+    private boolean ascii = true;
+
+    CallRecorder(HomoglyphListener listener, HomoglyphListener.Operation operation, HomoglyphTable table) {
+        this.listener = listener;
+        this.operation = operation;
+        this.table = table;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Notes a code point read from the input. Negative values are malformed
+     * UTF-8 bytes, which aren't ASCII but aren't code points either.
+     */
+    void read(int c) {
+        if (c >= 0 && c < 0x80) {
+            return;
+        }
+        ascii = false;
+        if (c >= 0 && table.symbol(c) >= table.classCount) {
+            listener.onUnmapped(operation, c);
+        }
+    }
+
+    /**
+     * Reports the call, now that it's done.
+     */
+    void finish(int length) { listener.onCall(operation, length, ascii, System.nanoTime() - start); }
+}
@@ -0,0 +1,480 @@
+package ninja.egg82.homoglyph;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable mapping of Unicode code points to Unicode code points.
+ * The map is stored as a two-level page table covering the BMP and all
+ * supplementary planes, so lookups never hash, box, or allocate.
+ * Identical pages are only stored once, and the index stops at the
+ * page holding the highest mapped code point.
+ */
+public final class CodePointMap {
+    /**
+     * The value returned for code points that have no mapping
+     */
+    public static final int NO_MAPPING = -1;
+
+    // Small enough pages to share most of them, and large enough that every page
+    // number fits into a char, however many distinct pages a map has
+    private static final int PAGE_SHIFT = 5;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGE_COUNT = (Character.MAX_CODE_POINT + 1) >>> PAGE_SHIFT;
+
+    // Values are stored as chars, since nearly every mapping points into the BMP.
+    // The two highest char values are reserved: one marks an empty slot, the other
+    // marks a value that doesn't fit into a char and lives in the sorted wide arrays.
+    private static final char EMPTY = '\uFFFF';
+    private static final char WIDE = '\uFFFE';
+
+    // Class values for maps derived from a map of classes. A class's value is what its members
+    // map to, except for the member equal to it, or NO_MAPPING when its members map to nothing.
+    // EXCEPTIONS marks classes with members that differ from that, which are kept in a map
+    // of their own, where a member mapped to itself maps to nothing. Those classes keep their
+    // value under VALUE_MASK, with KEEP standing in for nothing, so the common case is one
+    // sign check.
+    private static final int KEEP = 0x1FFFFF;
+    private static final int EXCEPTIONS = Integer.MIN_VALUE;
+    private static final int VALUE_MASK = 0x1FFFFF;
+
+    private static final CodePointMap EMPTY_MAP = new Builder().build();
+
+    public static CodePointMap empty() { return EMPTY_MAP; }
+
+    public static Builder builder() { return new Builder(); }
+
+    // The number of each page in data, which starts at that number times the page size.
+    // The empty page is number 0.
+    private final char[] index;
+    private final char[] data;
+    private final int[] wideKeys;
+    private final int[] wideValues;
+    // Only set for maps derived from a map of classes, which share its pages
+    private final int[] values;
+    private final CodePointMap exceptions;
+    private final int size;
+    private final boolean mapsASCII;
+
+    private CodePointMap(char[] index, char[] data, int[] wideKeys, int[] wideValues, int[] values, CodePointMap exceptions, int size) {
+        this.index = index;
+        this.data = data;
+        this.wideKeys = wideKeys;
+        this.wideValues = wideValues;
+        this.values = values;
+        this.exceptions = exceptions;
+        this.size = size;
+
+        boolean mapsASCII = false;
+        for (int i = 0; i < 0x80; i++) {
+            if (get(i) != NO_MAPPING) {
+                mapsASCII = true;
+                break;
+            }
+        }
+        this.mapsASCII = mapsASCII;
+    }
+
+    /**
+     * Returns the code point mapped to the given code point.
+     *
+     * @param codePoint The code point to look up
+     * @return The mapped code point, or {@link #NO_MAPPING} if there is none
+     */
+    public int get(int codePoint) {
+        int value = find(codePoint);
+        return values == null || value == NO_MAPPING ? value : derive(codePoint, value);
+    }
+
+    private int find(int codePoint) {
+        // The unsigned shift also pushes negative values out of range
+        if ((codePoint >>> PAGE_SHIFT) >= index.length) {
+            return NO_MAPPING;
+        }
+
+        char value = data[(index[codePoint >>> PAGE_SHIFT] << PAGE_SHIFT) | (codePoint & PAGE_MASK)];
+        if (value < WIDE) {
+            return value;
+        }
+        return value == EMPTY ? NO_MAPPING : wideValues[Arrays.binarySearch(wideKeys, codePoint)];
+    }
+
+    private int derive(int codePoint, int id) {
+        int value = values[id];
+        if (value < NO_MAPPING) {
+            int exception = exceptions.get(codePoint);
+            if (exception != NO_MAPPING) {
+                return exception == codePoint ? NO_MAPPING : exception;
+            }
+            value &= VALUE_MASK;
+            if (value == KEEP) {
+                return NO_MAPPING;
+            }
+        }
+        return value == codePoint ? NO_MAPPING : value;
+    }
+
+    /**
+     * Returns the code point mapped to the given code point,
+     * or a default value if there is none.
+     *
+     * @param codePoint The code point to look up
+     * @param defaultValue The value to return if there is no mapping
+     * @return The mapped code point, or the default value
+     */
+    public int getOrDefault(int codePoint, int defaultValue) {
+        int value = get(codePoint);
+        return value == NO_MAPPING ? defaultValue : value;
+    }
+
+    /**
+     * Returns true if the given code point has a mapping.
+     *
+     * @param codePoint The code point to look up
+     * @return Whether or not the code point is mapped
+     */
+    public boolean containsKey(int codePoint) { return get(codePoint) != NO_MAPPING; }
+
+    /**
+     * Returns the number of mapped code points.
+     *
+     * @return The number of mappings in this map
+     */
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Returns true if any code point below 0x80 has a mapping.
+     */
+    boolean mapsASCII() { return mapsASCII; }
+
+    /**
+     * Returns every mapped code point, in ascending order.
+     */
+    int[] keys() {
+        int[] keys = new int[size];
+        int k = 0;
+        for (int p = 0; p < index.length && k < size; p++) {
+            int page = index[p] << PAGE_SHIFT;
+            if (page == 0) {
+                continue;
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                int c = (p << PAGE_SHIFT) | i;
+                // Derived maps share their classes' pages, which can hold keys they don't map
+                if (data[page + i] != EMPTY && get(c) != NO_MAPPING) {
+                    keys[k++] = c;
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns a map which gives every key of the classes map what the transform gives it,
+     * stored as one value per class instead of pages of its own. Every key of the
+     * transform has to be a key of the classes map, and the more a class's members map
+     * to the same value (or, for one of them, to nothing), the smaller the result.
+     */
+    static CodePointMap byClass(CodePointMap classes, int classCount, Builder transform) {
+        int[] keys = classes.keys();
+        // Members grouped by class, in ascending order within each one
+        int[] starts = new int[classCount + 1];
+        for (int c : keys) {
+            starts[classes.get(c) + 1]++;
+        }
+        for (int i = 0; i < classCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] members = new int[keys.length];
+        int[] filled = Arrays.copyOf(starts, classCount);
+        for (int c : keys) {
+            members[filled[classes.get(c)]++] = c;
+        }
+
+        int[] values = new int[classCount];
+        Builder exceptions = new Builder();
+        int[] targets = new int[0];
+        int count = 0;
+        for (int id = 0; id < classCount; id++) {
+            int start = starts[id];
+            int end = starts[id + 1];
+            if (targets.length < end - start) {
+                targets = new int[end - start];
+            }
+
+            // Picks whichever value leaves the fewest members as exceptions. A member that maps to
+            // nothing agrees with KEEP, and with a value equal to itself.
+            int kept = 0;
+            int mapped = 0;
+            for (int i = start; i < end; i++) {
+                int r = transform.get(members[i]);
+                if (r == NO_MAPPING) {
+                    kept++;
+                } else {
+                    targets[mapped++] = r;
+                }
+            }
+            count += mapped;
+            Arrays.sort(targets, 0, mapped);
+            int value = KEEP;
+            int best = kept;
+            for (int i = 0; i < mapped; ) {
+                int j = i;
+                while (j < mapped && targets[j] == targets[i]) {
+                    j++;
+                }
+                int agree = j - i + (Arrays.binarySearch(members, start, end, targets[i]) >= 0 && transform.get(targets[i]) == NO_MAPPING ? 1 : 0);
+                if (agree > best) {
+                    best = agree;
+                    value = targets[i];
+                }
+                i = j;
+            }
+
+            if (best < end - start) {
+                for (int i = start; i < end; i++) {
+                    int c = members[i];
+                    int r = transform.get(c);
+                    if (r != (value == KEEP || value == c ? NO_MAPPING : value)) {
+                        exceptions.put(c, r == NO_MAPPING ? c : r);
+                    }
+                }
+                value |= EXCEPTIONS;
+            } else if (value == KEEP) {
+                value = NO_MAPPING;
+            }
+            values[id] = value;
+        }
+        if (count != transform.size()) {
+            throw new IllegalArgumentException("transform cannot map code points without a class.");
+        }
+
+        return new CodePointMap(classes.index, classes.data, classes.wideKeys, classes.wideValues, values, exceptions.build(), transform.size());
+    }
+
+    /**
+     * Writes the map as its page table, followed by its wide values. Maps derived from
+     * a map of classes are written as their class values and exceptions instead,
+     * and read back with {@link #read(ByteBuffer, CodePointMap, int)}.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        if (values != null) {
+            out.writeInt(values.length);
+            for (int value : values) {
+                out.writeInt(value);
+            }
+            exceptions.write(out);
+            return;
+        }
+
+        out.writeInt(index.length);
+        out.writeInt(data.length);
+        out.writeInt(wideKeys.length);
+        for (int[] ints : new int[][] { wideKeys, wideValues }) {
+            for (int value : ints) {
+                out.writeInt(value);
+            }
+        }
+        // The index has an even length and data is always whole pages, so whatever follows stays aligned to an int
+        for (char[] chars : new char[][] { index, data }) {
+            for (char value : chars) {
+                out.writeChar(value);
+            }
+        }
+    }
+
+    /**
+     * Reads a map written by {@link #write(DataOutput)}, advancing the buffer past it.
+     */
+    static CodePointMap read(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        int indexLength = buffer.getInt();
+        int dataLength = buffer.getInt();
+        int wideCount = buffer.getInt();
+        if (size < 0 || indexLength < 2 || indexLength % 2 != 0 || indexLength > PAGE_COUNT || dataLength < PAGE_SIZE || dataLength % PAGE_SIZE != 0 || dataLength > (PAGE_COUNT + 1) * PAGE_SIZE
+                || wideCount < 0 || 2L * wideCount + indexLength / 2 + dataLength / 2 > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("buffer does not contain a valid code point map.");
+        }
+
+        int[] wideKeys = new int[wideCount];
+        int[] wideValues = new int[wideCount];
+        char[] index = new char[indexLength];
+        char[] data = new char[dataLength];
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.get(wideKeys);
+        ints.get(wideValues);
+        buffer.position(buffer.position() + ints.position() * 4);
+        CharBuffer chars = buffer.asCharBuffer();
+        chars.get(index);
+        chars.get(data);
+        buffer.position(buffer.position() + chars.position() * 2);
+
+        for (char page : index) {
+            if (page >= dataLength / PAGE_SIZE) {
+                throw new IllegalArgumentException("buffer does not contain a valid code point map.");
+            }
+        }
+        return new CodePointMap(index, data, wideKeys, wideValues, null, null, size);
+    }
+
+    /**
+     * Reads a map written by {@link #write(DataOutput)} for a map derived from the
+     * classes given, advancing the buffer past it.
+     */
+    static CodePointMap read(ByteBuffer buffer, CodePointMap classes, int classCount) {
+        int size = buffer.getInt();
+        if (size < 0 || buffer.getInt() != classCount || classCount > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("buffer does not contain a valid code point map.");
+        }
+
+        int[] values = new int[classCount];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + classCount * 4);
+        for (int value : values) {
+            if (value != NO_MAPPING && ((value & ~(VALUE_MASK | EXCEPTIONS)) != 0 || ((value & VALUE_MASK) > Character.MAX_CODE_POINT && value != (EXCEPTIONS | KEEP)))) {
+                throw new IllegalArgumentException("buffer does not contain a valid code point map.");
+            }
+        }
+        CodePointMap exceptions = read(buffer);
+        return new CodePointMap(classes.index, classes.data, classes.wideKeys, classes.wideValues, values, exceptions, size);
+    }
+
+    /**
+     * A mutable builder for {@link CodePointMap}.
+     * Pages are only allocated for ranges that are written to.
+     */
+    public static final class Builder {
+        // Scratch pages are larger than the built map's, since a builder only lives long enough to build
+        private static final int SCRATCH_SHIFT = 8;
+        private static final int SCRATCH_SIZE = 1 << SCRATCH_SHIFT;
+        private static final int SCRATCH_MASK = SCRATCH_SIZE - 1;
+
+        private final int[][] pages = new int[(Character.MAX_CODE_POINT + 1) >>> SCRATCH_SHIFT][];
+        private int size = 0;
+        private int max = -1;
+
+        private Builder() { }
+
+        public int get(int codePoint) {
+            checkCodePoint(codePoint);
+            int[] page = pages[codePoint >>> SCRATCH_SHIFT];
+            return page == null ? NO_MAPPING : page[codePoint & SCRATCH_MASK];
+        }
+
+        public boolean containsKey(int codePoint) { return get(codePoint) != NO_MAPPING; }
+
+        public Builder put(int codePoint, int value) {
+            checkCodePoint(codePoint);
+            checkCodePoint(value);
+
+            int[] page = pages[codePoint >>> SCRATCH_SHIFT];
+            if (page == null) {
+                page = new int[SCRATCH_SIZE];
+                Arrays.fill(page, NO_MAPPING);
+                pages[codePoint >>> SCRATCH_SHIFT] = page;
+            }
+            if (page[codePoint & SCRATCH_MASK] == NO_MAPPING) {
+                size++;
+            }
+            page[codePoint & SCRATCH_MASK] = value;
+            max = Math.max(max, codePoint);
+            return this;
+        }
+
+        public Builder putIfAbsent(int codePoint, int value) {
+            if (!containsKey(codePoint)) {
+                put(codePoint, value);
+            }
+            return this;
+        }
+
+        public int size() { return size; }
+
+        public CodePointMap build() {
+            // Rounded up to an even length, so a written map stays aligned to an int
+            char[] index = new char[max < 0 ? 2 : ((max >>> PAGE_SHIFT) + 2) & ~1];
+            // Identical pages (mostly from generated ranges) are shared.
+            // The empty one goes first, so page 0 always means empty.
+            Map<CharBuffer, Integer> distinctPages = new HashMap<>();
+            char[] data = new char[PAGE_SIZE * 16];
+            int dataLength = PAGE_SIZE;
+            Arrays.fill(data, 0, PAGE_SIZE, EMPTY);
+            int wideCount = 0;
+
+            for (int p = 0; p < index.length; p++) {
+                int start = p << PAGE_SHIFT;
+                int[] scratch = pages[start >>> SCRATCH_SHIFT];
+                if (scratch == null) {
+                    continue;
+                }
+
+                char[] packed = new char[PAGE_SIZE];
+                boolean empty = true;
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    int value = scratch[(start & SCRATCH_MASK) + i];
+                    if (value == NO_MAPPING) {
+                        packed[i] = EMPTY;
+                    } else if (value >= WIDE) {
+                        packed[i] = WIDE;
+                        wideCount++;
+                        empty = false;
+                    } else {
+                        packed[i] = (char) value;
+                        empty = false;
+                    }
+                }
+                if (empty) {
+                    continue;
+                }
+
+                Integer page = distinctPages.get(CharBuffer.wrap(packed));
+                if (page == null) {
+                    page = dataLength >>> PAGE_SHIFT;
+                    if (data.length < dataLength + PAGE_SIZE) {
+                        data = Arrays.copyOf(data, data.length * 2);
+                    }
+                    System.arraycopy(packed, 0, data, dataLength, PAGE_SIZE);
+                    dataLength += PAGE_SIZE;
+                    distinctPages.put(CharBuffer.wrap(packed), page);
+                }
+                index[p] = (char) page.intValue();
+            }
+
+            // Keys are walked in ascending order, so the wide keys come out sorted
+            int[] wideKeys = new int[wideCount];
+            int[] wideValues = new int[wideCount];
+            int w = 0;
+            for (int c = 0; c <= max && w < wideCount; c++) {
+                int[] scratch = pages[c >>> SCRATCH_SHIFT];
+                if (scratch == null) {
+                    c |= SCRATCH_MASK;
+                    continue;
+                }
+                int value = scratch[c & SCRATCH_MASK];
+                if (value != NO_MAPPING && value >= WIDE) {
+                    wideKeys[w] = c;
+                    wideValues[w] = value;
+                    w++;
+                }
+            }
+
+            return new CodePointMap(index, Arrays.copyOf(data, dataLength), wideKeys, wideValues, null, null, size);
+        }
+
+        private static void checkCodePoint(int codePoint) {
+            if (!Character.isValidCodePoint(codePoint)) {
+                throw new IllegalArgumentException("codePoint must be a valid Unicode code point.");
+            }
+        }
+    }
+}
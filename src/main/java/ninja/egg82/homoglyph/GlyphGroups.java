@@ -0,0 +1,193 @@
+package ninja.egg82.homoglyph;
+
+import it.unimi.dsi.fastutil.ints.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A homoglyph list stored as two flat arrays: the members of every group
+ * back to back, and the offset each group starts at. Members keep the
+ * order they were listed in and are unique within their group.
+ */
+final class GlyphGroups {
+    private final int[] offsets;
+    private final int[] members;
+
+    GlyphGroups(int[] offsets, int[] members) {
+        this.offsets = offsets;
+        this.members = members;
+    }
+
+    int size() { return offsets.length - 1; }
+
+    int start(int group) { return offsets[group]; }
+
+    int end(int group) { return offsets[group + 1]; }
+
+    int member(int index) { return members[index]; }
+
+    int memberCount() { return members.length; }
+
+    int[] group(int group) { return Arrays.copyOfRange(members, offsets[group], offsets[group + 1]); }
+
+    /**
+     * Parses the comma-separated hex format of char_codes.lst.
+     * Blank lines and lines starting with # are skipped, as are
+     * entries which aren't valid code points.
+     */
+    static GlyphGroups parse(Reader reader) throws IOException {
+        Builder builder = new Builder();
+        readList(reader, group -> {
+            for (int c : group) {
+                builder.add(c);
+            }
+            builder.endGroup();
+        });
+        return builder.build();
+    }
+
+    /**
+     * Reads the comma-separated hex format of char_codes.lst, passing each
+     * line's valid code points on as one group, and closes the reader.
+     */
+    static void readList(Reader reader, Consumer<int[]> groups) throws IOException {
+        IntList group = new IntArrayList();
+
+        try (BufferedReader r = new BufferedReader(reader)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                int start = 0;
+                int end = line.length();
+                while (start < end && line.charAt(start) <= ' ') {
+                    start++;
+                }
+                if (start == end || line.charAt(start) == '#') {
+                    // Don't want empty lines or comments
+                    continue;
+                }
+
+                group.clear();
+                while (start <= end) {
+                    int comma = line.indexOf(',', start);
+                    if (comma == -1) {
+                        comma = end;
+                    }
+                    int c = parseHex(line, start, comma);
+                    if (c != -1) {
+                        group.add(c);
+                    }
+                    start = comma + 1;
+                }
+                if (!group.isEmpty()) {
+                    groups.accept(group.toIntArray());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the format of the Unicode consortium's confusables.txt, and closes the reader.
+     * Each line is "source ; target ; type # comment", where the source is one code point
+     * and the target is one or more separated by spaces. Only single code point targets are
+     * passed on, as a group of the target and then the source.
+     */
+    static void readConfusables(Reader reader, Consumer<int[]> groups) throws IOException {
+        try (BufferedReader r = new BufferedReader(reader)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                int end = line.indexOf('#');
+                if (end == -1) {
+                    end = line.length();
+                }
+                int start = 0;
+                if (start < end && line.charAt(start) == '\uFEFF') {
+                    // The file starts with a byte order mark
+                    start++;
+                }
+
+                int first = line.indexOf(';', start);
+                if (first == -1 || first > end) {
+                    continue;
+                }
+                int second = line.indexOf(';', first + 1);
+                if (second == -1 || second > end) {
+                    second = end;
+                }
+
+                int source = parseHex(line, start, first);
+                int target = parseHex(line, first + 1, second);
+                if (source != -1 && target != -1 && source != target) {
+                    groups.accept(new int[] { target, source });
+                }
+            }
+        }
+    }
+
+    private static int parseHex(String line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start < end && line.charAt(start) == '+') {
+            start++;
+        }
+        if (start == end) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(line.charAt(i), 16);
+            if (digit == -1) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+            if (value > Character.MAX_CODE_POINT) {
+                return -1;
+            }
+        }
+        return value;
+    }
+
+    static final class Builder {
+        private final IntList offsets = new IntArrayList();
+        private final IntList members = new IntArrayList();
+        private int groupStart = 0;
+
+        Builder() { offsets.add(0); }
+
+        /**
+         * Adds a code point to the current group, unless the group already has it.
+         */
+        Builder add(int codePoint) {
+            for (int i = groupStart; i < members.size(); i++) {
+                if (members.getInt(i) == codePoint) {
+                    return this;
+                }
+            }
+            members.add(codePoint);
+            return this;
+        }
+
+        /**
+         * Closes the current group. Empty groups are dropped.
+         */
+        Builder endGroup() {
+            if (members.size() > groupStart) {
+                offsets.add(members.size());
+                groupStart = members.size();
+            }
+            return this;
+        }
+
+        GlyphGroups build() {
+            endGroup();
+            return new GlyphGroups(offsets.toIntArray(), members.toIntArray());
+        }
+    }
+}
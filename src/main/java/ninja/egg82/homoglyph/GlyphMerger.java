@@ -0,0 +1,119 @@
+package ninja.egg82.homoglyph;
+
+import it.unimi.dsi.fastutil.ints.*;
+import java.util.Arrays;
+
+/**
+ * Merges the groups from any number of {@link GlyphSource}s into one homoglyph list.
+ * Groups which share a member are joined, so the result never has a character in
+ * more than one group and the compiled table can always use its fast paths. A joined
+ * group keeps the members of the earliest group first, in their original order.
+ */
+final class GlyphMerger implements GlyphSink {
+    private final IntList offsets = new IntArrayList();
+    private final IntList members = new IntArrayList();
+    private final IntList removed = new IntArrayList();
+
+    GlyphMerger() { offsets.add(0); }
+
+    public void group(int... codePoints) {
+        if (codePoints == null) {
+            throw new IllegalArgumentException("codePoints cannot be null.");
+        }
+        for (int c : codePoints) {
+            checkCodePoint(c);
+        }
+        if (codePoints.length > 0) {
+            for (int c : codePoints) {
+                members.add(c);
+            }
+            offsets.add(members.size());
+        }
+    }
+
+    public void remove(int codePoint) {
+        checkCodePoint(codePoint);
+        removed.add(codePoint);
+    }
+
+    private static void checkCodePoint(int codePoint) {
+        if (!Character.isValidCodePoint(codePoint)) {
+            throw new IllegalArgumentException("codePoint " + codePoint + " is not a valid code point.");
+        }
+    }
+
+    GlyphGroups build() {
+        int groupCount = offsets.size() - 1;
+        int[] removed = this.removed.toIntArray();
+        Arrays.sort(removed);
+
+        // Sort (code point, group) pairs so every group sharing a code point sits side by side
+        long[] entries = new long[members.size()];
+        int entryCount = 0;
+        for (int g = 0; g < groupCount; g++) {
+            for (int i = offsets.getInt(g); i < offsets.getInt(g + 1); i++) {
+                int c = members.getInt(i);
+                if (Arrays.binarySearch(removed, c) < 0) {
+                    entries[entryCount++] = ((long) c << 32) | g;
+                }
+            }
+        }
+        Arrays.sort(entries, 0, entryCount);
+
+        // Join them, always keeping the earlier group as the root
+        int[] parent = new int[groupCount];
+        for (int g = 0; g < groupCount; g++) {
+            parent[g] = g;
+        }
+        int[] codePoints = new int[entryCount];
+        int codePointCount = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int c = (int) (entries[i] >>> 32);
+            int g = (int) entries[i];
+            if (codePointCount > 0 && codePoints[codePointCount - 1] == c) {
+                int a = root(parent, (int) entries[i - 1]);
+                int b = root(parent, g);
+                parent[Math.max(a, b)] = Math.min(a, b);
+            } else {
+                codePoints[codePointCount++] = c;
+            }
+        }
+
+        // Gather each joined group's members in order, each code point once
+        IntList[] joined = new IntList[groupCount];
+        boolean[] seen = new boolean[codePointCount];
+        for (int g = 0; g < groupCount; g++) {
+            int r = root(parent, g);
+            for (int i = offsets.getInt(g); i < offsets.getInt(g + 1); i++) {
+                int c = members.getInt(i);
+                int index = Arrays.binarySearch(codePoints, 0, codePointCount, c);
+                if (index >= 0 && !seen[index]) {
+                    seen[index] = true;
+                    if (joined[r] == null) {
+                        joined[r] = new IntArrayList();
+                    }
+                    joined[r].add(c);
+                }
+            }
+        }
+
+        IntList groupOffsets = new IntArrayList();
+        IntList groupMembers = new IntArrayList(codePointCount);
+        groupOffsets.add(0);
+        for (IntList group : joined) {
+            if (group != null) {
+                groupMembers.addAll(group);
+                groupOffsets.add(groupMembers.size());
+            }
+        }
+        return new GlyphGroups(groupOffsets.toIntArray(), groupMembers.toIntArray());
+    }
+
+    private static int root(int[] parent, int g) {
+        while (parent[g] != g) {
+            parent[g] = parent[parent[g]];
+            g = parent[g];
+        }
+        return g;
+    }
+}
@@ -0,0 +1,24 @@
+package ninja.egg82.homoglyph;
+
+/**
+ * Collects homoglyph groups from one or more {@link GlyphSource}s.
+ */
+public interface GlyphSink {
+    /**
+     * Adds a group of code points which are all homoglyphs of each other.
+     * The first code point is the one the others convert to with
+     * {@link HomoglyphHelper#toOrderedASCII(String)}, unless an earlier
+     * group that shares a member already has one.
+     *
+     * @param codePoints The members of the group
+     */
+    void group(int... codePoints);
+
+    /**
+     * Removes a code point from every group, no matter which source
+     * added it or whether it was added before or after this call.
+     *
+     * @param codePoint The code point to remove
+     */
+    void remove(int codePoint);
+}
@@ -0,0 +1,104 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Somewhere homoglyph groups come from, such as a homoglyph list, the Unicode
+ * confusables.txt file, or a set of overrides written in code. Any number of
+ * sources can be merged into one helper with {@link HomoglyphHelper#create(Iterable)},
+ * which also accepts a {@link java.util.ServiceLoader} of sources as-is.
+ */
+@FunctionalInterface
+public interface GlyphSource {
+    /**
+     * Adds this source's groups to the sink given.
+     *
+     * @param sink The sink to add groups to
+     * @throws IOException If the groups could not be read
+     */
+    void read(GlyphSink sink) throws IOException;
+
+    /**
+     * Returns the homoglyph list bundled with this library, which is
+     * what {@link HomoglyphHelper#create()} uses.
+     *
+     * @return The bundled list
+     */
+    static GlyphSource defaults() {
+        return sink -> {
+            InputStream in = GlyphSource.class.getClassLoader().getResourceAsStream("char_codes.lst");
+            if (in == null) {
+                throw new IOException("url not found.");
+            }
+            GlyphGroups.readList(new InputStreamReader(in, StandardCharsets.UTF_8), sink::group);
+        };
+    }
+
+    /**
+     * Returns a source which reads a file in the comma-separated hex format
+     * of char_codes.lst, where each line is one group.
+     *
+     * @param path The list to read
+     * @return The source
+     */
+    static GlyphSource list(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path cannot be null.");
+        }
+        return sink -> GlyphGroups.readList(Files.newBufferedReader(path, StandardCharsets.UTF_8), sink::group);
+    }
+
+    /**
+     * Returns a source which reads the comma-separated hex format of
+     * char_codes.lst from the reader given. The reader is closed once
+     * it's read, so the source can only be read once.
+     *
+     * @param reader The list to read
+     * @return The source
+     */
+    static GlyphSource list(Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("reader cannot be null.");
+        }
+        return sink -> GlyphGroups.readList(reader, sink::group);
+    }
+
+    /**
+     * Returns a source which reads a file in the format of the Unicode
+     * consortium's confusables.txt. Every mapping from one code point to
+     * another puts the two in the same group, with the target first.
+     * Mappings to a sequence of more than one code point have no place in
+     * a homoglyph group, so they're skipped.
+     *
+     * @param path The confusables file to read
+     * @return The source
+     */
+    static GlyphSource confusables(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path cannot be null.");
+        }
+        return sink -> GlyphGroups.readConfusables(Files.newBufferedReader(path, StandardCharsets.UTF_8), sink::group);
+    }
+
+    /**
+     * Returns a source which reads the format of the Unicode consortium's
+     * confusables.txt from the reader given. The reader is closed once
+     * it's read, so the source can only be read once.
+     *
+     * @param reader The confusables to read
+     * @return The source
+     * @see #confusables(Path)
+     */
+    static GlyphSource confusables(Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("reader cannot be null.");
+        }
+        return sink -> GlyphGroups.readConfusables(reader, sink::group);
+    }
+}
@@ -0,0 +1,222 @@
+package ninja.egg82.homoglyph;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * What {@link HomoglyphHelper#analyze(CharSequence)} found out about a string in one pass:
+ * which scripts it mixes, how many of its code points could be mistaken for others,
+ * its skeleton hash and whether toASCII would change it. Together these are enough to
+ * decide whether a name looks like a spoof without converting it several times.
+ *
+ * Scripts are looked up in a table compiled from {@link Character.UnicodeScript}, and
+ * {@link Character.UnicodeScript#COMMON} and {@link Character.UnicodeScript#INHERITED}
+ * are left out, since digits, punctuation and combining marks are shared by every script.
+ * Code points the helper ignores are left out of everything except {@link #changedByToASCII()}.
+ *
+ * Analyses are immutable and can be shared between threads.
+ */
+public final class HomoglyphAnalysis {
+    /**
+     * How freely a string mixes scripts, following the restriction levels of Unicode
+     * Technical Standard #39, from the most restrictive to the least. Unlike the standard,
+     * every script other than Cyrillic and Greek counts as one that may be mixed with Latin.
+     */
+    public enum RestrictionLevel {
+        /**
+         * Every code point is ASCII
+         */
+        ASCII,
+        /**
+         * Every code point is from one script
+         */
+        SINGLE_SCRIPT,
+        /**
+         * The scripts are all covered by Latin, Han, Hiragana and Katakana, by
+         * Latin, Han and Bopomofo, or by Latin, Han and Hangul
+         */
+        HIGHLY_RESTRICTIVE,
+        /**
+         * The scripts are all covered by Latin and one other script, which isn't Cyrillic or Greek
+         */
+        MODERATELY_RESTRICTIVE,
+        /**
+         * Any other mix of scripts
+         */
+        MINIMALLY_RESTRICTIVE
+    }
+
+    private static final int COMMON = Character.UnicodeScript.COMMON.ordinal();
+    private static final int INHERITED = Character.UnicodeScript.INHERITED.ordinal();
+
+    private static final long[] JAPANESE = bits(Character.UnicodeScript.LATIN, Character.UnicodeScript.HAN, Character.UnicodeScript.HIRAGANA, Character.UnicodeScript.KATAKANA);
+    private static final long[] CHINESE = bits(Character.UnicodeScript.LATIN, Character.UnicodeScript.HAN, Character.UnicodeScript.BOPOMOFO);
+    private static final long[] KOREAN = bits(Character.UnicodeScript.LATIN, Character.UnicodeScript.HAN, Character.UnicodeScript.HANGUL);
+
+    private final long[] scripts;
+    private final int scriptCount;
+    private final int codePoints;
+    private final int confusables;
+    private final boolean ascii;
+    private final boolean changedByToASCII;
+    private final long skeletonHash;
+
+    private HomoglyphAnalysis(long[] scripts, int scriptCount, int codePoints, int confusables, boolean ascii, boolean changedByToASCII, long skeletonHash) {
+        this.scripts = scripts;
+        this.scriptCount = scriptCount;
+        this.codePoints = codePoints;
+        this.confusables = confusables;
+        this.ascii = ascii;
+        this.changedByToASCII = changedByToASCII;
+        this.skeletonHash = skeletonHash;
+    }
+
+    /**
+     * Walks the sequence once, looking every code point up in the script table and the
+     * table's skeleton and ASCII transforms, and handing it to the recorder, if there
+     * is one. The only allocations are the result and its script bits.
+     */
+    static HomoglyphAnalysis analyze(HomoglyphTable table, IgnorableSet ignorables, CharSequence unicode, CallRecorder recorder) {
+        CodePointMap skeleton = table.skeletonTransform;
+        CodePointMap ascii = table.asciiTransform;
+
+        long[] scripts = new long[(ScriptTable.SCRIPTS.length + Long.SIZE - 1) / Long.SIZE];
+        int scriptCount = 0;
+        int codePoints = 0;
+        int confusables = 0;
+        int nonASCII = 0;
+        boolean changed = false;
+        long hash = TransformKernel.HASH_SEED;
+
+        int end = unicode.length();
+        int i = 0;
+        while (i < end) {
+            int c = TransformKernel.codePointAt(unicode, i, end);
+            i += Character.charCount(c);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            nonASCII |= c;
+            if (!changed && ascii.get(c) != CodePointMap.NO_MAPPING) {
+                changed = true;
+            }
+            if (ignorables != null && ignorables.contains(c)) {
+                continue;
+            }
+
+            codePoints++;
+            int r = skeleton.get(c);
+            if (r != CodePointMap.NO_MAPPING) {
+                confusables++;
+                hash = TransformKernel.hash(hash, r);
+            } else {
+                hash = TransformKernel.hash(hash, c);
+            }
+
+            int script = ScriptTable.script(c);
+            if (script != COMMON && script != INHERITED) {
+                long bit = 1L << script;
+                if ((scripts[script >>> 6] & bit) == 0L) {
+                    scripts[script >>> 6] |= bit;
+                    scriptCount++;
+                }
+            }
+        }
+
+        return new HomoglyphAnalysis(scripts, scriptCount, codePoints, confusables, nonASCII < 0x80, changed, TransformKernel.finish(hash));
+    }
+
+    private static long[] bits(Character.UnicodeScript... scripts) {
+        long[] bits = new long[(ScriptTable.SCRIPTS.length + Long.SIZE - 1) / Long.SIZE];
+        for (Character.UnicodeScript script : scripts) {
+            bits[script.ordinal() >>> 6] |= 1L << script.ordinal();
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the scripts used, other than Common and Inherited.
+     *
+     * @return A new set of the scripts
+     */
+    public Set<Character.UnicodeScript> scripts() {
+        Set<Character.UnicodeScript> result = EnumSet.noneOf(Character.UnicodeScript.class);
+        for (int i = 0; i < ScriptTable.SCRIPTS.length; i++) {
+            if ((scripts[i >>> 6] & (1L << i)) != 0L) {
+                result.add(ScriptTable.SCRIPTS[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if more than one script is used, not counting Common and Inherited.
+     *
+     * @return Whether or not scripts are mixed
+     */
+    public boolean isMixedScript() { return scriptCount > 1; }
+
+    /**
+     * Returns how freely scripts are mixed.
+     *
+     * @return The restriction level
+     */
+    public RestrictionLevel restrictionLevel() {
+        if (ascii) {
+            return RestrictionLevel.ASCII;
+        }
+        if (scriptCount <= 1) {
+            return RestrictionLevel.SINGLE_SCRIPT;
+        }
+        if (coveredBy(JAPANESE) || coveredBy(CHINESE) || coveredBy(KOREAN)) {
+            return RestrictionLevel.HIGHLY_RESTRICTIVE;
+        }
+        if (scriptCount == 2 && has(Character.UnicodeScript.LATIN) && !has(Character.UnicodeScript.CYRILLIC) && !has(Character.UnicodeScript.GREEK)) {
+            return RestrictionLevel.MODERATELY_RESTRICTIVE;
+        }
+        return RestrictionLevel.MINIMALLY_RESTRICTIVE;
+    }
+
+    private boolean coveredBy(long[] allowed) {
+        for (int i = 0; i < scripts.length; i++) {
+            if ((scripts[i] & ~allowed[i]) != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean has(Character.UnicodeScript script) { return (scripts[script.ordinal() >>> 6] & (1L << script.ordinal())) != 0L; }
+
+    /**
+     * Returns the number of code points analyzed, not counting ignored ones.
+     *
+     * @return The code point count
+     */
+    public int codePoints() { return codePoints; }
+
+    /**
+     * Returns the number of code points that have homoglyphs and aren't the one their
+     * homoglyph class is represented by in skeletons. These are the code points a spoof
+     * would be made of, while the plain letters they imitate aren't counted.
+     *
+     * @return The confusable code point count
+     * @see HomoglyphHelper#skeleton(CharSequence)
+     */
+    public int confusables() { return confusables; }
+
+    /**
+     * Returns the same hash as {@link HomoglyphHelper#hash64(CharSequence)}, so it can be
+     * checked against the hashes of protected names to find collisions.
+     *
+     * @return The skeleton hash
+     */
+    public long skeletonHash() { return skeletonHash; }
+
+    /**
+     * Returns true if {@link HomoglyphHelper#toASCII(String)} would change the string.
+     *
+     * @return Whether or not the string has homoglyphs toASCII converts
+     */
+    public boolean changedByToASCII() { return changedByToASCII; }
+}
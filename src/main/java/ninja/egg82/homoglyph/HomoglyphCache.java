@@ -0,0 +1,260 @@
+package ninja.egg82.homoglyph;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of transform results, for strings which are transformed over
+ * and over again, such as usernames or common phrases.
+ *
+ * Entries are split between a number of segments by the hash of the string. Hits never
+ * lock or allocate: they read the segment's map for the transform asked for, and mark
+ * the entry as recently used. Only a miss locks its segment, to add the result once it's
+ * been transformed outside of the lock. A full segment evicts with the CLOCK algorithm,
+ * passing over entries read since its last pass, so strings in steady use stay cached
+ * the way they would in a least recently used order.
+ *
+ * Strings longer than the maximum length given are transformed without being cached,
+ * so a flood of large or unique inputs can only ever push out other entries, never grow
+ * the cache past its bounds.
+ *
+ * Results are always the same as the helper that created the cache would return, so a
+ * cache from a helper with ignorables leaves them out of skeletons, the same as
+ * {@link HomoglyphHelper#skeleton(CharSequence)} does, and keeps them in everything else.
+ */
+public final class HomoglyphCache {
+    private static final int SKELETON = TransformMode.values().length;
+
+    private final CodePointMap[] maps;
+    private final IgnorableSet ignorables;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int maxLength;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    HomoglyphCache(HomoglyphTable table, IgnorableSet ignorables, int maxSize, int maxLength) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize cannot be less than 1.");
+        }
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("maxLength cannot be negative.");
+        }
+
+        maps = new CodePointMap[SKELETON + 1];
+        for (TransformMode mode : TransformMode.values()) {
+            maps[mode.ordinal()] = table.transform(mode);
+        }
+        maps[SKELETON] = table.skeletonTransform;
+        this.ignorables = ignorables;
+
+        // A few segments per core keeps misses from contending, but each needs enough room to be worth its eviction order
+        int count = Math.min(Runtime.getRuntime().availableProcessors() * 4, Math.max(1, maxSize / 16));
+        count = Integer.highestOneBit(Math.min(count, 1 << 16));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Rounding down keeps the total at or below maxSize
+            segments[i] = new Segment(maxSize / count);
+        }
+        segmentMask = count - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the string given, transformed with the mode given,
+     * from the cache if it's there.
+     *
+     * @param unicode The unicode string to transform
+     * @param mode The transform to apply
+     * @return The transformed result, or the string given if nothing was transformed
+     * @see HomoglyphHelper#transform(String[], TransformMode)
+     */
+    public String transform(String unicode, TransformMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode cannot be null.");
+        }
+        return get(unicode, mode.ordinal());
+    }
+
+    /**
+     * Cached version of {@link HomoglyphHelper#toOrderedASCII(String)}
+     *
+     * @param unicode The unicode string to transform
+     * @return The transformed result, or the string given if nothing was transformed
+     */
+    public String toOrderedASCII(String unicode) { return get(unicode, TransformMode.ORDERED_ASCII.ordinal()); }
+
+    /**
+     * Cached version of {@link HomoglyphHelper#toAlphanumeric(String)}
+     *
+     * @param unicode The unicode string to transform
+     * @return The transformed result, or the string given if nothing was transformed
+     */
+    public String toAlphanumeric(String unicode) { return get(unicode, TransformMode.ALPHANUMERIC.ordinal()); }
+
+    /**
+     * Cached version of {@link HomoglyphHelper#toStandardCharset(String)}
+     *
+     * @param unicode The unicode string to transform
+     * @return The transformed result, or the string given if nothing was transformed
+     */
+    public String toStandardCharset(String unicode) { return get(unicode, TransformMode.STANDARD_CHARSET.ordinal()); }
+
+    /**
+     * Cached version of {@link HomoglyphHelper#toASCII(String)}
+     *
+     * @param unicode The unicode string to transform
+     * @return The transformed result, or the string given if nothing was transformed
+     */
+    public String toASCII(String unicode) { return get(unicode, TransformMode.ASCII.ordinal()); }
+
+    /**
+     * Cached version of {@link HomoglyphHelper#skeleton(CharSequence)}
+     *
+     * @param unicode The unicode string to transform
+     * @return The skeleton of the string given
+     */
+    public String skeleton(String unicode) { return get(unicode, SKELETON); }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     *
+     * @return The hit count
+     */
+    public long hitCount() { return hits.sum(); }
+
+    /**
+     * Returns the number of lookups that had to run the transform, including
+     * strings which were too long to be cached.
+     *
+     * @return The miss count
+     */
+    public long missCount() { return misses.sum(); }
+
+    /**
+     * Returns the number of entries pushed out to make room for newer ones.
+     *
+     * @return The eviction count
+     */
+    public long evictionCount() { return evictions.sum(); }
+
+    /**
+     * Returns the number of entries currently cached.
+     *
+     * @return The cache size
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes every entry from the cache. The statistics are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private String get(String unicode, int kind) {
+        if (unicode == null) {
+            throw new IllegalArgumentException("unicode cannot be null.");
+        }
+        if (unicode.length() > maxLength) {
+            misses.increment();
+            return transform(unicode, kind);
+        }
+
+        Segment segment = segments[(unicode.hashCode() * 0x9E3779B9 >>> 16) & segmentMask];
+        Entry entry = segment.entries[kind].get(unicode);
+        if (entry != null) {
+            // Only written when it changes, so hits on the same entry don't keep invalidating each other's caches
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            hits.increment();
+            return entry.result;
+        }
+
+        // Two threads may both miss and transform the same string, but they get the same result either way
+        misses.increment();
+        String result = transform(unicode, kind);
+        segment.put(unicode, kind, result);
+        return result;
+    }
+
+    private String transform(String unicode, int kind) { return TransformKernel.transform(maps[kind], unicode, kind == SKELETON ? ignorables : null).toString(); }
+
+    private static final class Entry {
+        private final String unicode;
+        private final int kind;
+        private final String result;
+        private volatile boolean referenced;
+
+        private Entry(String unicode, int kind, String result) {
+            this.unicode = unicode;
+            this.kind = kind;
+            this.result = result;
+        }
+    }
+
+    /**
+     * One segment's entries, in a map per transform for lock-free reads, and in the
+     * ring the CLOCK hand sweeps to evict. Writers lock the segment itself.
+     */
+    private final class Segment {
+        private final ConcurrentHashMap<String, Entry>[] entries;
+        private final Entry[] clock;
+        private int size = 0;
+        private int hand = 0;
+
+        @SuppressWarnings("unchecked")
+        private Segment(int capacity) {
+            entries = new ConcurrentHashMap[SKELETON + 1];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = new ConcurrentHashMap<>();
+            }
+            clock = new Entry[capacity];
+        }
+
+        private synchronized void put(String unicode, int kind, String result) {
+            Entry entry = new Entry(unicode, kind, result);
+            if (entries[kind].putIfAbsent(unicode, entry) != null) {
+                return;
+            }
+            if (size < clock.length) {
+                clock[size++] = entry;
+                return;
+            }
+
+            // Entries read since the hand last passed get another lap instead of being evicted
+            while (clock[hand].referenced) {
+                clock[hand].referenced = false;
+                hand = (hand + 1) % clock.length;
+            }
+            Entry evicted = clock[hand];
+            entries[evicted.kind].remove(evicted.unicode, evicted);
+            clock[hand] = entry;
+            hand = (hand + 1) % clock.length;
+            evictions.increment();
+        }
+
+        private synchronized int size() { return size; }
+
+        private synchronized void clear() {
+            for (ConcurrentHashMap<String, Entry> map : entries) {
+                map.clear();
+            }
+            Arrays.fill(clock, null);
+            size = 0;
+            hand = 0;
+        }
+    }
+}
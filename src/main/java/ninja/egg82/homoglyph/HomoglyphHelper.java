@@ -1,44 +1,120 @@
 package ninja.egg82.homoglyph;
 
-import it.unimi.dsi.fastutil.ints.*;
 import java.io.*;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-
+import java.util.concurrent.Executor;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Converts and compares strings given variance for homoglyphs.
+ *
+ * Helpers are immutable once created: every table is built up front and never
+ * changed afterwards, and every field is final, so a helper can be shared between
+ * any number of threads without synchronization. To pick up a changed homoglyph
+ * list, create a new helper, or let {@link HomoglyphService} do it.
+ */
 public class HomoglyphHelper {
-    public static HomoglyphHelper create() throws IOException { return create("char_codes.lst"); }
+    public static HomoglyphHelper create() throws IOException {
+        // The build precompiles char_codes.lst into char_codes.bin,
+        // but fall back to the list if we're running from plain sources
+        URL table = HomoglyphHelper.class.getClassLoader().getResource("char_codes.bin");
+        if (table != null) {
+            try (InputStream in = openResource(table)) {
+                return load(ByteBuffer.wrap(readFully(in)));
+            }
+        }
+        return create("char_codes.lst");
+    }
 
     public static HomoglyphHelper create(String resourceName) throws IOException { return create(new InputStreamReader(getResource(resourceName))); }
 
     public static HomoglyphHelper create(File file) throws IOException { return create(new FileReader(file)); }
 
-    public static HomoglyphHelper create(Reader reader) throws IOException {
-        List<IntSet> homoglyphs = new ArrayList<>();
-
-        try (BufferedReader r = new BufferedReader(reader)) {
-            String line;
-            while ((line = r.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.charAt(0) == '#') {
-                    // Don't want empty lines or comments
-                    continue;
-                }
-
-                IntSet set = new IntArraySet();
-                for (String code : line.split(",")) {
-                    try {
-                        set.add(Integer.parseInt(code.trim(), 16));
-                    } catch (NumberFormatException ignored) { }
-                }
-                homoglyphs.add(set);
-            }
+    /**
+     * Creates a helper from a file which is either a homoglyph list
+     * or a binary table produced by {@link HomoglyphTableGenerator}.
+     * Binary tables are copied straight into the lookup arrays, so the file is closed
+     * once this returns and can be replaced while the helper is still in use.
+     *
+     * @param path The file to load
+     * @return A new helper
+     * @throws IOException If the file could not be read
+     */
+    public static HomoglyphHelper create(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path cannot be null.");
         }
 
-        return new HomoglyphHelper(homoglyphs);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (HomoglyphTable.isTable(buffer)) {
+            return load(buffer);
+        }
+        return create(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
     }
 
+    public static HomoglyphHelper create(Reader reader) throws IOException { return new HomoglyphHelper(HomoglyphTable.compile(GlyphGroups.parse(reader))); }
+
+    /**
+     * Creates a helper from every source given, merged into one table.
+     * Groups from any source that share a character are joined into one,
+     * and removals apply to every source.
+     *
+     * @param sources The sources to merge
+     * @return A new helper
+     * @throws IOException If a source could not be read
+     * @see GlyphSource
+     */
+    public static HomoglyphHelper create(GlyphSource... sources) throws IOException {
+        if (sources == null) {
+            throw new IllegalArgumentException("sources cannot be null.");
+        }
+        return create(Arrays.asList(sources));
+    }
+
+    /**
+     * Creates a helper from every source given, merged into one table.
+     * This accepts a {@link java.util.ServiceLoader} of sources as-is.
+     *
+     * @param sources The sources to merge
+     * @return A new helper
+     * @throws IOException If a source could not be read
+     * @see #create(GlyphSource...)
+     */
+    public static HomoglyphHelper create(Iterable<? extends GlyphSource> sources) throws IOException {
+        if (sources == null) {
+            throw new IllegalArgumentException("sources cannot be null.");
+        }
+
+        GlyphMerger merger = new GlyphMerger();
+        for (GlyphSource source : sources) {
+            if (source == null) {
+                throw new IllegalArgumentException("sources cannot contain null.");
+            }
+            source.read(merger);
+        }
+        return new HomoglyphHelper(HomoglyphTable.compile(merger.build()));
+    }
+
+    /**
+     * Creates a helper from a binary table produced by {@link HomoglyphTableGenerator},
+     * starting at the buffer's current position. The buffer itself is not modified.
+     *
+     * @param buffer The buffer containing the table
+     * @return A new helper
+     */
+    public static HomoglyphHelper load(ByteBuffer buffer) { return new HomoglyphHelper(HomoglyphTable.read(buffer)); }
+
     private static InputStream getResource(String name) throws IOException {
         if (name == null || name.isEmpty()) {
             throw new IllegalArgumentException("name cannot be null or empty.");
@@ -48,131 +124,166 @@ public class HomoglyphHelper {
         if (url == null) {
             throw new IOException("url not found.");
         }
+        return openResource(url);
+    }
+
+    private static InputStream openResource(URL url) throws IOException {
         URLConnection conn = url.openConnection();
         conn.setUseCaches(false);
         return conn.getInputStream();
     }
 
-    private final Int2ObjectMap<Integer> orderedCache = new Int2ObjectOpenHashMap<>();
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private final CodePointMap orderedTransform;
+    private final CodePointMap alphanumericTransform;
+    private final CodePointMap standardTransform;
+    private final CodePointMap asciiTransform;
+    private final HomoglyphTable table;
+    // Null unless withListener() was used, so helpers without one only pay for the null check
+    private final HomoglyphListener listener;
+    // Null unless withIgnorables() was used
+    private final IgnorableSet ignorables;
+
+    private HomoglyphHelper(HomoglyphTable table) { this(table, null, null); }
+
+    private HomoglyphHelper(HomoglyphTable table, HomoglyphListener listener, IgnorableSet ignorables) {
+        this.orderedTransform = table.orderedTransform;
+        this.alphanumericTransform = table.alphanumericTransform;
+        this.standardTransform = table.standardTransform;
+        this.asciiTransform = table.asciiTransform;
+        this.table = table;
+        this.listener = listener;
+        this.ignorables = ignorables;
+    }
 
     /**
-     * Alphanumeric cache where the key is an int character and the value is an ASCII Integer character that is similar to the key
+     * Returns a helper which shares this one's tables, but reports every
+     * call it makes to the listener given. This helper is left as it is.
+     *
+     * @param listener The listener to report calls to, or null for none
+     * @return The new helper
+     * @see HomoglyphMetrics
      */
-    private final Int2ObjectMap<Integer> alphanumericCache = new Int2ObjectOpenHashMap<>();
+    public HomoglyphHelper withListener(HomoglyphListener listener) { return new HomoglyphHelper(table, listener, ignorables); }
+
     /**
-     * Standard keyboard cache where the key is an int character and the value is an ASCII Integer character that is similar to the key
+     * Returns a helper which shares this one's tables, but skips over the code
+     * points in the set given wherever it compares or searches: equals, startsWith,
+     * endsWith, indexOf, lastIndexOf, contains, distance, and the patterns and
+     * matchers it compiles. Ignored code points are stepped over where they are,
+     * and every index returned is still an index into the string given.
+     * Skeletons and hashes leave ignored code points out too, so they keep agreeing
+     * with equals, and so do equalsUTF8 and indexOfUTF8. The to* transforms,
+     * including the ones on UTF-8 bytes, are left as they are.
+     * This helper is left as it is.
+     *
+     * @param ignorables The code points to skip, or null for none
+     * @return The new helper
+     * @see IgnorableSet#defaults()
      */
-    private final Int2ObjectMap<Integer> standardCache = new Int2ObjectOpenHashMap<>();
+    public HomoglyphHelper withIgnorables(IgnorableSet ignorables) { return new HomoglyphHelper(table, listener, ignorables); }
+
     /**
-     * ASCII cache where the key is an int character and the value is an ASCII Integer character that is similar to the key
+     * Returns a helper which shares this one's homoglyph list, but also treats
+     * every character as similar to the other cases of itself, and whose transforms
+     * produce lower case, eg. "ＴＥＳＴ" is equal to "test" and converts to "test".
+     * Case is folded without regard to the locale, and folding is built into the
+     * lookup tables, so each character still takes a single lookup. The tables are
+     * built the first time this is called for a homoglyph list, then shared.
+     * This helper is left as it is.
+     *
+     * @return The new helper
      */
-    private final Int2ObjectMap<Integer> asciiCache = new Int2ObjectOpenHashMap<>();
+    public HomoglyphHelper caseInsensitive() { return new HomoglyphHelper(table.caseFolded(), listener, ignorables); }
+
     /**
-     * Homoglyph cache where the key is an int character and the value is a set of int characters that are similar (but not equal to) the key
+     * Returns the string given, but with unicode homoglyphs converted
+     * into their alphanumeric counterparts as per the provided list,
+     * in the order provided by that list.
+     * If there is no homoglyph for a given Unicode character, it will
+     * not be transformed.
+     *
+     * @param unicode The unicode string to alphanumeric-ify
+     * @return The transformed result, or the string given if nothing was transformed
      */
-    private final Int2ObjectMap<IntSet> homoglyphCache = new Int2ObjectOpenHashMap<>();
-
-    private HomoglyphHelper(List<IntSet> homoglyphs) {
-        if (homoglyphs == null) {
-            throw new IllegalArgumentException("homoglyphs cannot be null.");
-        }
-
-        for (IntSet glyphs : homoglyphs) {
-            if (glyphs.size() <= 1) {
-                continue;
-            }
+    public String toOrderedASCII(String unicode) { return toOrderedASCII((CharSequence) unicode).toString(); }
 
-            int main = glyphs.toIntArray()[0];
-            for (int c : glyphs) {
-                if (c == main) {
-                    continue;
-                }
-                orderedCache.putIfAbsent(c, Integer.valueOf(main));
-            }
-        }
+    /**
+     * Returns the sequence given, but with unicode homoglyphs converted
+     * into their alphanumeric counterparts as per the provided list,
+     * in the order provided by that list.
+     *
+     * @param unicode The unicode sequence to alphanumeric-ify
+     * @return The transformed result, or the sequence given if nothing was transformed
+     * @see #toOrderedASCII(String)
+     */
+    public CharSequence toOrderedASCII(CharSequence unicode) { return transform(HomoglyphListener.Operation.TO_ORDERED_ASCII, orderedTransform, null, checkUnicode(unicode)); }
 
-        // We want to cache specific ranges first, because
-        // that's what you're "expecting" when you convert down
-        // | looks like I, and both are ASCII, but we want I
-        cacheASCII(homoglyphs, alphanumericCache, 97, 122); // a-z
-        cacheASCII(homoglyphs, alphanumericCache, 65, 90); // A-Z
-        cacheASCII(homoglyphs, alphanumericCache, 48, 57); // 0-9
-
-        cacheASCII(homoglyphs, standardCache, 32, 47); // Space-/
-        cacheASCII(homoglyphs, standardCache, 58, 64); // :-@
-        cacheASCII(homoglyphs, standardCache, 91, 96); // [-`
-        cacheASCII(homoglyphs, standardCache, 123, 126); // {-~
-        cacheASCII(homoglyphs, standardCache, 97, 122); // a-z
-        cacheASCII(homoglyphs, standardCache, 65, 90); // A-Z
-        cacheASCII(homoglyphs, standardCache, 48, 57); // 0-9
-
-        cacheASCII(homoglyphs, asciiCache, 0, 31); // null-US
-        cacheASCII(homoglyphs, asciiCache, 127, 255); // del-end
-        cacheASCII(homoglyphs, asciiCache, 32, 47); // Space-/
-        cacheASCII(homoglyphs, asciiCache, 58, 64); // :-@
-        cacheASCII(homoglyphs, asciiCache, 91, 96); // [-`
-        cacheASCII(homoglyphs, asciiCache, 123, 126); // {-~
-        cacheASCII(homoglyphs, asciiCache, 97, 122); // a-z
-        cacheASCII(homoglyphs, asciiCache, 65, 90); // A-Z
-        cacheASCII(homoglyphs, asciiCache, 48, 57); // 0-9
-    }
-
-    private void cacheASCII(List<IntSet> homoglyphs, Int2ObjectMap<Integer> cache, int begin, int end) {
-        for (IntSet glyphs : homoglyphs) {
-            // Each IntSet is a bunch of random unicode/ASCII chars that look alike
-            // Try to find an ASCII char in each one
-            for (int c : glyphs) {
-                if (homoglyphCache.containsKey(c) && cache.containsKey(c)) {
-                    continue;
-                }
-
-                // Add char set to homoglyph cache (excluding the current char)
-                IntSet modifiedSet = new IntArraySet(glyphs);
-                modifiedSet.remove(c);
-                if (!homoglyphCache.containsKey(c)) {
-                    homoglyphCache.put(c, modifiedSet);
-                }
-
-                if (c >= begin && c <= end && !cache.containsKey(c)) {
-                    // ASCII char found
-                    for (int u : modifiedSet) {
-                        // Add all chars to ASCII cache that are NOT the current char
-                        cache.put(u, Integer.valueOf(c));
-                    }
-                }
-            }
+    /**
+     * Appends the sequence given to the builder, but with unicode homoglyphs converted
+     * into their alphanumeric counterparts as per the provided list,
+     * in the order provided by that list.
+     *
+     * @param unicode The unicode sequence to alphanumeric-ify
+     * @param out The builder to append the result to
+     * @return The builder given
+     * @see #toOrderedASCII(String)
+     */
+    public StringBuilder toOrderedASCII(CharSequence unicode, StringBuilder out) {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
         }
+        return append(HomoglyphListener.Operation.TO_ORDERED_ASCII, orderedTransform, unicode, out);
     }
 
     /**
-     * Returns the string given, but with unicode homoglyphs converted
+     * Appends the sequence given to the appendable, but with unicode homoglyphs converted
      * into their alphanumeric counterparts as per the provided list,
      * in the order provided by that list.
-     * If there is no homoglyph for a given Unicode character, it will
-     * not be transformed.
      *
-     * @param unicode The unicode string to alphanumeric-ify
-     * @return The transformed result
+     * @param unicode The unicode sequence to alphanumeric-ify
+     * @param out The appendable to append the result to
+     * @param <T> The type of appendable
+     * @return The appendable given
+     * @throws IOException If the appendable throws
+     * @see #toOrderedASCII(String)
      */
-    public String toOrderedASCII(String unicode) {
-        if (unicode == null) {
-            throw new IllegalArgumentException("unicode cannot be null.");
-        }
-        if (unicode.isEmpty()) {
-            return "";
+    public <T extends Appendable> T toOrderedASCII(CharSequence unicode, T out) throws IOException {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
         }
+        return append(HomoglyphListener.Operation.TO_ORDERED_ASCII, orderedTransform, unicode, out);
+    }
 
-        StringBuilder result = new StringBuilder();
-        IntList chars = toChars(unicode);
-        for (int c : chars) {
-            if (c >= 0 && c <= 255) {
-                result.append(Character.toChars(c));
-            } else {
-                Integer r = orderedCache.getOrDefault(c, Integer.valueOf(c));
-                result.append(Character.toChars(r));
-            }
+    /**
+     * Writes the sequence given into the array, but with unicode homoglyphs converted
+     * into their alphanumeric counterparts as per the provided list,
+     * in the order provided by that list.
+     * The result can be up to twice as long as the sequence given.
+     *
+     * @param unicode The unicode sequence to alphanumeric-ify
+     * @param out The array to write the result to
+     * @param offset The index in the array to start writing at
+     * @return The number of chars written
+     * @see #toOrderedASCII(String)
+     */
+    public int toOrderedASCII(CharSequence unicode, char[] out, int offset) {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
         }
-        return result.toString();
+        return write(HomoglyphListener.Operation.TO_ORDERED_ASCII, orderedTransform, unicode, out, offset);
     }
 
     /**
@@ -183,33 +294,77 @@ public class HomoglyphHelper {
      * not be transformed.
      *
      * @param unicode The unicode string to alphanumeric-ify
-     * @return The transformed result
+     * @return The transformed result, or the string given if nothing was transformed
      */
-    public String toAlphanumeric(String unicode) {
-        if (unicode == null) {
-            throw new IllegalArgumentException("unicode cannot be null.");
+    public String toAlphanumeric(String unicode) { return toAlphanumeric((CharSequence) unicode).toString(); }
+
+    /**
+     * Returns the sequence given, but with unicode homoglyphs converted
+     * into their alphanumeric counterparts, and any remaining homoglyphs
+     * turned into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to alphanumeric-ify
+     * @return The transformed result, or the sequence given if nothing was transformed
+     * @see #toAlphanumeric(String)
+     */
+    public CharSequence toAlphanumeric(CharSequence unicode) { return transform(HomoglyphListener.Operation.TO_ALPHANUMERIC, alphanumericTransform, null, checkUnicode(unicode)); }
+
+    /**
+     * Appends the sequence given to the builder, but with unicode homoglyphs converted
+     * into their alphanumeric counterparts, and any remaining homoglyphs
+     * turned into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to alphanumeric-ify
+     * @param out The builder to append the result to
+     * @return The builder given
+     * @see #toAlphanumeric(String)
+     */
+    public StringBuilder toAlphanumeric(CharSequence unicode, StringBuilder out) {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
         }
-        if (unicode.isEmpty()) {
-            return "";
-        }
-
-        StringBuilder result = new StringBuilder();
-        IntList chars = toChars(unicode);
-        for (int c : chars) {
-            if ((c >= 48 && c <= 57) || (c >= 65 && c <= 90) || (c >= 97 && c <= 125)) {
-                result.append(Character.toChars(c));
-            } else {
-                Integer r = alphanumericCache.getOrDefault(c, Integer.valueOf(c));
-                if (r < 0 || r > 255) {
-                    r = standardCache.getOrDefault(c, Integer.valueOf(c));
-                    if (r < 0 || r > 255) {
-                        r = asciiCache.getOrDefault(c, Integer.valueOf(c));
-                    }
-                }
-                result.append(Character.toChars(r));
-            }
+        return append(HomoglyphListener.Operation.TO_ALPHANUMERIC, alphanumericTransform, unicode, out);
+    }
+
+    /**
+     * Appends the sequence given to the appendable, but with unicode homoglyphs converted
+     * into their alphanumeric counterparts, and any remaining homoglyphs
+     * turned into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to alphanumeric-ify
+     * @param out The appendable to append the result to
+     * @param <T> The type of appendable
+     * @return The appendable given
+     * @throws IOException If the appendable throws
+     * @see #toAlphanumeric(String)
+     */
+    public <T extends Appendable> T toAlphanumeric(CharSequence unicode, T out) throws IOException {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
+        }
+        return append(HomoglyphListener.Operation.TO_ALPHANUMERIC, alphanumericTransform, unicode, out);
+    }
+
+    /**
+     * Writes the sequence given into the array, but with unicode homoglyphs converted
+     * into their alphanumeric counterparts, and any remaining homoglyphs
+     * turned into their ASCII counterparts.
+     * The result is never longer than the sequence given.
+     *
+     * @param unicode The unicode sequence to alphanumeric-ify
+     * @param out The array to write the result to
+     * @param offset The index in the array to start writing at
+     * @return The number of chars written
+     * @see #toAlphanumeric(String)
+     */
+    public int toAlphanumeric(CharSequence unicode, char[] out, int offset) {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
         }
-        return result.toString();
+        return write(HomoglyphListener.Operation.TO_ALPHANUMERIC, alphanumericTransform, unicode, out, offset);
     }
 
     /**
@@ -220,30 +375,119 @@ public class HomoglyphHelper {
      * not be transformed.
      *
      * @param unicode The unicode string to standard-ify
-     * @return The transformed result
+     * @return The transformed result, or the string given if nothing was transformed
      */
-    public String toStandardCharset(String unicode) {
-        if (unicode == null) {
-            throw new IllegalArgumentException("unicode cannot be null.");
+    public String toStandardCharset(String unicode) { return toStandardCharset((CharSequence) unicode).toString(); }
+
+    /**
+     * Returns the sequence given, but with unicode homoglyphs converted
+     * into their standard character set counterparts, and any remaining homoglyphs
+     * turned into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to standard-ify
+     * @return The transformed result, or the sequence given if nothing was transformed
+     * @see #toStandardCharset(String)
+     */
+    public CharSequence toStandardCharset(CharSequence unicode) { return transform(HomoglyphListener.Operation.TO_STANDARD_CHARSET, standardTransform, null, checkUnicode(unicode)); }
+
+    /**
+     * Appends the sequence given to the builder, but with unicode homoglyphs converted
+     * into their standard character set counterparts, and any remaining homoglyphs
+     * turned into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to standard-ify
+     * @param out The builder to append the result to
+     * @return The builder given
+     * @see #toStandardCharset(String)
+     */
+    public StringBuilder toStandardCharset(CharSequence unicode, StringBuilder out) {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
         }
-        if (unicode.isEmpty()) {
-            return "";
-        }
-
-        StringBuilder result = new StringBuilder();
-        IntList chars = toChars(unicode);
-        for (int c : chars) {
-            if (c >= 32 && c <= 126) {
-                result.append(Character.toChars(c));
-            } else {
-                Integer r = standardCache.getOrDefault(c, Integer.valueOf(c));
-                if (r < 0 || r > 255) {
-                    r = asciiCache.getOrDefault(c, Integer.valueOf(c));
-                }
-                result.append(Character.toChars(r));
-            }
+        return append(HomoglyphListener.Operation.TO_STANDARD_CHARSET, standardTransform, unicode, out);
+    }
+
+    /**
+     * Appends the sequence given to the appendable, but with unicode homoglyphs converted
+     * into their standard character set counterparts, and any remaining homoglyphs
+     * turned into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to standard-ify
+     * @param out The appendable to append the result to
+     * @param <T> The type of appendable
+     * @return The appendable given
+     * @throws IOException If the appendable throws
+     * @see #toStandardCharset(String)
+     */
+    public <T extends Appendable> T toStandardCharset(CharSequence unicode, T out) throws IOException {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
+        }
+        return append(HomoglyphListener.Operation.TO_STANDARD_CHARSET, standardTransform, unicode, out);
+    }
+
+    /**
+     * Writes the sequence given into the array, but with unicode homoglyphs converted
+     * into their standard character set counterparts, and any remaining homoglyphs
+     * turned into their ASCII counterparts.
+     * The result is never longer than the sequence given.
+     *
+     * @param unicode The unicode sequence to standard-ify
+     * @param out The array to write the result to
+     * @param offset The index in the array to start writing at
+     * @return The number of chars written
+     * @see #toStandardCharset(String)
+     */
+    public int toStandardCharset(CharSequence unicode, char[] out, int offset) {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
         }
-        return result.toString();
+        return write(HomoglyphListener.Operation.TO_STANDARD_CHARSET, standardTransform, unicode, out, offset);
+    }
+
+    /**
+     * Transforms the remaining UTF-8 bytes of src into dst, but with unicode homoglyphs
+     * converted into their standard charset counterparts.
+     * Both buffers' positions are advanced past what was read and written. If dst fills up,
+     * the transform stops at a code point boundary and src's position marks where to carry on from.
+     * Malformed bytes are copied as-is.
+     *
+     * @param src The UTF-8 bytes to normalize
+     * @param dst The buffer to write the UTF-8 result to
+     * @return The number of bytes written
+     * @see #toStandardCharset(String)
+     */
+    public int toStandardCharset(ByteBuffer src, ByteBuffer dst) {
+        checkBuffers(src, dst);
+        return transformUTF8(HomoglyphListener.Operation.TO_STANDARD_CHARSET, standardTransform, src, dst);
+    }
+
+    /**
+     * Writes the UTF-8 bytes given into the array, but with unicode homoglyphs
+     * converted into their standard charset counterparts.
+     * Malformed bytes are copied as-is.
+     *
+     * @param src The array holding the UTF-8 bytes to normalize
+     * @param offset The index of the first byte to normalize
+     * @param length The number of bytes to normalize
+     * @param dst The array to write the UTF-8 result to
+     * @param dstOffset The index in the array to start writing at
+     * @return The number of bytes written
+     * @throws IndexOutOfBoundsException If either range is out of bounds, or the result doesn't fit
+     * @see #toStandardCharset(String)
+     */
+    public int toStandardCharset(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        checkArrays(src, dst);
+        ByteBuffer in = ByteBuffer.wrap(src, offset, length);
+        ByteBuffer out = ByteBuffer.wrap(dst, dstOffset, dst.length - dstOffset);
+        int written = transformUTF8(HomoglyphListener.Operation.TO_STANDARD_CHARSET, standardTransform, in, out);
+        if (in.hasRemaining()) {
+            throw new IndexOutOfBoundsException("dst is too small.");
+        }
+        return written;
     }
 
     /**
@@ -253,27 +497,395 @@ public class HomoglyphHelper {
      * not be transformed.
      *
      * @param unicode The unicode string to ASCII-ify
-     * @return The transformed result
+     * @return The transformed result, or the string given if nothing was transformed
+     */
+    public String toASCII(String unicode) { return toASCII((CharSequence) unicode).toString(); }
+
+    /**
+     * Returns the sequence given, but with unicode homoglyphs converted
+     * into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to ASCII-ify
+     * @return The transformed result, or the sequence given if nothing was transformed
+     * @see #toASCII(String)
+     */
+    public CharSequence toASCII(CharSequence unicode) { return transform(HomoglyphListener.Operation.TO_ASCII, asciiTransform, null, checkUnicode(unicode)); }
+
+    /**
+     * Appends the sequence given to the builder, but with unicode homoglyphs converted
+     * into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to ASCII-ify
+     * @param out The builder to append the result to
+     * @return The builder given
+     * @see #toASCII(String)
+     */
+    public StringBuilder toASCII(CharSequence unicode, StringBuilder out) {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
+        }
+        return append(HomoglyphListener.Operation.TO_ASCII, asciiTransform, unicode, out);
+    }
+
+    /**
+     * Appends the sequence given to the appendable, but with unicode homoglyphs converted
+     * into their ASCII counterparts.
+     *
+     * @param unicode The unicode sequence to ASCII-ify
+     * @param out The appendable to append the result to
+     * @param <T> The type of appendable
+     * @return The appendable given
+     * @throws IOException If the appendable throws
+     * @see #toASCII(String)
+     */
+    public <T extends Appendable> T toASCII(CharSequence unicode, T out) throws IOException {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
+        }
+        return append(HomoglyphListener.Operation.TO_ASCII, asciiTransform, unicode, out);
+    }
+
+    /**
+     * Writes the sequence given into the array, but with unicode homoglyphs converted
+     * into their ASCII counterparts.
+     * The result is never longer than the sequence given.
+     *
+     * @param unicode The unicode sequence to ASCII-ify
+     * @param out The array to write the result to
+     * @param offset The index in the array to start writing at
+     * @return The number of chars written
+     * @see #toASCII(String)
      */
-    public String toASCII(String unicode) {
+    public int toASCII(CharSequence unicode, char[] out, int offset) {
+        checkUnicode(unicode);
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
+        }
+        return write(HomoglyphListener.Operation.TO_ASCII, asciiTransform, unicode, out, offset);
+    }
+
+    /**
+     * Transforms the remaining UTF-8 bytes of src into dst, but with unicode homoglyphs
+     * converted into their ASCII counterparts.
+     * Both buffers' positions are advanced past what was read and written. If dst fills up,
+     * the transform stops at a code point boundary and src's position marks where to carry on from.
+     * Malformed bytes are copied as-is.
+     *
+     * @param src The UTF-8 bytes to ASCII-ify
+     * @param dst The buffer to write the UTF-8 result to
+     * @return The number of bytes written
+     * @see #toASCII(String)
+     */
+    public int toASCII(ByteBuffer src, ByteBuffer dst) {
+        checkBuffers(src, dst);
+        return transformUTF8(HomoglyphListener.Operation.TO_ASCII, asciiTransform, src, dst);
+    }
+
+    /**
+     * Writes the UTF-8 bytes given into the array, but with unicode homoglyphs
+     * converted into their ASCII counterparts.
+     * Malformed bytes are copied as-is.
+     *
+     * @param src The array holding the UTF-8 bytes to ASCII-ify
+     * @param offset The index of the first byte to ASCII-ify
+     * @param length The number of bytes to ASCII-ify
+     * @param dst The array to write the UTF-8 result to
+     * @param dstOffset The index in the array to start writing at
+     * @return The number of bytes written
+     * @throws IndexOutOfBoundsException If either range is out of bounds, or the result doesn't fit
+     * @see #toASCII(String)
+     */
+    public int toASCII(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        checkArrays(src, dst);
+        ByteBuffer in = ByteBuffer.wrap(src, offset, length);
+        ByteBuffer out = ByteBuffer.wrap(dst, dstOffset, dst.length - dstOffset);
+        int written = transformUTF8(HomoglyphListener.Operation.TO_ASCII, asciiTransform, in, out);
+        if (in.hasRemaining()) {
+            throw new IndexOutOfBoundsException("dst is too small.");
+        }
+        return written;
+    }
+
+    /**
+     * Returns a reader which converts unicode homoglyphs from the reader given
+     * as they're read, so large inputs never have to be held in memory at once.
+     * Surrogate pairs are converted correctly even when the underlying reader
+     * splits them between reads.
+     *
+     * @param in The reader to read unicode from
+     * @param mode The conversion to apply
+     * @return The converting reader
+     */
+    public Reader reader(Reader in, TransformMode mode) {
+        if (in == null) {
+            throw new IllegalArgumentException("in cannot be null.");
+        }
+        return new HomoglyphReader(in, transform(mode));
+    }
+
+    /**
+     * Returns a writer which converts unicode homoglyphs before passing
+     * them to the writer given.
+     * A high surrogate at the end of one write is held back until the
+     * next, so the writer should be closed once everything's written.
+     *
+     * @param out The writer to write the result to
+     * @param mode The conversion to apply
+     * @return The converting writer
+     */
+    public Writer writer(Writer out, TransformMode mode) {
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null.");
+        }
+        return new HomoglyphWriter(out, transform(mode));
+    }
+
+    /**
+     * Returns a function which converts a single code point,
+     * for use with streams such as {@link String#codePoints()}.
+     * Code points without a homoglyph are returned as-is.
+     *
+     * @param mode The conversion to apply
+     * @return The converting function
+     */
+    public IntUnaryOperator codePointMapper(TransformMode mode) {
+        CodePointMap transform = transform(mode);
+        return c -> transform.getOrDefault(c, c);
+    }
+
+    /**
+     * Converts every string in the list, the same way the matching
+     * single-string method does.
+     *
+     * @param unicode The strings to convert
+     * @param mode The conversion to apply
+     * @return A fixed-size list of the results, in the same order
+     */
+    public List<String> transform(List<String> unicode, TransformMode mode) { return transform(unicode, mode, null); }
+
+    /**
+     * Converts every string in the list, the same way the matching
+     * single-string method does, splitting large lists into chunks
+     * which run on the executor given. The calling thread works on
+     * the last chunk and waits for the rest, so the results are the
+     * same as the sequential version no matter how they're scheduled.
+     * {@link java.util.concurrent.ForkJoinPool#commonPool()} is a good default.
+     *
+     * @param unicode The strings to convert
+     * @param mode The conversion to apply
+     * @param executor The executor to run chunks on, or null to run them all on the calling thread
+     * @return A fixed-size list of the results, in the same order
+     */
+    public List<String> transform(List<String> unicode, TransformMode mode, Executor executor) {
+        if (unicode == null) {
+            throw new IllegalArgumentException("unicode cannot be null.");
+        }
+        return Arrays.asList(transform(unicode.toArray(new String[0]), mode, executor));
+    }
+
+    /**
+     * Converts every string in the array, the same way the matching
+     * single-string method does.
+     *
+     * @param unicode The strings to convert
+     * @param mode The conversion to apply
+     * @return A new array of the results, in the same order
+     */
+    public String[] transform(String[] unicode, TransformMode mode) { return transform(unicode, mode, null); }
+
+    /**
+     * Converts every string in the array, the same way the matching
+     * single-string method does, splitting large arrays into chunks
+     * which run on the executor given.
+     *
+     * @param unicode The strings to convert
+     * @param mode The conversion to apply
+     * @param executor The executor to run chunks on, or null to run them all on the calling thread
+     * @return A new array of the results, in the same order
+     * @see #transform(List, TransformMode, Executor)
+     */
+    public String[] transform(String[] unicode, TransformMode mode, Executor executor) {
         if (unicode == null) {
             throw new IllegalArgumentException("unicode cannot be null.");
         }
-        if (unicode.isEmpty()) {
-            return "";
+        CodePointMap transform = transform(mode);
+        for (String s : unicode) {
+            checkUnicode(s);
         }
+        return BatchKernel.transform(transform, unicode, executor, recorders(operation(mode)));
+    }
 
-        StringBuilder result = new StringBuilder();
-        IntList chars = toChars(unicode);
-        for (int c : chars) {
-            if (c >= 0 && c <= 255) {
-                result.append(Character.toChars(c));
-            } else {
-                Integer r = asciiCache.getOrDefault(c, Integer.valueOf(c));
-                result.append(Character.toChars(r));
-            }
+    /**
+     * Converts every string in the list with {@link #toOrderedASCII(String)}.
+     *
+     * @param unicode The strings to convert
+     * @return A fixed-size list of the results, in the same order
+     */
+    public List<String> toOrderedASCII(List<String> unicode) { return transform(unicode, TransformMode.ORDERED_ASCII); }
+
+    /**
+     * Converts every string in the array with {@link #toOrderedASCII(String)}.
+     *
+     * @param unicode The strings to convert
+     * @return A new array of the results, in the same order
+     */
+    public String[] toOrderedASCII(String[] unicode) { return transform(unicode, TransformMode.ORDERED_ASCII); }
+
+    /**
+     * Converts every string in the list with {@link #toAlphanumeric(String)}.
+     *
+     * @param unicode The strings to convert
+     * @return A fixed-size list of the results, in the same order
+     */
+    public List<String> toAlphanumeric(List<String> unicode) { return transform(unicode, TransformMode.ALPHANUMERIC); }
+
+    /**
+     * Converts every string in the array with {@link #toAlphanumeric(String)}.
+     *
+     * @param unicode The strings to convert
+     * @return A new array of the results, in the same order
+     */
+    public String[] toAlphanumeric(String[] unicode) { return transform(unicode, TransformMode.ALPHANUMERIC); }
+
+    /**
+     * Converts every string in the list with {@link #toStandardCharset(String)}.
+     *
+     * @param unicode The strings to convert
+     * @return A fixed-size list of the results, in the same order
+     */
+    public List<String> toStandardCharset(List<String> unicode) { return transform(unicode, TransformMode.STANDARD_CHARSET); }
+
+    /**
+     * Converts every string in the array with {@link #toStandardCharset(String)}.
+     *
+     * @param unicode The strings to convert
+     * @return A new array of the results, in the same order
+     */
+    public String[] toStandardCharset(String[] unicode) { return transform(unicode, TransformMode.STANDARD_CHARSET); }
+
+    /**
+     * Converts every string in the list with {@link #toASCII(String)}.
+     *
+     * @param unicode The strings to convert
+     * @return A fixed-size list of the results, in the same order
+     */
+    public List<String> toASCII(List<String> unicode) { return transform(unicode, TransformMode.ASCII); }
+
+    /**
+     * Converts every string in the array with {@link #toASCII(String)}.
+     *
+     * @param unicode The strings to convert
+     * @return A new array of the results, in the same order
+     */
+    public String[] toASCII(String[] unicode) { return transform(unicode, TransformMode.ASCII); }
+
+    /**
+     * Compiles the needle given so it can be searched for in any
+     * number of haystacks, given variance for homoglyphs.
+     * Searching with the result takes time linear in the length of the
+     * haystack, no matter what the haystack or the needle contains.
+     *
+     * @param needle The string to search for
+     * @return The compiled needle
+     * @see HomoglyphPattern
+     */
+    public HomoglyphPattern compile(String needle) {
+        if (needle == null) {
+            throw new IllegalArgumentException("needle cannot be null.");
         }
-        return result.toString();
+        return new HomoglyphPattern(table, needle, ignorables);
+    }
+
+    /**
+     * Compiles a matcher which searches text for all of the patterns
+     * given at once, given variance for homoglyphs.
+     *
+     * @param patterns The patterns to search for
+     * @return The compiled matcher
+     * @see HomoglyphMatcher
+     */
+    public HomoglyphMatcher matcher(Collection<? extends CharSequence> patterns) {
+        if (patterns == null) {
+            throw new IllegalArgumentException("patterns cannot be null.");
+        }
+        return new HomoglyphMatcher(table, patterns, ignorables);
+    }
+
+    /**
+     * Creates an empty index which can be searched for strings that are
+     * equal to, start with, or contain a query, given variance for homoglyphs.
+     *
+     * @return The new index
+     * @see HomoglyphIndex
+     */
+    public HomoglyphIndex newIndex() { return new HomoglyphIndex(this, table, ignorables); }
+
+    /**
+     * Creates an empty cache of transform results, which holds at most
+     * the number of entries given and skips strings longer than the
+     * length given. The cache returns the same results as this helper,
+     * so skeletons leave out this helper's ignorables.
+     *
+     * @param maxSize The most entries the cache can hold
+     * @param maxLength The longest string, in chars, the cache will hold
+     * @return The new cache
+     * @see HomoglyphCache
+     */
+    public HomoglyphCache newCache(int maxSize, int maxLength) { return new HomoglyphCache(table, ignorables, maxSize, maxLength); }
+
+    CodePointMap transform(TransformMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode cannot be null.");
+        }
+        return table.transform(mode);
+    }
+
+    /**
+     * Returns the skeleton of the sequence given: every character that has
+     * homoglyphs replaced with one fixed member of its homoglyph class.
+     * Two strings that {@link #equals(String, String)} considers equal always
+     * have the same skeleton, so skeletons can be used as keys in a normal
+     * hash index or database column to find homoglyph collisions.
+     * For the default homoglyph list the reverse is also true. Custom lists that
+     * put a character in more than one list join those lists into one class, so
+     * some strings with the same skeleton might not be equal.
+     *
+     * @param unicode The unicode sequence to get the skeleton of
+     * @return The skeleton
+     */
+    public String skeleton(CharSequence unicode) { return transform(HomoglyphListener.Operation.SKELETON, table.skeletonTransform, ignorables, checkUnicode(unicode)).toString(); }
+
+    /**
+     * Returns a 64-bit hash of the skeleton of the sequence given,
+     * without building the skeleton.
+     * Two strings that {@link #equals(String, String)} considers equal always
+     * have the same hash, and the hash of a sequence is the same as the
+     * hash of its skeleton.
+     *
+     * @param unicode The unicode sequence to hash
+     * @return The hash of the sequence's skeleton
+     * @see #skeleton(CharSequence)
+     */
+    public long hash64(CharSequence unicode) { return TransformKernel.hash64(table.skeletonTransform, checkUnicode(unicode), ignorables); }
+
+    /**
+     * Returns what a single pass over the sequence given finds out about it:
+     * the scripts it mixes, how many of its code points are confusable,
+     * its {@link #hash64(CharSequence)} and whether {@link #toASCII(String)}
+     * would change it. Use this to decide whether a name looks like a spoof,
+     * rather than calling each of those separately.
+     *
+     * @param unicode The unicode sequence to analyze
+     * @return The analysis
+     */
+    public HomoglyphAnalysis analyze(CharSequence unicode) {
+        checkUnicode(unicode);
+        CallRecorder recorder = recorder(HomoglyphListener.Operation.ANALYZE);
+        HomoglyphAnalysis result = HomoglyphAnalysis.analyze(table, ignorables, unicode, recorder);
+        finish(recorder, unicode.length());
+        return result;
     }
 
     /**
@@ -285,6 +897,13 @@ public class HomoglyphHelper {
      * @return Whether or not the two strings are equal
      */
     public boolean equals(String one, String two) {
+        CallRecorder recorder = recorder(HomoglyphListener.Operation.EQUALS);
+        boolean result = compare(one, two, recorder);
+        finish(recorder, one != null ? one.length() : 0);
+        return result;
+    }
+
+    private boolean compare(String one, String two, CallRecorder recorder) {
         if (one == null && two == null) {
             return true;
         }
@@ -295,28 +914,68 @@ public class HomoglyphHelper {
             return true;
         }
 
-        IntList oneChars = toChars(one);
-        IntList twoChars = toChars(two);
-
-        if (oneChars.size() != twoChars.size()) {
-            return false;
-        }
-
-        for (int i = 0; i < oneChars.size(); i++) {
-            int o = oneChars.getInt(i);
-            int t = twoChars.getInt(i);
-
-            if (o == t) {
+        // Without ignored code points the loop below is as quick as a run compare would be
+        boolean bulk = ignorables != null && !ignorables.ignoresASCII();
+        int i = skip(one, 0, recorder);
+        int j = skip(two, 0, null);
+        while (i < one.length() && j < two.length()) {
+            int same = bulk ? TransformKernel.sameASCII(one, i, two, j, Math.min(one.length() - i, two.length() - j)) : 0;
+            if (same > 0) {
+                i = skip(one, i + same, recorder);
+                j = skip(two, j + same, null);
                 continue;
             }
 
-            IntSet similar = homoglyphCache.get(o);
-            if (similar == null || !similar.contains(t)) {
+            int o = one.codePointAt(i);
+            int t = two.codePointAt(j);
+            if (recorder != null) {
+                recorder.read(o);
+            }
+
+            if (!table.similar(o, t)) {
                 return false;
             }
+
+            i = skip(one, i + Character.charCount(o), recorder);
+            j = skip(two, j + Character.charCount(t), null);
         }
 
-        return true;
+        return i == one.length() && j == two.length();
+    }
+
+    /**
+     * Returns true if the remaining UTF-8 bytes of one and two are equal,
+     * given variance for homoglyphs.
+     * Code points this helper ignores are skipped, the same as {@link #equals(String, String)} does.
+     * Neither buffer's position is changed.
+     *
+     * @param one The first buffer
+     * @param two The second buffer
+     * @return Whether or not the two buffers are equal
+     */
+    public boolean equalsUTF8(ByteBuffer one, ByteBuffer two) {
+        CallRecorder recorder = recorder(HomoglyphListener.Operation.EQUALS);
+        boolean result = one == null || two == null ? one == two : Utf8Kernel.equals(table, ignorables, one, one.position(), one.limit(), two, two.position(), two.limit(), recorder);
+        finish(recorder, one != null ? one.remaining() : 0);
+        return result;
+    }
+
+    /**
+     * Returns true if the UTF-8 byte ranges one and two are equal,
+     * given variance for homoglyphs.
+     * Code points this helper ignores are skipped, the same as {@link #equals(String, String)} does.
+     *
+     * @param one The first array
+     * @param oneOffset The index of the first byte in the first array
+     * @param oneLength The number of bytes in the first array
+     * @param two The second array
+     * @param twoOffset The index of the first byte in the second array
+     * @param twoLength The number of bytes in the second array
+     * @return Whether or not the two ranges are equal
+     * @throws IndexOutOfBoundsException If either range is out of bounds
+     */
+    public boolean equalsUTF8(byte[] one, int oneOffset, int oneLength, byte[] two, int twoOffset, int twoLength) {
+        return equalsUTF8(one != null ? ByteBuffer.wrap(one, oneOffset, oneLength) : null, two != null ? ByteBuffer.wrap(two, twoOffset, twoLength) : null);
     }
 
     /**
@@ -328,35 +987,47 @@ public class HomoglyphHelper {
      * @return Whether or not the haystack starts with the prefix
      */
     public boolean startsWith(String haystack, String prefix) {
+        CallRecorder recorder = recorder(HomoglyphListener.Operation.STARTS_WITH);
+        boolean result = startsWith(haystack, prefix, recorder);
+        finish(recorder, haystack != null ? haystack.length() : 0);
+        return result;
+    }
+
+    private boolean startsWith(String haystack, String prefix, CallRecorder recorder) {
         if (haystack == null || prefix == null) {
             return false;
         }
         if (prefix.isEmpty()) {
             return true;
         }
-        if (haystack.isEmpty()) {
-            return false;
-        }
-
-        IntList haystackChars = toChars(haystack);
-        IntList prefixChars = toChars(prefix);
-
-        if (prefixChars.size() > haystackChars.size()) {
-            return false;
-        }
 
-        for (int i = 0; i < prefixChars.size(); i++) {
-            int h = haystackChars.getInt(i);
-            int p = prefixChars.getInt(i);
+        boolean bulk = ignorables != null && !ignorables.ignoresASCII();
+        int i = skip(haystack, 0, recorder);
+        int j = skip(prefix, 0, null);
+        while (j < prefix.length()) {
+            if (i >= haystack.length()) {
+                return false;
+            }
 
-            if (h == p) {
+            int same = bulk ? TransformKernel.sameASCII(haystack, i, prefix, j, Math.min(haystack.length() - i, prefix.length() - j)) : 0;
+            if (same > 0) {
+                i = skip(haystack, i + same, recorder);
+                j = skip(prefix, j + same, null);
                 continue;
             }
 
-            IntSet similar = homoglyphCache.get(h);
-            if (similar == null || !similar.contains(p)) {
+            int h = haystack.codePointAt(i);
+            int p = prefix.codePointAt(j);
+            if (recorder != null) {
+                recorder.read(h);
+            }
+
+            if (!table.similar(h, p)) {
                 return false;
             }
+
+            i = skip(haystack, i + Character.charCount(h), recorder);
+            j = skip(prefix, j + Character.charCount(p), null);
         }
 
         return true;
@@ -371,35 +1042,47 @@ public class HomoglyphHelper {
      * @return Whether or not the haystack ends with the suffix
      */
     public boolean endsWith(String haystack, String suffix) {
+        CallRecorder recorder = recorder(HomoglyphListener.Operation.ENDS_WITH);
+        boolean result = endsWith(haystack, suffix, recorder);
+        finish(recorder, haystack != null ? haystack.length() : 0);
+        return result;
+    }
+
+    private boolean endsWith(String haystack, String suffix, CallRecorder recorder) {
         if (haystack == null || suffix == null) {
             return false;
         }
         if (suffix.isEmpty()) {
             return true;
         }
-        if (haystack.isEmpty()) {
-            return false;
-        }
-
-        IntList haystackChars = toChars(haystack);
-        IntList suffixChars = toChars(suffix);
-
-        if (suffixChars.size() > haystackChars.size()) {
-            return false;
-        }
 
-        for (int i = suffixChars.size() - 1; i >= 0; i--) {
-            int h = haystackChars.getInt(haystackChars.size() - (suffixChars.size() - i));
-            int s = suffixChars.getInt(i);
+        boolean bulk = ignorables != null && !ignorables.ignoresASCII();
+        int i = skipBack(haystack, haystack.length(), recorder);
+        int j = skipBack(suffix, suffix.length(), null);
+        while (j > 0) {
+            if (i <= 0) {
+                return false;
+            }
 
-            if (h == s) {
+            int same = bulk ? TransformKernel.sameASCIIBefore(haystack, i, suffix, j, Math.min(i, j)) : 0;
+            if (same > 0) {
+                i = skipBack(haystack, i - same, recorder);
+                j = skipBack(suffix, j - same, null);
                 continue;
             }
 
-            IntSet similar = homoglyphCache.get(h);
-            if (similar == null || !similar.contains(s)) {
+            int h = haystack.codePointBefore(i);
+            int s = suffix.codePointBefore(j);
+            if (recorder != null) {
+                recorder.read(h);
+            }
+
+            if (!table.similar(h, s)) {
                 return false;
             }
+
+            i = skipBack(haystack, i - Character.charCount(h), recorder);
+            j = skipBack(suffix, j - Character.charCount(s), null);
         }
 
         return true;
@@ -429,63 +1112,51 @@ public class HomoglyphHelper {
         if (haystack == null || needle == null) {
             return -1;
         }
-        if (needle.isEmpty()) {
-            return fromIndex;
-        }
-        if (haystack.isEmpty()) {
-            return -1;
-        }
-
-        IntList haystackChars = toChars(haystack);
-        IntList needleChars = toChars(needle);
+        CallRecorder recorder = recorder(HomoglyphListener.Operation.INDEX_OF);
+        int result = compile(needle).indexOf(haystack, fromIndex, recorder);
+        finish(recorder, haystack.length());
+        return result;
+    }
 
-        if (fromIndex < 0) {
-            fromIndex += haystackChars.size() - 1;
-        }
-        if (fromIndex < 0) {
-            return -1;
-        }
-        if (needleChars.size() + fromIndex > haystackChars.size()) {
+    /**
+     * Returns the index of the first occurrence of the needle's remaining
+     * UTF-8 bytes in the haystack's remaining UTF-8 bytes, given variance for homoglyphs.
+     * Code points this helper ignores are skipped, the same as {@link #indexOf(String, String)} does.
+     * Neither buffer's position is changed.
+     *
+     * @param haystack The buffer to search in
+     * @param needle The buffer to search for
+     * @return The index in the haystack buffer of the first byte of the match, or -1 if none was found
+     */
+    public int indexOfUTF8(ByteBuffer haystack, ByteBuffer needle) {
+        if (haystack == null || needle == null) {
             return -1;
         }
+        CallRecorder recorder = recorder(HomoglyphListener.Operation.INDEX_OF);
+        int result = needle.hasRemaining() ? Utf8Kernel.indexOf(table, ignorables, haystack, haystack.position(), haystack.limit(), needle, needle.position(), needle.limit(), recorder) : haystack.position();
+        finish(recorder, haystack.remaining());
+        return result;
+    }
 
-        // currentIndex holds the index of the current position for the needle.
-        // When we search for a substring from beginning to end, we're always
-        // moving the index through the haystack one character at a time, no
-        // matter how far along we are on the needle. We can exploit this and
-        // avoid iterating over two lists twice.
-        //
-        // Basically, if we find a match we increment the needle's index (currentIndex).
-        // If we don't find a match, we reset the needle's index (currentIndex).
-        // If the needle's index (currentIndex) is at the end of the needle, we've found
-        // the needle in the haystack.
-        int currentIndex = 0;
-        for (int i = fromIndex; i < haystackChars.size(); i++) {
-            int h = haystackChars.getInt(i);
-            int p = needleChars.getInt(currentIndex);
-
-            if (h == p) {
-                if (currentIndex == needleChars.size() - 1) {
-                    return i - currentIndex;
-                }
-                currentIndex++;
-                continue;
-            }
-
-            IntSet similar = homoglyphCache.get(h);
-            if (similar != null && similar.contains(p)) {
-                if (currentIndex == needleChars.size() - 1) {
-                    return i - currentIndex;
-                }
-                currentIndex++;
-            } else {
-                // Reset the main loop back in case we missed any potential matches
-                i -= currentIndex;
-                currentIndex = 0;
-            }
+    /**
+     * Returns the index of the first occurrence of the needle's UTF-8 byte
+     * range in the haystack's, given variance for homoglyphs.
+     * Code points this helper ignores are skipped, the same as {@link #indexOf(String, String)} does.
+     *
+     * @param haystack The array to search in
+     * @param haystackOffset The index of the first byte to search in
+     * @param haystackLength The number of bytes to search in
+     * @param needle The array to search for
+     * @param needleOffset The index of the first byte to search for
+     * @param needleLength The number of bytes to search for
+     * @return The index in the haystack array of the first byte of the match, or -1 if none was found
+     * @throws IndexOutOfBoundsException If either range is out of bounds
+     */
+    public int indexOfUTF8(byte[] haystack, int haystackOffset, int haystackLength, byte[] needle, int needleOffset, int needleLength) {
+        if (haystack == null || needle == null) {
+            return -1;
         }
-
-        return -1;
+        return indexOfUTF8(ByteBuffer.wrap(haystack, haystackOffset, haystackLength), ByteBuffer.wrap(needle, needleOffset, needleLength));
     }
 
     /**
@@ -518,87 +1189,227 @@ public class HomoglyphHelper {
         if (haystack == null || needle == null) {
             return -1;
         }
-        if (haystack.isEmpty()) {
-            return -1;
-        }
 
-        IntList haystackChars = toChars(haystack);
-        IntList needleChars = toChars(needle);
+        CallRecorder recorder = recorder(HomoglyphListener.Operation.LAST_INDEX_OF);
+        int result = compile(needle).lastIndexOf(haystack, fromIndex, recorder);
+        finish(recorder, haystack.length());
+        return result;
+    }
 
-        if (fromIndex < 0) {
-            fromIndex += haystackChars.size() - 1;
-        }
-        if (fromIndex < 0) {
-            return -1;
-        }
-        if (fromIndex >= haystackChars.size()) {
-            fromIndex = haystackChars.size() - 1;
-        }
+    /**
+     * Returns true if the needle is found anywhere in
+     * the haystack, given variance for homoglyphs.
+     *
+     * @param haystack The string to search in
+     * @param needle The string to search for
+     * @return Whether or not the haystack contains the needle
+     */
+    public boolean contains(String haystack, String needle) { return indexOf(haystack, needle) > -1; }
 
-        if (needle.isEmpty()) {
-            return fromIndex;
-        }
+    /**
+     * Returns true if the needle is found anywhere in any
+     * of the haystacks, given variance for homoglyphs.
+     * The needle is only compiled once.
+     *
+     * @param haystacks The strings to search in
+     * @param needle The string to search for
+     * @return Whether or not any haystack contains the needle
+     */
+    public boolean containsAny(Collection<? extends CharSequence> haystacks, String needle) { return containsAny(haystacks, needle, null); }
 
-        if (needleChars.size() > fromIndex) {
-            return -1;
+    /**
+     * Returns true if the needle is found anywhere in any
+     * of the haystacks, given variance for homoglyphs, splitting
+     * large collections into chunks which run on the executor given.
+     * Every chunk stops early once any of them finds the needle.
+     *
+     * @param haystacks The strings to search in
+     * @param needle The string to search for
+     * @param executor The executor to run chunks on, or null to run them all on the calling thread
+     * @return Whether or not any haystack contains the needle
+     */
+    public boolean containsAny(Collection<? extends CharSequence> haystacks, String needle, Executor executor) {
+        if (haystacks == null || needle == null) {
+            return false;
         }
+        return BatchKernel.containsAny(compile(needle), haystacks.toArray(new CharSequence[0]), executor, recorders(HomoglyphListener.Operation.INDEX_OF));
+    }
 
-        // currentIndex holds the index of the current position for the needle.
-        // When we search for a substring from end to beginning, we're always
-        // moving the index through the haystack one character at a time, no
-        // matter how far along we are on the needle. We can exploit this and
-        // avoid iterating over two lists twice.
-        //
-        // Basically, if we find a match we decrement the needle's index (currentIndex).
-        // If we don't find a match, we reset the needle's index (currentIndex).
-        // If the needle's index (currentIndex) is at 0, we've found the needle in the haystack.
-        int currentIndex = needleChars.size() - 1;
-        for (int i = fromIndex; i >= 0; i--) {
-            int h = haystackChars.getInt(i);
-            int p = needleChars.getInt(currentIndex);
-
-            if (h == p) {
-                if (currentIndex == 0) {
-                    return i;
-                }
-                currentIndex--;
-                continue;
-            }
-
-            IntSet similar = homoglyphCache.get(h);
-            if (similar != null && similar.contains(p)) {
-                if (currentIndex == 0) {
-                    return i;
-                }
-                currentIndex--;
-            } else {
-                // Reset the main loop back in case we missed any potential matches
-                i += needleChars.size() - currentIndex - 1;
-                currentIndex = needleChars.size() - 1;
-            }
+    /**
+     * Returns the edit distance between strings one and two, given variance
+     * for homoglyphs: every code point inserted, deleted or replaced counts as
+     * one edit, except replacing a character with one of its homoglyphs, which
+     * counts as none. Stops as soon as the distance is known to be over the
+     * maximum given, so a small maximum keeps this fast.
+     *
+     * @param one The first string
+     * @param two The second string
+     * @param maxDistance The largest distance worth knowing
+     * @return The edit distance, or -1 if it's more than maxDistance
+     * @see HomoglyphPattern#distance(CharSequence, int)
+     */
+    public int distance(String one, String two, int maxDistance) {
+        if (one == null) {
+            throw new IllegalArgumentException("one cannot be null.");
+        }
+        if (two == null) {
+            throw new IllegalArgumentException("two cannot be null.");
         }
+        // The shorter string is the one most likely to fit the bit-parallel search
+        return one.length() <= two.length() ? compile(one).distance(two, maxDistance) : compile(two).distance(one, maxDistance);
+    }
 
-        return -1;
+    /**
+     * Returns true if the needle is found anywhere in the haystack with
+     * at most the number of edits given, counting edits the same way
+     * {@link #distance(String, String, int)} does. This catches needles
+     * with a character or two inserted, such as zero-width spaces.
+     *
+     * @param haystack The string to search in
+     * @param needle The string to search for
+     * @param maxDistance The most edits a match can take
+     * @return Whether or not the haystack contains the needle within maxDistance edits
+     * @see HomoglyphPattern#containsWithin(CharSequence, int)
+     */
+    public boolean containsWithin(String haystack, String needle, int maxDistance) {
+        if (haystack == null || needle == null) {
+            return false;
+        }
+        return compile(needle).containsWithin(haystack, maxDistance);
     }
 
     /**
-     * Returns true if the needle is found anywhere in
-     * the haystack, given variance for homoglyphs.
+     * Returns the haystack with every match of the needle replaced,
+     * given variance for homoglyphs. Matches are replaced left to right
+     * and never overlap.
      *
      * @param haystack The string to search in
      * @param needle The string to search for
-     * @return Whether or not the haystack contains the needle
+     * @param replacement What to replace each match with
+     * @return The replaced haystack
      */
-    public boolean contains(String haystack, String needle) { return indexOf(haystack, needle) > -1; }
+    public String replaceAll(String haystack, String needle, String replacement) {
+        if (needle == null) {
+            throw new IllegalArgumentException("needle cannot be null.");
+        }
+        return replaceAll(haystack, Collections.singletonList(needle), replacement);
+    }
+
+    /**
+     * Returns the haystack with every match of any needle replaced,
+     * given variance for homoglyphs. Where matches overlap, the one
+     * starting first wins, then the longest. Compile a {@link #matcher(Collection)}
+     * to replace the same needles in many haystacks.
+     *
+     * @param haystack The string to search in
+     * @param needles The strings to search for
+     * @param replacement What to replace each match with
+     * @return The replaced haystack
+     * @see HomoglyphMatcher#replaceAll(CharSequence, String)
+     */
+    public String replaceAll(String haystack, Collection<? extends CharSequence> needles, String replacement) { return matcher(needles).replaceAll(haystack, replacement); }
+
+    /**
+     * Returns the haystack with every code point of every match of any needle
+     * replaced by the mask, given variance for homoglyphs. Where matches overlap,
+     * the one starting first wins, then the longest. Compile a {@link #matcher(Collection)}
+     * to mask the same needles in many haystacks.
+     *
+     * @param haystack The string to search in
+     * @param needles The strings to search for
+     * @param mask The char to replace each matched code point with
+     * @return The masked haystack
+     * @see HomoglyphMatcher#mask(CharSequence, char)
+     */
+    public String mask(String haystack, Collection<? extends CharSequence> needles, char mask) { return matcher(needles).mask(haystack, mask); }
+
+    private CharSequence transform(HomoglyphListener.Operation operation, CodePointMap transform, IgnorableSet ignorables, CharSequence unicode) {
+        CallRecorder recorder = recorder(operation);
+        CharSequence result = TransformKernel.transform(transform, unicode, ignorables, recorder);
+        finish(recorder, unicode.length());
+        return result;
+    }
 
-    private IntList toChars(String text) {
-        IntList unicode = new IntArrayList(text.length());
-        int i = 0;
-        while (i < text.length()) {
-            int c = text.codePointAt(i);
-            unicode.add(c);
-            i += Character.charCount(c);
+    private StringBuilder append(HomoglyphListener.Operation operation, CodePointMap transform, CharSequence unicode, StringBuilder out) {
+        CallRecorder recorder = recorder(operation);
+        TransformKernel.append(transform, unicode, 0, unicode.length(), out, recorder);
+        finish(recorder, unicode.length());
+        return out;
+    }
+
+    private <T extends Appendable> T append(HomoglyphListener.Operation operation, CodePointMap transform, CharSequence unicode, T out) throws IOException {
+        CallRecorder recorder = recorder(operation);
+        TransformKernel.append(transform, unicode, 0, unicode.length(), out, recorder);
+        finish(recorder, unicode.length());
+        return out;
+    }
+
+    private int write(HomoglyphListener.Operation operation, CodePointMap transform, CharSequence unicode, char[] out, int offset) {
+        CallRecorder recorder = recorder(operation);
+        int written = TransformKernel.write(transform, unicode, 0, unicode.length(), out, offset, recorder);
+        finish(recorder, unicode.length());
+        return written;
+    }
+
+    private int transformUTF8(HomoglyphListener.Operation operation, CodePointMap transform, ByteBuffer src, ByteBuffer dst) {
+        CallRecorder recorder = recorder(operation);
+        int start = src.position();
+        int written = Utf8Kernel.transform(transform, src, dst, recorder);
+        finish(recorder, src.position() - start);
+        return written;
+    }
+
+    private static HomoglyphListener.Operation operation(TransformMode mode) {
+        switch (mode) {
+            case ORDERED_ASCII:
+                return HomoglyphListener.Operation.TO_ORDERED_ASCII;
+            case ALPHANUMERIC:
+                return HomoglyphListener.Operation.TO_ALPHANUMERIC;
+            case STANDARD_CHARSET:
+                return HomoglyphListener.Operation.TO_STANDARD_CHARSET;
+            case ASCII:
+                return HomoglyphListener.Operation.TO_ASCII;
+            default:
+                throw new IllegalArgumentException("mode is not supported.");
+        }
+    }
+
+    private CallRecorder recorder(HomoglyphListener.Operation operation) { return listener != null ? new CallRecorder(listener, operation, table) : null; }
+
+    private Supplier<CallRecorder> recorders(HomoglyphListener.Operation operation) { return listener != null ? () -> new CallRecorder(listener, operation, table) : null; }
+
+    private static void finish(CallRecorder recorder, int length) {
+        if (recorder != null) {
+            recorder.finish(length);
+        }
+    }
+
+    private int skip(String text, int index, CallRecorder recorder) { return ignorables != null ? ignorables.skip(text, index, text.length(), recorder) : index; }
+
+    private int skipBack(String text, int index, CallRecorder recorder) { return ignorables != null ? ignorables.skipBack(text, index, 0, recorder) : index; }
+
+    private static CharSequence checkUnicode(CharSequence unicode) {
+        if (unicode == null) {
+            throw new IllegalArgumentException("unicode cannot be null.");
         }
         return unicode;
     }
+
+    private static void checkBuffers(ByteBuffer src, ByteBuffer dst) {
+        if (src == null) {
+            throw new IllegalArgumentException("src cannot be null.");
+        }
+        if (dst == null) {
+            throw new IllegalArgumentException("dst cannot be null.");
+        }
+    }
+
+    private static void checkArrays(byte[] src, byte[] dst) {
+        if (src == null) {
+            throw new IllegalArgumentException("src cannot be null.");
+        }
+        if (dst == null) {
+            throw new IllegalArgumentException("dst cannot be null.");
+        }
+    }
 }
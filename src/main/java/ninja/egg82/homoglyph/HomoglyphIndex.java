@@ -0,0 +1,489 @@
+package ninja.egg82.homoglyph;
+
+import it.unimi.dsi.fastutil.ints.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of strings which can be searched for entries that are equal to,
+ * start with, or contain a query, given variance for homoglyphs.
+ * Every result is checked with the same {@link HomoglyphHelper} methods
+ * a linear scan would use, so the results are exactly what a scan would find.
+ *
+ * <ul>
+ *     <li>Equal entries are found through buckets keyed on {@link HomoglyphHelper#hash64(CharSequence)}.</li>
+ *     <li>Entries starting with a query are found through a trie of homoglyph classes.</li>
+ *     <li>Entries containing a query are found through the entries sharing its rarest run of three
+ *     homoglyph classes. Queries shorter than that use runs of their own length, down to single
+ *     classes, so only empty queries check every entry.</li>
+ * </ul>
+ *
+ * Entries are kept in flat primitive arrays indexed by an entry ID, and IDs
+ * (and trie nodes) freed by removals are reused by later additions. Each entry
+ * remembers its slot in every list of entries sharing a run, so removing it
+ * swaps the last ID of each list into its place instead of searching the lists.
+ *
+ * Searches only read the index, so any number of threads can search it at once.
+ * Indexes are not thread-safe otherwise. Use external synchronization if an index
+ * is modified while other threads are searching it.
+ */
+public final class HomoglyphIndex {
+    private static final int NONE = TransitionTable.NONE;
+    private static final int ROOT = 0;
+    private static final int GRAM = 3;
+
+    private final HomoglyphHelper helper;
+    private final HomoglyphTable table;
+    private final IgnorableSet ignorables;
+
+    // Entries by ID. Free IDs are chained through nextInBucket.
+    private String[] values = new String[16];
+    private long[] hashes = new long[16];
+    private int[] nextInBucket = new int[16];
+    private int[] nextTerminal = new int[16];
+    // Pairs of the runs of up to three homoglyph classes in each entry, and the entry's slot in that run's postings
+    private int[][] entryGrams = new int[16][];
+    private int entryCount = 0;
+    private int freeEntry = NONE;
+    private int size = 0;
+
+    // The first entry ID in each hash bucket
+    private int[] buckets = new int[16];
+
+    // Trie nodes by ID. Free IDs are chained through nextSibling.
+    private final TransitionTable children = new TransitionTable(16);
+    private int[] firstChild = new int[16];
+    private int[] nextSibling = new int[16];
+    private int[] firstTerminal = new int[16];
+    private int nodeCount = 1;
+    private int freeNode = NONE;
+
+    // Entry IDs by each run of one, two or three homoglyph classes in them
+    private final Int2ObjectMap<Postings> grams = new Int2ObjectOpenHashMap<>();
+
+    private int[] path = new int[16];
+
+    HomoglyphIndex(HomoglyphHelper helper, HomoglyphTable table, IgnorableSet ignorables) {
+        this.helper = helper;
+        this.table = table;
+        this.ignorables = ignorables;
+        Arrays.fill(buckets, NONE);
+        firstChild[ROOT] = NONE;
+        firstTerminal[ROOT] = NONE;
+    }
+
+    /**
+     * Returns the number of entries in the index.
+     *
+     * @return The number of entries
+     */
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Adds an entry to the index.
+     *
+     * @param value The entry to add
+     * @return True if the entry was added, false if the exact same string was already in the index
+     */
+    public boolean add(String value) {
+        checkNotNull(value, "value");
+
+        long hash = helper.hash64(value);
+        if (find(value, hash) != NONE) {
+            return false;
+        }
+
+        int id = newEntry();
+        values[id] = value;
+        hashes[id] = hash;
+        int bucket = bucket(hash, buckets.length);
+        nextInBucket[id] = buckets[bucket];
+        buckets[bucket] = id;
+        if (++size > buckets.length) {
+            rehash(buckets.length * 2);
+        }
+
+        int[] symbols = toSymbols(value);
+        int length = symbols.length;
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            int child = children.get(node, symbols[i]);
+            if (child == NONE) {
+                child = newNode();
+                children.put(node, symbols[i], child);
+                nextSibling[child] = firstChild[node];
+                firstChild[node] = child;
+            }
+            node = child;
+        }
+        nextTerminal[id] = firstTerminal[node];
+        firstTerminal[node] = id;
+
+        int runs = 0;
+        for (int n = 1; n <= GRAM; n++) {
+            runs += Math.max(length - n + 1, 0);
+        }
+        int[] refs = new int[2 * runs];
+        int count = 0;
+        for (int n = 1; n <= GRAM; n++) {
+            for (int i = 0; i + n <= length; i++) {
+                int gram = gram(symbols, i, n);
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    postings = new Postings();
+                    grams.put(gram, postings);
+                }
+                // Everything for this entry is added in one go, so a repeat would be the last ID
+                if (postings.size > 0 && postings.ids[postings.size - 1] == id) {
+                    continue;
+                }
+                refs[count * 2] = gram;
+                refs[count * 2 + 1] = postings.add(id, count);
+                count++;
+            }
+        }
+        entryGrams[id] = count * 2 < refs.length ? Arrays.copyOf(refs, count * 2) : refs;
+        return true;
+    }
+
+    /**
+     * Removes an entry from the index.
+     *
+     * @param value The entry to remove
+     * @return True if the entry was removed, false if the exact same string wasn't in the index
+     */
+    public boolean remove(String value) {
+        checkNotNull(value, "value");
+
+        long hash = helper.hash64(value);
+        int bucket = bucket(hash, buckets.length);
+        int previous = NONE;
+        int id = buckets[bucket];
+        while (id != NONE && (hashes[id] != hash || !values[id].equals(value))) {
+            previous = id;
+            id = nextInBucket[id];
+        }
+        if (id == NONE) {
+            return false;
+        }
+        if (previous == NONE) {
+            buckets[bucket] = nextInBucket[id];
+        } else {
+            nextInBucket[previous] = nextInBucket[id];
+        }
+
+        int[] symbols = toSymbols(value);
+        int length = symbols.length;
+        if (path.length < length + 1) {
+            path = new int[Math.max(length + 1, path.length * 2)];
+        }
+        path[0] = ROOT;
+        for (int i = 0; i < length; i++) {
+            path[i + 1] = children.get(path[i], symbols[i]);
+        }
+
+        int node = path[length];
+        if (firstTerminal[node] == id) {
+            firstTerminal[node] = nextTerminal[id];
+        } else {
+            int t = firstTerminal[node];
+            while (nextTerminal[t] != id) {
+                t = nextTerminal[t];
+            }
+            nextTerminal[t] = nextTerminal[id];
+        }
+        // Prune branches that no longer lead anywhere
+        for (int i = length; i > 0 && firstTerminal[path[i]] == NONE && firstChild[path[i]] == NONE; i--) {
+            unlinkChild(path[i - 1], path[i]);
+            children.remove(path[i - 1], symbols[i - 1]);
+            nextSibling[path[i]] = freeNode;
+            freeNode = path[i];
+        }
+
+        int[] refs = entryGrams[id];
+        for (int k = 0; k < refs.length; k += 2) {
+            Postings postings = grams.get(refs[k]);
+            int slot = refs[k + 1];
+            int last = --postings.size;
+            if (slot != last) {
+                int moved = postings.ids[last];
+                postings.ids[slot] = moved;
+                postings.refs[slot] = postings.refs[last];
+                entryGrams[moved][postings.refs[slot] * 2 + 1] = slot;
+            }
+            if (postings.size == 0) {
+                grams.remove(refs[k]);
+            }
+        }
+
+        values[id] = null;
+        entryGrams[id] = null;
+        nextInBucket[id] = freeEntry;
+        freeEntry = id;
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns true if any entry is equal to the query,
+     * given variance for homoglyphs.
+     *
+     * @param query The string to look for
+     * @return Whether or not the index has an entry equal to the query
+     * @see HomoglyphHelper#equals(String, String)
+     */
+    public boolean hasEqual(String query) {
+        checkNotNull(query, "query");
+
+        long hash = helper.hash64(query);
+        for (int id = buckets[bucket(hash, buckets.length)]; id != NONE; id = nextInBucket[id]) {
+            if (hashes[id] == hash && helper.equals(values[id], query)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns every entry that is equal to the query,
+     * given variance for homoglyphs.
+     *
+     * @param query The string to look for
+     * @return The entries equal to the query, in no particular order
+     * @see HomoglyphHelper#equals(String, String)
+     */
+    public List<String> findEqual(String query) {
+        checkNotNull(query, "query");
+
+        List<String> results = new ArrayList<>();
+        long hash = helper.hash64(query);
+        for (int id = buckets[bucket(hash, buckets.length)]; id != NONE; id = nextInBucket[id]) {
+            if (hashes[id] == hash && helper.equals(values[id], query)) {
+                results.add(values[id]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns every entry that starts with the prefix,
+     * given variance for homoglyphs.
+     *
+     * @param prefix The string to look for
+     * @return The entries starting with the prefix, in no particular order
+     * @see HomoglyphHelper#startsWith(String, String)
+     */
+    public List<String> findStartingWith(String prefix) {
+        checkNotNull(prefix, "prefix");
+
+        List<String> results = new ArrayList<>();
+        int[] symbols = toSymbols(prefix);
+        int node = ROOT;
+        for (int i = 0; i < symbols.length && node != NONE; i++) {
+            node = children.get(node, symbols[i]);
+        }
+        if (node == NONE) {
+            return results;
+        }
+
+        // Classes only over-approximate "similar" when homoglyph lists overlap
+        boolean verify = table.overlaps();
+        IntArrayList stack = new IntArrayList();
+        stack.add(node);
+        while (!stack.isEmpty()) {
+            node = stack.removeInt(stack.size() - 1);
+            for (int id = firstTerminal[node]; id != NONE; id = nextTerminal[id]) {
+                if (!verify || helper.startsWith(values[id], prefix)) {
+                    results.add(values[id]);
+                }
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                stack.add(child);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns every entry that contains the needle,
+     * given variance for homoglyphs.
+     *
+     * @param needle The string to look for
+     * @return The entries containing the needle, in no particular order
+     * @see HomoglyphHelper#contains(String, String)
+     */
+    public List<String> findContaining(String needle) {
+        checkNotNull(needle, "needle");
+
+        List<String> results = new ArrayList<>();
+        HomoglyphPattern pattern = helper.compile(needle);
+        int[] symbols = toSymbols(needle);
+        int length = symbols.length;
+        if (length == 0) {
+            for (int id = 0; id < entryCount; id++) {
+                if (values[id] != null && pattern.contains(values[id])) {
+                    results.add(values[id]);
+                }
+            }
+            return results;
+        }
+
+        int n = Math.min(length, GRAM);
+        Postings rarest = null;
+        for (int i = 0; i + n <= length; i++) {
+            Postings postings = grams.get(gram(symbols, i, n));
+            if (postings == null) {
+                return results;
+            }
+            if (rarest == null || postings.size < rarest.size) {
+                rarest = postings;
+            }
+        }
+        for (int i = 0; i < rarest.size; i++) {
+            String value = values[rarest.ids[i]];
+            if (pattern.contains(value)) {
+                results.add(value);
+            }
+        }
+        return results;
+    }
+
+    private int find(String value, long hash) {
+        for (int id = buckets[bucket(hash, buckets.length)]; id != NONE; id = nextInBucket[id]) {
+            if (hashes[id] == hash && values[id].equals(value)) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+
+    private int newEntry() {
+        if (freeEntry != NONE) {
+            int id = freeEntry;
+            freeEntry = nextInBucket[id];
+            return id;
+        }
+
+        if (entryCount == values.length) {
+            int capacity = values.length * 2;
+            values = Arrays.copyOf(values, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            nextInBucket = Arrays.copyOf(nextInBucket, capacity);
+            nextTerminal = Arrays.copyOf(nextTerminal, capacity);
+            entryGrams = Arrays.copyOf(entryGrams, capacity);
+        }
+        return entryCount++;
+    }
+
+    private int newNode() {
+        int node;
+        if (freeNode != NONE) {
+            node = freeNode;
+            freeNode = nextSibling[node];
+        } else {
+            if (nodeCount == firstChild.length) {
+                int capacity = firstChild.length * 2;
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                firstTerminal = Arrays.copyOf(firstTerminal, capacity);
+            }
+            node = nodeCount++;
+        }
+        firstChild[node] = NONE;
+        firstTerminal[node] = NONE;
+        return node;
+    }
+
+    private void unlinkChild(int parent, int child) {
+        if (firstChild[parent] == child) {
+            firstChild[parent] = nextSibling[child];
+            return;
+        }
+        int sibling = firstChild[parent];
+        while (nextSibling[sibling] != child) {
+            sibling = nextSibling[sibling];
+        }
+        nextSibling[sibling] = nextSibling[child];
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity];
+        Arrays.fill(rehashed, NONE);
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            int id = buckets[bucket];
+            while (id != NONE) {
+                int next = nextInBucket[id];
+                int b = bucket(hashes[id], capacity);
+                nextInBucket[id] = rehashed[b];
+                rehashed[b] = id;
+                id = next;
+            }
+        }
+        buckets = rehashed;
+    }
+
+    private static int bucket(long hash, int capacity) { return (int) (hash ^ (hash >>> 32)) & (capacity - 1); }
+
+    private static int gram(int[] symbols, int i, int n) {
+        // Starting from the length keeps runs of different lengths apart
+        int hash = n;
+        for (int k = i; k < i + n; k++) {
+            hash = hash * 0x9E3779B1 + symbols[k];
+        }
+        // The finalizer from MurmurHash3
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Converts the string into a new array of homoglyph symbols, leaving out ignored
+     * code points the same way the helper's searches do. Searches each get their
+     * own array, so they never share any scratch space.
+     */
+    private int[] toSymbols(String value) {
+        int[] symbols = new int[value.length()];
+        int length = 0;
+        int i = 0;
+        while (i < value.length()) {
+            int c = value.codePointAt(i);
+            if (ignorables == null || !ignorables.contains(c)) {
+                symbols[length++] = table.symbol(c);
+            }
+            i += Character.charCount(c);
+        }
+        return length < symbols.length ? Arrays.copyOf(symbols, length) : symbols;
+    }
+
+    /**
+     * The IDs of the entries sharing one run of homoglyph classes, and for each
+     * one, which of that entry's pairs in entryGrams points back at its slot here.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int[] refs = new int[4];
+        private int size = 0;
+
+        private int add(int id, int ref) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                refs = Arrays.copyOf(refs, size * 2);
+            }
+            ids[size] = id;
+            refs[size] = ref;
+            return size++;
+        }
+    }
+
+    private static void checkNotNull(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " cannot be null.");
+        }
+    }
+}
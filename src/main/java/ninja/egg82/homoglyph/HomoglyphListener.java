@@ -0,0 +1,58 @@
+package ninja.egg82.homoglyph;
+
+/**
+ * Receives a record of every call a helper made, once attached with
+ * {@link HomoglyphHelper#withListener(HomoglyphListener)}. Helpers without a
+ * listener don't measure anything.
+ *
+ * Listeners are called on whichever thread made the call, so they need to be
+ * thread-safe and quick. {@link HomoglyphMetrics} is a ready-made one.
+ */
+public interface HomoglyphListener {
+    /**
+     * The calls that are recorded. Each one covers every overload of its method,
+     * including the ones that work on builders, arrays and UTF-8 buffers, and the
+     * ones that delegate to it: the batch conversions record each string as a
+     * call to the matching conversion, contains records an INDEX_OF, containsAny
+     * records one for each haystack it searches, and equalsUTF8 and indexOfUTF8
+     * record an EQUALS and an INDEX_OF. Patterns, matchers, indexes, caches and
+     * streams made by the helper aren't recorded.
+     */
+    enum Operation {
+        TO_ORDERED_ASCII,
+        TO_ALPHANUMERIC,
+        TO_STANDARD_CHARSET,
+        TO_ASCII,
+        SKELETON,
+        EQUALS,
+        INDEX_OF,
+        LAST_INDEX_OF,
+        STARTS_WITH,
+        ENDS_WITH,
+        ANALYZE
+    }
+
+    /**
+     * Called once a call finishes.
+     *
+     * @param operation The call that was made
+     * @param length The length, in chars, of the string transformed, searched in, or compared first,
+     *               or in bytes if it was UTF-8
+     * @param ascii Whether the part of that string the call read was pure ASCII. Searches and
+     *              comparisons stop reading once they know the answer, and UTF-8 conversions
+     *              once the output is full.
+     * @param nanos How long the call took, including any calls to onUnmapped
+     */
+    void onCall(Operation operation, int length, boolean ascii, long nanos);
+
+    /**
+     * Called once for every non-ASCII code point read from the string described by
+     * {@link #onCall(Operation, int, boolean, long)} that isn't in any homoglyph
+     * list, while the call is being made. These are found in the same pass the call
+     * makes, so the string is never read twice.
+     *
+     * @param operation The call that was made
+     * @param codePoint The code point that isn't in any homoglyph list
+     */
+    default void onUnmapped(Operation operation, int codePoint) { }
+}
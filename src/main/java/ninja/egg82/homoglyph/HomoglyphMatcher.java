@@ -0,0 +1,420 @@
+package ninja.egg82.homoglyph;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Searches text for any number of patterns at once, given variance for homoglyphs.
+ * The patterns are compiled into an Aho-Corasick automaton over homoglyph classes,
+ * so each search is a single pass over the text no matter how many patterns there are.
+ *
+ * Two characters are treated as the same if they're equal or in the same homoglyph class.
+ * For the default homoglyph list (where no character is in more than one list) this is
+ * exactly what {@link HomoglyphHelper#indexOf(String, String)} does. If a custom list has
+ * characters in more than one list, those lists are joined into one class here, which
+ * can match more than indexOf would.
+ *
+ * Matchers compiled by a helper with an {@link IgnorableSet} leave its code points out of
+ * the patterns and step over them in the text, and a match's range covers any ignored code
+ * points inside of it.
+ *
+ * Matchers are immutable and can be shared between threads.
+ */
+public final class HomoglyphMatcher {
+    private static final int ROOT = 0;
+    private static final int NONE = TransitionTable.NONE;
+
+    private final HomoglyphTable table;
+    // Null if nothing is ignored
+    private final IgnorableSet ignorables;
+    private final String[] patterns;
+    private final int[] patternLengths;
+    private final int maxPatternLength;
+
+    private final TransitionTable transitions;
+    private final int[] fail;
+    // The first pattern ending at each state, and the next pattern ending at the same state
+    private final int[] firstPattern;
+    private final int[] nextPattern;
+    // The nearest state along the fail links that has patterns ending at it
+    private final int[] dictionary;
+
+    HomoglyphMatcher(HomoglyphTable table, Collection<? extends CharSequence> patterns, IgnorableSet ignorables) {
+        this.table = table;
+        this.ignorables = ignorables;
+        this.patterns = new String[patterns.size()];
+        this.patternLengths = new int[this.patterns.length];
+
+        int p = 0;
+        int symbols = 0;
+        for (CharSequence pattern : patterns) {
+            if (pattern == null) {
+                throw new IllegalArgumentException("patterns cannot contain null.");
+            }
+            if (pattern.length() == 0) {
+                throw new IllegalArgumentException("patterns cannot contain an empty pattern.");
+            }
+            this.patterns[p] = pattern.toString();
+            this.patternLengths[p] = (int) this.patterns[p].codePoints().filter(c -> !ignored(c)).count();
+            if (patternLengths[p] == 0) {
+                throw new IllegalArgumentException("patterns cannot contain a pattern made only of ignored characters.");
+            }
+            symbols += patternLengths[p];
+            p++;
+        }
+        this.maxPatternLength = Arrays.stream(patternLengths).max().orElse(0);
+
+        // Build the trie. Every state but the root is entered by exactly one edge,
+        // so the edges are recorded by the state they lead to.
+        transitions = new TransitionTable(symbols);
+        int[] parent = new int[symbols + 1];
+        int[] parentSymbol = new int[symbols + 1];
+        int[] terminal = new int[this.patterns.length];
+        int states = 1;
+        for (p = 0; p < this.patterns.length; p++) {
+            String pattern = this.patterns[p];
+            int state = ROOT;
+            int i = 0;
+            while (i < pattern.length()) {
+                int c = pattern.codePointAt(i);
+                if (ignored(c)) {
+                    i += Character.charCount(c);
+                    continue;
+                }
+                int symbol = table.symbol(c);
+                int next = transitions.get(state, symbol);
+                if (next == NONE) {
+                    next = states++;
+                    transitions.put(state, symbol, next);
+                    parent[next] = state;
+                    parentSymbol[next] = symbol;
+                }
+                state = next;
+                i += Character.charCount(c);
+            }
+            terminal[p] = state;
+        }
+
+        firstPattern = new int[states];
+        Arrays.fill(firstPattern, NONE);
+        nextPattern = new int[this.patterns.length];
+        // Walk backwards so each state's patterns end up in the order they were given
+        for (p = this.patterns.length - 1; p >= 0; p--) {
+            nextPattern[p] = firstPattern[terminal[p]];
+            firstPattern[terminal[p]] = p;
+        }
+
+        // Breadth-first order is depth order, and states are numbered as they're
+        // created, so sorting by depth only needs a stable pass over the parents
+        int[] depth = new int[states];
+        int maxDepth = 0;
+        for (int s = 1; s < states; s++) {
+            depth[s] = depth[parent[s]] + 1;
+            maxDepth = Math.max(maxDepth, depth[s]);
+        }
+        int[] order = byDepth(depth, maxDepth);
+
+        fail = new int[states];
+        dictionary = new int[states];
+        dictionary[ROOT] = NONE;
+        for (int s : order) {
+            if (s == ROOT) {
+                continue;
+            }
+
+            int f = ROOT;
+            if (parent[s] != ROOT) {
+                f = fail[parent[s]];
+                int next;
+                while ((next = transitions.get(f, parentSymbol[s])) == NONE && f != ROOT) {
+                    f = fail[f];
+                }
+                f = next == NONE ? ROOT : next;
+            }
+            fail[s] = f;
+            dictionary[s] = firstPattern[f] != NONE ? f : dictionary[f];
+        }
+    }
+
+    private static int[] byDepth(int[] depth, int maxDepth) {
+        int[] counts = new int[maxDepth + 2];
+        for (int d : depth) {
+            counts[d + 1]++;
+        }
+        for (int d = 1; d < counts.length; d++) {
+            counts[d] += counts[d - 1];
+        }
+        int[] order = new int[depth.length];
+        for (int s = 0; s < depth.length; s++) {
+            order[counts[depth[s]]++] = s;
+        }
+        return order;
+    }
+
+    /**
+     * Returns the number of patterns this matcher searches for.
+     *
+     * @return The number of patterns
+     */
+    public int size() { return patterns.length; }
+
+    /**
+     * Returns the pattern at the given index.
+     *
+     * @param index The index of the pattern, in the order the patterns were given
+     * @return The pattern
+     */
+    public String pattern(int index) { return patterns[index]; }
+
+    /**
+     * Finds every match of every pattern in the text, given variance for homoglyphs,
+     * and passes each one to the handler.
+     * Matches are reported in order of where they end. Matches that end at the same place
+     * are reported longest first, then in the order the patterns were given.
+     * Overlapping matches are all reported.
+     *
+     * @param text The text to search
+     * @param handler The handler to pass matches to
+     * @return False if the handler stopped the search early, true otherwise
+     */
+    public boolean match(CharSequence text, MatchHandler handler) {
+        if (text == null) {
+            throw new IllegalArgumentException("text cannot be null.");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("handler cannot be null.");
+        }
+
+        // The starting index of each of the last few code points, so a match's start
+        // can be found from its length in code points
+        int mask = Integer.highestOneBit(Math.max(maxPatternLength, 1) * 2 - 1) - 1;
+        int[] starts = new int[mask + 1];
+        int count = 0;
+
+        int state = ROOT;
+        int end = text.length();
+        int i = 0;
+        while (i < end) {
+            int c = TransformKernel.codePointAt(text, i, end);
+            if (ignored(c)) {
+                i += Character.charCount(c);
+                continue;
+            }
+            state = step(state, table.symbol(c));
+            starts[count++ & mask] = i;
+            i += Character.charCount(c);
+
+            for (int s = firstPattern[state] != NONE ? state : dictionary[state]; s != NONE; s = dictionary[s]) {
+                for (int p = firstPattern[s]; p != NONE; p = nextPattern[p]) {
+                    if (!handler.onMatch(p, starts[(count - patternLengths[p]) & mask], i)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the leftmost-longest matches in the text, given variance for homoglyphs,
+     * and passes each one to the handler. Starting from the beginning of the text,
+     * the match that starts first is chosen, then the longest one starting there,
+     * then the first pattern given among those. The search carries on from where it
+     * ended, so the matches reported never overlap. This is the set of matches that
+     * {@link #replaceAll(CharSequence, String)} and {@link #mask(CharSequence, char)} replace.
+     *
+     * The text is read once, and each match is reported as soon as no later match could
+     * start before it.
+     *
+     * @param text The text to search
+     * @param handler The handler to pass matches to
+     * @return False if the handler stopped the search early, true otherwise
+     */
+    public boolean matchLongest(CharSequence text, RangeHandler handler) {
+        if (text == null) {
+            throw new IllegalArgumentException("text cannot be null.");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("handler cannot be null.");
+        }
+
+        // For each of the last few code points compared: the index of its first char,
+        // the index after its last char, its index in code points, and the longest
+        // pattern found so far which starts there
+        int mask = Integer.highestOneBit(Math.max(maxPatternLength, 1)) * 2 - 1;
+        int[] starts = new int[mask + 1];
+        int[] ends = new int[mask + 1];
+        int[] codePoints = new int[mask + 1];
+        int[] longest = new int[mask + 1];
+        Arrays.fill(longest, NONE);
+
+        int state = ROOT;
+        int end = text.length();
+        int i = 0;
+        // The number of code points compared, and the number read including ignored ones
+        int count = 0;
+        int read = 0;
+        // The next code point to decide a match for, and the code point the last match ended at
+        int next = 0;
+        int matchedUntil = 0;
+        while (true) {
+            boolean done = i == end;
+            if (!done) {
+                int c = TransformKernel.codePointAt(text, i, end);
+                int start = i;
+                i += Character.charCount(c);
+                if (ignored(c)) {
+                    read++;
+                    continue;
+                }
+                state = step(state, table.symbol(c));
+                starts[count & mask] = start;
+                ends[count & mask] = i;
+                codePoints[count & mask] = read++;
+                count++;
+
+                for (int s = firstPattern[state] != NONE ? state : dictionary[state]; s != NONE; s = dictionary[s]) {
+                    for (int p = firstPattern[s]; p != NONE; p = nextPattern[p]) {
+                        int slot = (count - patternLengths[p]) & mask;
+                        if (longest[slot] == NONE || patternLengths[p] > patternLengths[longest[slot]]) {
+                            longest[slot] = p;
+                        }
+                    }
+                }
+            }
+
+            // Every match starting this far back has been seen, since none is longer than the longest pattern
+            int decided = done ? count : count - maxPatternLength + 1;
+            for (; next < decided; next++) {
+                int p = longest[next & mask];
+                longest[next & mask] = NONE;
+                if (p == NONE || next < matchedUntil) {
+                    continue;
+                }
+
+                matchedUntil = next + patternLengths[p];
+                int last = (matchedUntil - 1) & mask;
+                if (!handler.onMatch(p, starts[next & mask], ends[last], codePoints[next & mask], codePoints[last] + 1)) {
+                    return false;
+                }
+            }
+            if (done) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the text with every leftmost-longest match of any pattern replaced,
+     * given variance for homoglyphs.
+     *
+     * @param text The text to search
+     * @param replacement What to replace each match with
+     * @return The replaced text, or the text given if nothing matched
+     * @see #matchLongest(CharSequence, RangeHandler)
+     */
+    public String replaceAll(CharSequence text, String replacement) {
+        if (replacement == null) {
+            throw new IllegalArgumentException("replacement cannot be null.");
+        }
+        Replacer replacer = new Replacer(text, replacement, '\0');
+        matchLongest(text, replacer);
+        return replacer.finish();
+    }
+
+    /**
+     * Returns the text with every code point of every leftmost-longest match of
+     * any pattern replaced by the mask, given variance for homoglyphs. The result
+     * has as many code points as the text given.
+     *
+     * @param text The text to search
+     * @param mask The char to replace each matched code point with
+     * @return The masked text, or the text given if nothing matched
+     * @see #matchLongest(CharSequence, RangeHandler)
+     */
+    public String mask(CharSequence text, char mask) {
+        Replacer replacer = new Replacer(text, null, mask);
+        matchLongest(text, replacer);
+        return replacer.finish();
+    }
+
+    /**
+     * Copies the text into a builder around each match as it's reported.
+     * The builder is only created once there's a match to replace.
+     */
+    private static final class Replacer implements RangeHandler {
+        private final CharSequence text;
+        private final String replacement;
+        private final char mask;
+
+        private StringBuilder out = null;
+        private int copied = 0;
+
+        private Replacer(CharSequence text, String replacement, char mask) {
+            this.text = text;
+            this.replacement = replacement;
+            this.mask = mask;
+        }
+
+        public boolean onMatch(int pattern, int start, int end, int codePointStart, int codePointEnd) {
+            if (out == null) {
+                out = new StringBuilder(text.length() + (replacement != null ? replacement.length() : 0));
+            }
+            out.append(text, copied, start);
+            if (replacement != null) {
+                out.append(replacement);
+            } else {
+                for (int c = codePointStart; c < codePointEnd; c++) {
+                    out.append(mask);
+                }
+            }
+            copied = end;
+            return true;
+        }
+
+        private String finish() {
+            if (out == null) {
+                return text.toString();
+            }
+            return out.append(text, copied, text.length()).toString();
+        }
+    }
+
+    /**
+     * Returns true if any pattern is found anywhere in the text, given variance for homoglyphs.
+     *
+     * @param text The text to search
+     * @return Whether or not the text contains any of the patterns
+     */
+    public boolean containsAny(CharSequence text) {
+        if (text == null) {
+            throw new IllegalArgumentException("text cannot be null.");
+        }
+
+        int state = ROOT;
+        int end = text.length();
+        int i = 0;
+        while (i < end) {
+            int c = TransformKernel.codePointAt(text, i, end);
+            i += Character.charCount(c);
+            if (ignored(c)) {
+                continue;
+            }
+            state = step(state, table.symbol(c));
+            if (firstPattern[state] != NONE || dictionary[state] != NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean ignored(int c) { return ignorables != null && ignorables.contains(c); }
+
+    private int step(int state, int symbol) {
+        int next;
+        while ((next = transitions.get(state, symbol)) == NONE && state != ROOT) {
+            state = fail[state];
+        }
+        return next == NONE ? ROOT : next;
+    }
+}
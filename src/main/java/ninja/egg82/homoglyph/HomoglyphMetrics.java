@@ -0,0 +1,163 @@
+package ninja.egg82.homoglyph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link HomoglyphListener} which counts calls and times them into a fixed set of
+ * histogram buckets, per operation, and counts the code points that no homoglyph list
+ * covers. Everything is kept in {@link LongAdder}s, so threads recording at the same
+ * time don't contend, and can be read at any time to export to a metrics library.
+ *
+ * Only the first few thousand distinct unmapped code points are counted one by one,
+ * so input made of random code points can't grow this without bound. The rest are
+ * counted together by {@link #unmappedOverflow()}.
+ */
+public final class HomoglyphMetrics implements HomoglyphListener {
+    /**
+     * The number of histogram buckets. Bucket 0 counts calls under 64 nanoseconds,
+     * each bucket after that covers twice the time of the one before, and the
+     * last one counts everything past the others.
+     */
+    public static final int BUCKETS = 24;
+
+    private static final int MAX_UNMAPPED = 4096;
+    private static final int OPERATIONS = Operation.values().length;
+
+    private final LongAdder[] calls = adders(OPERATIONS);
+    private final LongAdder[] asciiCalls = adders(OPERATIONS);
+    private final LongAdder[] nanos = adders(OPERATIONS);
+    private final LongAdder[] histogram = adders(OPERATIONS * BUCKETS);
+
+    private final ConcurrentHashMap<Integer, LongAdder> unmapped = new ConcurrentHashMap<>();
+    private final LongAdder unmappedOverflow = new LongAdder();
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Returns the first time in nanoseconds that is too long for the bucket given.
+     *
+     * @param bucket The bucket
+     * @return The bucket's exclusive upper bound, or {@link Long#MAX_VALUE} for the last bucket
+     */
+    public static long bucketBound(int bucket) {
+        if (bucket < 0 || bucket >= BUCKETS) {
+            throw new IllegalArgumentException("bucket must be between 0 and " + (BUCKETS - 1) + ".");
+        }
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 64L << bucket;
+    }
+
+    private static int bucket(long nanos) { return Math.min(Long.SIZE - Long.numberOfLeadingZeros(Math.max(nanos, 0L) >> 6), BUCKETS - 1); }
+
+    public void onCall(Operation operation, int length, boolean ascii, long nanos) {
+        int o = operation.ordinal();
+        calls[o].increment();
+        if (ascii) {
+            asciiCalls[o].increment();
+        }
+        this.nanos[o].add(nanos);
+        histogram[o * BUCKETS + bucket(nanos)].increment();
+    }
+
+    public void onUnmapped(Operation operation, int codePoint) {
+        LongAdder count = unmapped.get(codePoint);
+        if (count == null) {
+            if (unmapped.size() >= MAX_UNMAPPED) {
+                unmappedOverflow.increment();
+                return;
+            }
+            count = unmapped.computeIfAbsent(codePoint, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Returns the number of calls made.
+     *
+     * @param operation The operation to count
+     * @return The call count
+     */
+    public long calls(Operation operation) { return calls[checkOperation(operation).ordinal()].sum(); }
+
+    /**
+     * Returns the number of calls which only read ASCII from their input.
+     *
+     * @param operation The operation to count
+     * @return The ASCII call count
+     */
+    public long asciiCalls(Operation operation) { return asciiCalls[checkOperation(operation).ordinal()].sum(); }
+
+    /**
+     * Returns the time all calls took together.
+     *
+     * @param operation The operation to count
+     * @return The total time in nanoseconds
+     */
+    public long totalNanos(Operation operation) { return nanos[checkOperation(operation).ordinal()].sum(); }
+
+    /**
+     * Returns the number of calls which fell into each histogram bucket.
+     *
+     * @param operation The operation to count
+     * @return A new array of {@link #BUCKETS} counts
+     * @see #bucketBound(int)
+     */
+    public long[] histogram(Operation operation) {
+        int o = checkOperation(operation).ordinal();
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram[o * BUCKETS + i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Returns how many times each code point not in any homoglyph list was seen.
+     *
+     * @return A new map of code points to counts
+     */
+    public Map<Integer, Long> unmapped() {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : unmapped.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Returns how many unmapped code points were seen after the map
+     * returned by {@link #unmapped()} was full.
+     *
+     * @return The overflow count
+     */
+    public long unmappedOverflow() { return unmappedOverflow.sum(); }
+
+    /**
+     * Sets every count back to zero. Calls recorded at the same time
+     * may or may not be counted.
+     */
+    public void reset() {
+        for (LongAdder[] adders : new LongAdder[][] { calls, asciiCalls, nanos, histogram }) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+        unmapped.clear();
+        unmappedOverflow.reset();
+    }
+
+    private static Operation checkOperation(Operation operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("operation cannot be null.");
+        }
+        return operation;
+    }
+}
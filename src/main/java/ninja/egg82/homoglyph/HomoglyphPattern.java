@@ -0,0 +1,658 @@
+package ninja.egg82.homoglyph;
+
+import java.util.Arrays;
+
+/**
+ * A needle compiled for searching any number of haystacks, given variance for homoglyphs.
+ * Searches give the same results as {@link HomoglyphHelper#indexOf(String, String, int)}
+ * and {@link HomoglyphHelper#lastIndexOf(String, String, int)}, and all indexes are in
+ * code points, the same way theirs are.
+ *
+ * The needle is stored as homoglyph class IDs and searched for with Knuth-Morris-Pratt,
+ * so a search never takes longer than the length of the haystack plus the needle, no matter
+ * what either one contains. This relies on "similar" being an equivalence relation, which
+ * it is unless a custom homoglyph list puts the same character in more than one list. Those
+ * tables fall back to a plain comparison at every position, which is correct but not linear.
+ *
+ * Fuzzy searches count edits the way Levenshtein distance does, with homoglyphs
+ * costing nothing to swap for each other. Needles of up to 64 code points run Myers'
+ * bit-parallel algorithm, which steps through the other string one code point at a time
+ * regardless of the needle's length, and longer needles fall back to a dynamic program
+ * limited to the diagonals within the maximum distance.
+ *
+ * Patterns compiled by a helper with an {@link IgnorableSet} leave its code points out of
+ * the needle, and step over them in the haystack without copying it, so every index is still
+ * an index into the haystack as given.
+ *
+ * Patterns are immutable and can be shared between threads.
+ */
+public final class HomoglyphPattern {
+    private final HomoglyphTable table;
+    private final String needle;
+    private final int length;
+    // Null if nothing is ignored
+    private final IgnorableSet ignorables;
+
+    private final int[] symbols;
+    private final int[] reversed;
+    // The length of the longest proper prefix of symbols[0..i] which is also a suffix of it,
+    // and the same for reversed
+    private final int[] forward;
+    private final int[] backward;
+
+    // Only set when the table's "similar" isn't an equivalence relation
+    private final int[] codePoints;
+
+    // For the bit-parallel edit distance: each distinct symbol in the needle, sorted,
+    // and a mask of the positions it appears at. Only set for needles that fit in a long.
+    private final int[] maskSymbols;
+    private final long[] masks;
+
+    HomoglyphPattern(HomoglyphTable table, String needle, IgnorableSet ignorables) {
+        this.table = table;
+        this.needle = needle;
+        this.ignorables = ignorables;
+
+        int[] codePoints = ignorables != null ? needle.codePoints().filter(c -> !ignorables.contains(c)).toArray() : needle.codePoints().toArray();
+        this.length = codePoints.length;
+        this.codePoints = table.overlaps() ? codePoints : null;
+
+        symbols = new int[length];
+        reversed = new int[length];
+        for (int i = 0; i < length; i++) {
+            symbols[i] = table.symbol(codePoints[i]);
+            reversed[length - i - 1] = symbols[i];
+        }
+        forward = borders(symbols);
+        backward = borders(reversed);
+
+        if (length <= Long.SIZE && this.codePoints == null) {
+            int[] sorted = symbols.clone();
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            maskSymbols = Arrays.copyOf(sorted, distinct);
+            masks = new long[distinct];
+            for (int i = 0; i < length; i++) {
+                masks[Arrays.binarySearch(maskSymbols, symbols[i])] |= 1L << i;
+            }
+        } else {
+            maskSymbols = null;
+            masks = null;
+        }
+    }
+
+    /**
+     * Returns the Knuth-Morris-Pratt failure table of the symbols.
+     */
+    static int[] borders(int[] symbols) {
+        int[] borders = new int[symbols.length];
+        int k = 0;
+        for (int i = 1; i < symbols.length; i++) {
+            while (k > 0 && symbols[i] != symbols[k]) {
+                k = borders[k - 1];
+            }
+            if (symbols[i] == symbols[k]) {
+                k++;
+            }
+            borders[i] = k;
+        }
+        return borders;
+    }
+
+    /**
+     * Returns the needle this pattern was compiled from.
+     *
+     * @return The needle
+     */
+    public String needle() { return needle; }
+
+    /**
+     * Returns the index of the needle in the haystack,
+     * given variance for homoglyphs.
+     *
+     * @param haystack The string to search in
+     * @return The index of the needle, or -1 if not found
+     * @see HomoglyphHelper#indexOf(String, String)
+     */
+    public int indexOf(CharSequence haystack) { return indexOf(haystack, 0); }
+
+    /**
+     * Returns the index of the needle in the haystack
+     * starting at a specified index, given variance
+     * for homoglyphs.
+     *
+     * @param haystack The string to search in
+     * @param fromIndex The index to start at
+     * @return The index of the needle, or -1 if not found
+     * @see HomoglyphHelper#indexOf(String, String, int)
+     */
+    public int indexOf(CharSequence haystack, int fromIndex) { return indexOf(haystack, fromIndex, null); }
+
+    /**
+     * Searches the same way {@link #indexOf(CharSequence, int)} does, handing every
+     * code point read from the haystack to the recorder, if there is one.
+     */
+    int indexOf(CharSequence haystack, int fromIndex, CallRecorder recorder) {
+        if (haystack == null) {
+            return -1;
+        }
+        if (length == 0) {
+            return fromIndex;
+        }
+        if (haystack.length() == 0) {
+            return -1;
+        }
+
+        int end = haystack.length();
+        if (fromIndex < 0) {
+            fromIndex += Character.codePointCount(haystack, 0, end) - 1;
+        }
+        if (fromIndex < 0) {
+            return -1;
+        }
+
+        // Find where to start, counting in code points
+        int i = 0;
+        int index = 0;
+        while (index < fromIndex && i < end) {
+            int c = TransformKernel.codePointAt(haystack, i, end);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            i += Character.charCount(c);
+            index++;
+        }
+        if (index < fromIndex) {
+            return -1;
+        }
+
+        if (codePoints != null) {
+            return indexOfSimilar(haystack, i, index, recorder);
+        }
+
+        // Once ignored code points are skipped a match can be longer than the needle,
+        // so remember where each of the last few compared code points was
+        int[] positions = ignorables != null ? new int[length] : null;
+        int compared = 0;
+        int k = 0;
+        while (i < end) {
+            int c = TransformKernel.codePointAt(haystack, i, end);
+            if (k == 0 && c < 0x80 && table.symbol(c) != symbols[0]) {
+                // Nothing is matched yet, so the ASCII run from here that can't start a match is
+                // stepped over without decoding it. Ignored or not, each one only moves the index along.
+                int next = i + 1;
+                char ch;
+                while (next < end && (ch = haystack.charAt(next)) < 0x80 && table.symbol(ch) != symbols[0]) {
+                    next++;
+                }
+                index += next - i;
+                i = next;
+                continue;
+            }
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            i += Character.charCount(c);
+            if (positions != null) {
+                if (ignorables.contains(c)) {
+                    index++;
+                    continue;
+                }
+                positions[compared++ % length] = index;
+            }
+
+            int symbol = table.symbol(c);
+            while (k > 0 && symbol != symbols[k]) {
+                k = forward[k - 1];
+            }
+            if (symbol == symbols[k]) {
+                k++;
+                if (k == length) {
+                    return positions != null ? positions[compared % length] : index - length + 1;
+                }
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    private int indexOfSimilar(CharSequence haystack, int start, int index, CallRecorder recorder) {
+        int end = haystack.length();
+        // Every start compares again from there, so only code points past this one are new
+        int read = start;
+        while (start < end) {
+            int i = start;
+            int j = 0;
+            while (j < length && i < end) {
+                int c = TransformKernel.codePointAt(haystack, i, end);
+                if (recorder != null && i >= read) {
+                    recorder.read(c);
+                    read = i + Character.charCount(c);
+                }
+                if (ignored(c)) {
+                    // A match never starts on an ignored code point
+                    if (j == 0) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                    continue;
+                }
+                if (!table.similar(c, codePoints[j])) {
+                    break;
+                }
+                i += Character.charCount(c);
+                j++;
+            }
+            if (j == length) {
+                return index;
+            }
+            if (i == end) {
+                return -1;
+            }
+            start += Character.charCount(TransformKernel.codePointAt(haystack, start, end));
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the last index of the needle in the haystack,
+     * given variance for homoglyphs.
+     *
+     * @param haystack The string to search in
+     * @return The last index of the needle, or -1 if not found
+     * @see HomoglyphHelper#lastIndexOf(String, String)
+     */
+    public int lastIndexOf(CharSequence haystack) {
+        if (haystack == null) {
+            return -1;
+        }
+
+        return lastIndexOf(haystack, haystack.length());
+    }
+
+    /**
+     * Returns the last index of the needle in the haystack
+     * starting at a specified index, given variance
+     * for homoglyphs.
+     *
+     * @param haystack The string to search in
+     * @param fromIndex The index to start at
+     * @return The last index of the needle, or -1 if not found
+     * @see HomoglyphHelper#lastIndexOf(String, String, int)
+     */
+    public int lastIndexOf(CharSequence haystack, int fromIndex) { return lastIndexOf(haystack, fromIndex, null); }
+
+    /**
+     * Searches the same way {@link #lastIndexOf(CharSequence, int)} does, handing every
+     * code point read from the haystack to the recorder, if there is one.
+     */
+    int lastIndexOf(CharSequence haystack, int fromIndex, CallRecorder recorder) {
+        if (haystack == null) {
+            return -1;
+        }
+        if (haystack.length() == 0) {
+            return -1;
+        }
+
+        int count = Character.codePointCount(haystack, 0, haystack.length());
+        if (fromIndex < 0) {
+            fromIndex += count - 1;
+        }
+        if (fromIndex < 0) {
+            return -1;
+        }
+        if (fromIndex >= count) {
+            fromIndex = count - 1;
+        }
+
+        if (length == 0) {
+            return fromIndex;
+        }
+
+        if (length > fromIndex) {
+            return -1;
+        }
+
+        // The needle's last code point lines up with the one at fromIndex at the latest
+        int i = Character.offsetByCodePoints(haystack, 0, fromIndex + 1);
+        int index = fromIndex;
+
+        if (codePoints != null) {
+            return lastIndexOfSimilar(haystack, i, index, recorder);
+        }
+
+        int k = 0;
+        while (i > 0) {
+            int c = TransformKernel.codePointBefore(haystack, i, 0);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            if (ignored(c)) {
+                i -= Character.charCount(c);
+                index--;
+                continue;
+            }
+            int symbol = table.symbol(c);
+            while (k > 0 && symbol != reversed[k]) {
+                k = backward[k - 1];
+            }
+            if (symbol == reversed[k]) {
+                k++;
+                if (k == length) {
+                    return index;
+                }
+            }
+            i -= Character.charCount(c);
+            index--;
+        }
+        return -1;
+    }
+
+    private int lastIndexOfSimilar(CharSequence haystack, int end, int index, CallRecorder recorder) {
+        // Every end compares again from there, so only code points before this one are new
+        int read = end;
+        while (end > 0) {
+            int i = end;
+            int j = length - 1;
+            int start = index;
+            while (j >= 0 && i > 0) {
+                int c = TransformKernel.codePointBefore(haystack, i, 0);
+                if (recorder != null && i <= read) {
+                    recorder.read(c);
+                    read = i - Character.charCount(c);
+                }
+                if (ignored(c)) {
+                    i -= Character.charCount(c);
+                    start--;
+                    continue;
+                }
+                if (!table.similar(c, codePoints[j])) {
+                    break;
+                }
+                i -= Character.charCount(c);
+                j--;
+                start--;
+            }
+            if (j < 0) {
+                return start + 1;
+            }
+            if (i == 0) {
+                return -1;
+            }
+            end -= Character.charCount(TransformKernel.codePointBefore(haystack, end, 0));
+            index--;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the needle is found anywhere in
+     * the haystack, given variance for homoglyphs.
+     *
+     * @param haystack The string to search in
+     * @return Whether or not the haystack contains the needle
+     */
+    public boolean contains(CharSequence haystack) { return indexOf(haystack) > -1; }
+
+    /**
+     * Returns the edit distance between the needle and the string given, counting
+     * every code point inserted, deleted or replaced as one edit, but homoglyphs
+     * replaced with each other as none. Stops as soon as the distance is known to
+     * be over the maximum given.
+     *
+     * @param other The string to compare the needle to
+     * @param maxDistance The largest distance worth knowing
+     * @return The edit distance, or -1 if it's more than maxDistance
+     * @see HomoglyphHelper#distance(String, String, int)
+     */
+    public int distance(CharSequence other, int maxDistance) {
+        if (other == null) {
+            throw new IllegalArgumentException("other cannot be null.");
+        }
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance cannot be negative.");
+        }
+
+        int end = other.length();
+        int count = ignorables != null ? countCompared(other) : Character.codePointCount(other, 0, end);
+        if (Math.abs(count - length) > maxDistance) {
+            return -1;
+        }
+        if (length == 0) {
+            return count;
+        }
+        if (length > Long.SIZE) {
+            return bandedDistance(other, maxDistance);
+        }
+
+        // Myers: bit i of pv and mv is set where the distance goes up or down by one from
+        // row i to row i + 1 of the current column, and the score is the bottom row
+        long pv = -1L;
+        long mv = 0L;
+        long last = 1L << (length - 1);
+        int score = length;
+        int remaining = count;
+        for (int i = 0; i < end;) {
+            int c = TransformKernel.codePointAt(other, i, end);
+            i += Character.charCount(c);
+            if (ignored(c)) {
+                continue;
+            }
+
+            long eq = mask(c);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0L) {
+                score++;
+            } else if ((mh & last) != 0L) {
+                score--;
+            }
+            // The top row counts up along the other string, so it always goes up by one
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            // The score can only come down by one for each code point left
+            if (score - --remaining > maxDistance) {
+                return -1;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Returns true if the needle is found anywhere in the haystack with at most
+     * the number of edits given, counting the same way {@link #distance(CharSequence, int)} does.
+     * Stops as soon as a close enough match is found.
+     *
+     * @param haystack The string to search in
+     * @param maxDistance The most edits a match can take
+     * @return Whether or not the haystack contains the needle within maxDistance edits
+     * @see HomoglyphHelper#containsWithin(String, String, int)
+     */
+    public boolean containsWithin(CharSequence haystack, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance cannot be negative.");
+        }
+        if (haystack == null) {
+            return false;
+        }
+        // Deleting the whole needle is close enough
+        if (length <= maxDistance) {
+            return true;
+        }
+        if (length > Long.SIZE) {
+            return bandedContains(haystack, maxDistance);
+        }
+
+        // The same as distance(), except a match can start anywhere, so the top row is always zero
+        long pv = -1L;
+        long mv = 0L;
+        long last = 1L << (length - 1);
+        int score = length;
+        int end = haystack.length();
+        for (int i = 0; i < end;) {
+            int c = TransformKernel.codePointAt(haystack, i, end);
+            i += Character.charCount(c);
+            if (ignored(c)) {
+                continue;
+            }
+
+            long eq = mask(c);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0L) {
+                score++;
+            } else if ((mh & last) != 0L) {
+                score--;
+            }
+            ph <<= 1;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            if (score <= maxDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean ignored(int c) { return ignorables != null && ignorables.contains(c); }
+
+    private int countCompared(CharSequence text) {
+        int count = 0;
+        int end = text.length();
+        for (int i = 0; i < end;) {
+            int c = TransformKernel.codePointAt(text, i, end);
+            i += Character.charCount(c);
+            if (!ignorables.contains(c)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a mask of the positions in the needle the character is similar to.
+     */
+    private long mask(int c) {
+        if (codePoints != null) {
+            long mask = 0L;
+            for (int i = 0; i < length; i++) {
+                if (table.similar(c, codePoints[i])) {
+                    mask |= 1L << i;
+                }
+            }
+            return mask;
+        }
+
+        int i = Arrays.binarySearch(maskSymbols, table.symbol(c));
+        return i >= 0 ? masks[i] : 0L;
+    }
+
+    private boolean matches(int index, int c, int symbol) { return codePoints != null ? table.similar(c, codePoints[index]) : symbols[index] == symbol; }
+
+    /**
+     * Edit distance for needles too long for a mask. Only cells within maxDistance of the
+     * diagonal can lead to a close enough result, so nothing outside of those is computed,
+     * and every distance over maxDistance is stored as maxDistance + 1.
+     */
+    private int bandedDistance(CharSequence other, int maxDistance) {
+        int over = maxDistance + 1;
+        int[] column = new int[length + 1];
+        for (int i = 0; i <= length; i++) {
+            column[i] = Math.min(i, over);
+        }
+
+        int end = other.length();
+        int j = 0;
+        for (int x = 0; x < end;) {
+            int c = TransformKernel.codePointAt(other, x, end);
+            x += Character.charCount(c);
+            if (ignored(c)) {
+                continue;
+            }
+            int symbol = codePoints == null ? table.symbol(c) : 0;
+            j++;
+
+            int low = Math.max(1, j - maxDistance);
+            int high = Math.min(length, j + maxDistance);
+            int diagonal = column[low - 1];
+            int up = low == 1 ? Math.min(j, over) : over;
+            column[low - 1] = up;
+            int best = up;
+            for (int i = low; i <= high; i++) {
+                // The cell to the left was outside of the band in the last column
+                int left = i == j + maxDistance ? over : column[i];
+                int value = matches(i - 1, c, symbol) ? diagonal : Math.min(1 + Math.min(diagonal, Math.min(up, left)), over);
+                diagonal = left;
+                column[i] = value;
+                up = value;
+                best = Math.min(best, value);
+            }
+
+            // Every path to the end goes through this column
+            if (best > maxDistance) {
+                return -1;
+            }
+        }
+        return column[length] <= maxDistance ? column[length] : -1;
+    }
+
+    /**
+     * Approximate search for needles too long for a mask, with Ukkonen's cutoff: rows past
+     * the last one within maxDistance can't lead to a match, so they're skipped until a
+     * column brings them back in reach.
+     */
+    private boolean bandedContains(CharSequence haystack, int maxDistance) {
+        int over = maxDistance + 1;
+        int[] column = new int[length + 1];
+        for (int i = 0; i <= length; i++) {
+            column[i] = Math.min(i, over);
+        }
+
+        int active = maxDistance;
+        int end = haystack.length();
+        for (int x = 0; x < end;) {
+            int c = TransformKernel.codePointAt(haystack, x, end);
+            x += Character.charCount(c);
+            if (ignored(c)) {
+                continue;
+            }
+            int symbol = codePoints == null ? table.symbol(c) : 0;
+
+            int high = Math.min(active + 1, length);
+            int diagonal = 0;
+            int up = 0;
+            for (int i = 1; i <= high; i++) {
+                // Rows past the last active one were over maxDistance in the last column
+                int left = i > active ? over : column[i];
+                int value = matches(i - 1, c, symbol) ? diagonal : Math.min(1 + Math.min(diagonal, Math.min(up, left)), over);
+                diagonal = left;
+                column[i] = value;
+                up = value;
+            }
+
+            active = high;
+            while (column[active] > maxDistance) {
+                active--;
+            }
+            if (active == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
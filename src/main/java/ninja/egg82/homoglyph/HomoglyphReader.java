@@ -0,0 +1,144 @@
+package ninja.egg82.homoglyph;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader which converts homoglyphs as they're read from the underlying reader.
+ * Surrogate pairs split across reads of the underlying reader are joined back
+ * together before they're converted.
+ */
+final class HomoglyphReader extends FilterReader {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CodePointMap transform;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    // A converted code point can take two chars where the original took one,
+    // so output that doesn't fit in the caller's array waits here
+    private final char[] pending = new char[BUFFER_SIZE * 2];
+    private int pendingStart = 0;
+    private int pendingEnd = 0;
+    private final char[] single = new char[1];
+
+    private char carry;
+    private boolean hasCarry = false;
+    private boolean eof = false;
+
+    HomoglyphReader(Reader in, CodePointMap transform) {
+        super(in);
+        this.transform = transform;
+    }
+
+    @Override
+    public int read() throws IOException { return read(single, 0, 1) == -1 ? -1 : single[0]; }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        int written = drain(cbuf, off, len);
+        while (written == 0) {
+            if (eof) {
+                return -1;
+            }
+
+            int start = 0;
+            if (hasCarry) {
+                buffer[start++] = carry;
+                hasCarry = false;
+            }
+            // Never read (much) more than was asked for, so pending stays bounded
+            int read = in.read(buffer, start, Math.min(BUFFER_SIZE, Math.max(len, 2)) - start);
+            int end = start;
+            if (read == -1) {
+                eof = true;
+            } else {
+                end += read;
+                if (end > 0 && Character.isHighSurrogate(buffer[end - 1])) {
+                    // The low surrogate (if any) hasn't been read yet
+                    carry = buffer[--end];
+                    hasCarry = true;
+                }
+            }
+
+            written = convert(end, cbuf, off, len);
+        }
+        return written;
+    }
+
+    private int drain(char[] cbuf, int off, int len) {
+        int n = Math.min(len, pendingEnd - pendingStart);
+        System.arraycopy(pending, pendingStart, cbuf, off, n);
+        pendingStart += n;
+        return n;
+    }
+
+    private int convert(int end, char[] cbuf, int off, int len) {
+        pendingStart = 0;
+        pendingEnd = 0;
+        int written = 0;
+
+        int i = 0;
+        while (i < end) {
+            int c = Character.codePointAt(buffer, i, end);
+            int n = Character.charCount(c);
+            int r = transform.getOrDefault(c, c);
+            if (Character.isBmpCodePoint(r)) {
+                if (written < len) {
+                    cbuf[off + written++] = (char) r;
+                } else {
+                    pending[pendingEnd++] = (char) r;
+                }
+            } else {
+                if (written < len) {
+                    cbuf[off + written++] = Character.highSurrogate(r);
+                } else {
+                    pending[pendingEnd++] = Character.highSurrogate(r);
+                }
+                if (written < len) {
+                    cbuf[off + written++] = Character.lowSurrogate(r);
+                } else {
+                    pending[pendingEnd++] = Character.lowSurrogate(r);
+                }
+            }
+            i += n;
+        }
+        return written;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n < 0L) {
+            throw new IllegalArgumentException("n cannot be negative.");
+        }
+
+        char[] skipped = new char[(int) Math.min(n, BUFFER_SIZE)];
+        long remaining = n;
+        while (remaining > 0L) {
+            int read = read(skipped, 0, (int) Math.min(remaining, skipped.length));
+            if (read == -1) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean ready() throws IOException { return pendingStart < pendingEnd || in.ready(); }
+
+    @Override
+    public boolean markSupported() { return false; }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException { throw new IOException("mark() not supported."); }
+
+    @Override
+    public void reset() throws IOException { throw new IOException("reset() not supported."); }
+}
@@ -0,0 +1,191 @@
+package ninja.egg82.homoglyph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the current {@link HomoglyphHelper} for a homoglyph list or binary table on disk,
+ * and swaps in a new one whenever the file changes.
+ *
+ * Helpers are immutable, so the current one is published through a single volatile field:
+ * {@link #helper()} never locks or waits, and a reload never pauses readers. A reader
+ * keeps whichever helper it already has, so code that needs several calls to agree with
+ * each other should call {@link #helper()} once and use the result throughout.
+ *
+ * A file that fails to load leaves the previous helper in place. Replacing the file with
+ * an atomic move is safest, since a reload may otherwise see a file that is only partly written.
+ * Each load reads the whole file and closes it, so nothing keeps it open or mapped between
+ * reloads and it can be replaced or written over on any platform.
+ */
+public final class HomoglyphService implements Closeable {
+    // Editors and copies tend to touch a file several times in a row, so wait for them to settle
+    private static final long SETTLE_MILLIS = 100L;
+
+    /**
+     * Loads the file given and starts watching it for changes.
+     *
+     * @param path The homoglyph list or binary table to load
+     * @return A new service
+     * @throws IOException If the file could not be loaded, or could not be watched
+     * @see HomoglyphHelper#create(Path)
+     */
+    public static HomoglyphService watch(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path cannot be null.");
+        }
+
+        HomoglyphService service = new HomoglyphService(path.toAbsolutePath());
+        service.reload();
+        service.start();
+        return service;
+    }
+
+    private final Path path;
+    private volatile HomoglyphHelper helper = null;
+
+    private WatchService watcher = null;
+
+    // Only written while holding the lock in reload(), so plain volatile fields are enough
+    private volatile long reloadCount = 0L;
+    private volatile long failureCount = 0L;
+    private volatile long lastReloadNanos = 0L;
+    private volatile long maxReloadNanos = 0L;
+    private volatile Exception lastFailure = null;
+
+    private HomoglyphService(Path path) { this.path = path; }
+
+    private void start() throws IOException {
+        watcher = path.getFileSystem().newWatchService();
+        try {
+            path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | RuntimeException ex) {
+            watcher.close();
+            throw ex;
+        }
+
+        Thread thread = new Thread(this::watchLoop, "homoglyph-watcher-" + path.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                if (!changed(watcher.take())) {
+                    continue;
+                }
+
+                WatchKey key;
+                while ((key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed(key);
+                }
+                try {
+                    reload();
+                } catch (IOException | RuntimeException ignored) {
+                    // Recorded by reload(), and the previous helper stays in place
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ignored) {
+            // Closed
+        }
+    }
+
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || path.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Returns the current helper. This is a single volatile read.
+     *
+     * @return The most recently loaded helper
+     */
+    public HomoglyphHelper helper() { return helper; }
+
+    /**
+     * Returns the file this service loads from.
+     *
+     * @return The absolute path of the file
+     */
+    public Path path() { return path; }
+
+    /**
+     * Loads the file again and publishes the result, without waiting for
+     * it to change. If loading fails, the current helper stays in place.
+     *
+     * @throws IOException If the file could not be read
+     */
+    public synchronized void reload() throws IOException {
+        long start = System.nanoTime();
+        HomoglyphHelper next;
+        try {
+            next = HomoglyphHelper.create(path);
+        } catch (IOException | RuntimeException ex) {
+            failureCount++;
+            lastFailure = ex;
+            throw ex;
+        }
+        helper = next;
+
+        long nanos = System.nanoTime() - start;
+        lastReloadNanos = nanos;
+        maxReloadNanos = Math.max(maxReloadNanos, nanos);
+        reloadCount++;
+    }
+
+    /**
+     * Returns the number of times the file has been loaded successfully,
+     * including the first.
+     *
+     * @return The number of successful loads
+     */
+    public long reloadCount() { return reloadCount; }
+
+    /**
+     * Returns the number of times loading the file has failed.
+     *
+     * @return The number of failed loads
+     */
+    public long failureCount() { return failureCount; }
+
+    /**
+     * Returns how long the most recent successful load took,
+     * from reading the file to publishing the new helper.
+     *
+     * @return The duration of the last load, in nanoseconds
+     */
+    public long lastReloadNanos() { return lastReloadNanos; }
+
+    /**
+     * Returns how long the slowest successful load took.
+     *
+     * @return The duration of the slowest load, in nanoseconds
+     */
+    public long maxReloadNanos() { return maxReloadNanos; }
+
+    /**
+     * Returns the error from the most recent failed load, if any.
+     *
+     * @return The last failure, or null if loading has never failed
+     */
+    public Exception lastFailure() { return lastFailure; }
+
+    /**
+     * Stops watching the file. The current helper can still be used.
+     *
+     * @throws IOException If the watcher could not be closed
+     */
+    public void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+}
@@ -0,0 +1,600 @@
+package ninja.egg82.homoglyph;
+
+import it.unimi.dsi.fastutil.ints.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * The compiled lookup tables behind a {@link HomoglyphHelper}.
+ * A table can be compiled from a homoglyph list, or written to and
+ * read back from a compact binary form so startup skips compilation.
+ */
+final class HomoglyphTable {
+    /**
+     * The first four bytes of every binary table ("HGLY")
+     */
+    static final int MAGIC = 0x48474C59;
+    static final int VERSION = 4;
+
+    // We want to cache specific ranges first, because
+    // that's what you're "expecting" when you convert down
+    // | looks like I, and both are ASCII, but we want I
+    private static final int[][] ALPHANUMERIC_RANGES = {
+            { 97, 122 }, // a-z
+            { 65, 90 }, // A-Z
+            { 48, 57 } // 0-9
+    };
+    private static final int[][] STANDARD_RANGES = {
+            { 32, 47 }, // Space-/
+            { 58, 64 }, // :-@
+            { 91, 96 }, // [-`
+            { 123, 126 }, // {-~
+            { 97, 122 }, // a-z
+            { 65, 90 }, // A-Z
+            { 48, 57 } // 0-9
+    };
+    private static final int[][] ASCII_RANGES = {
+            { 0, 31 }, // null-US
+            { 127, 255 }, // del-end
+            { 32, 47 }, // Space-/
+            { 58, 64 }, // :-@
+            { 91, 96 }, // [-`
+            { 123, 126 }, // {-~
+            { 97, 122 }, // a-z
+            { 65, 90 }, // A-Z
+            { 48, 57 } // 0-9
+    };
+    /**
+     * Every range above falls within this one
+     */
+    private static final int MAX_TARGET = 255;
+
+    /**
+     * The homoglyph list. Only kept (and only non-null) when lists overlap, since
+     * {@link #similar(int, int)} then has to check the lists themselves.
+     */
+    final GlyphGroups groups;
+    /**
+     * Class cache where the key is an int character and the value is the ID of its homoglyph class.
+     * Groups that share a character are joined into one class, so two characters
+     * are only ever similar if they have the same class ID.
+     */
+    final CodePointMap classCache;
+    /**
+     * Group cache where the key is an int character and the value is the index of the first
+     * homoglyph list it appears in. Only needed (and only non-null) when lists overlap,
+     * since otherwise a class and a list are the same thing.
+     */
+    final CodePointMap groupCache;
+    final int classCount;
+
+    /**
+     * Transforms where the key is an int character and the value is what toOrderedASCII,
+     * toAlphanumeric, toStandardCharset or toASCII turn it into. Characters that a method
+     * leaves alone have no mapping. Each of these folds a method's chain of cache lookups
+     * and range checks into a single lookup, and is stored as a value per class on top of
+     * the class cache, since nearly every member of a class turns into the same thing.
+     */
+    final CodePointMap orderedTransform;
+    final CodePointMap alphanumericTransform;
+    final CodePointMap standardTransform;
+    final CodePointMap asciiTransform;
+    /**
+     * Transform where the key is an int character and the value is the representative of
+     * its homoglyph class, which is the lowest character in it. Representatives map to
+     * nothing, and neither does anything without a class.
+     */
+    final CodePointMap skeletonTransform;
+
+    /**
+     * Whether this table was built by {@link #caseFolded()}, and the table it built
+     * for this one if it's been asked for. Only ever set to one value, so a race just
+     * builds the same table twice.
+     */
+    private final boolean folded;
+    private volatile HomoglyphTable caseFolded = null;
+
+    // What symbol() returns for each ASCII char, which most text is made of
+    private final int[] asciiSymbols = new int[0x80];
+
+    private HomoglyphTable(GlyphGroups groups, CodePointMap classCache, CodePointMap groupCache, int classCount, CodePointMap[] transforms, CodePointMap skeletonTransform, boolean folded) {
+        this.groups = groups;
+        this.classCache = classCache;
+        this.groupCache = groupCache;
+        this.classCount = classCount;
+
+        this.orderedTransform = transforms[TransformMode.ORDERED_ASCII.ordinal()];
+        this.alphanumericTransform = transforms[TransformMode.ALPHANUMERIC.ordinal()];
+        this.standardTransform = transforms[TransformMode.STANDARD_CHARSET.ordinal()];
+        this.asciiTransform = transforms[TransformMode.ASCII.ordinal()];
+        this.skeletonTransform = skeletonTransform;
+        this.folded = folded;
+
+        for (int c = 0; c < asciiSymbols.length; c++) {
+            int id = classCache.get(c);
+            asciiSymbols[c] = id != CodePointMap.NO_MAPPING ? id : classCount + c;
+        }
+    }
+
+    private static CodePointMap skeleton(CodePointMap classCache, int classCount) {
+        int[] classKeys = classCache.keys();
+        int[] representatives = new int[classCount];
+        Arrays.fill(representatives, Integer.MAX_VALUE);
+        for (int c : classKeys) {
+            int id = classCache.get(c);
+            representatives[id] = Math.min(representatives[id], c);
+        }
+        CodePointMap.Builder skeletonTransform = CodePointMap.builder();
+        for (int c : classKeys) {
+            putTransform(skeletonTransform, c, representatives[classCache.get(c)]);
+        }
+        return CodePointMap.byClass(classCache, classCount, skeletonTransform);
+    }
+
+    /**
+     * Returns a table where every character is also similar to the other cases of itself,
+     * and every transform produces lower case. Case is folded the way
+     * {@link Character#toUpperCase(int)} then {@link Character#toLowerCase(int)} do, which
+     * doesn't depend on the locale. Classes are joined wherever folding links them, so lists
+     * that overlap end up joined into one class, the same as {@link HomoglyphMatcher} does.
+     * The folded table is built the first time it's asked for, then kept.
+     */
+    HomoglyphTable caseFolded() {
+        if (folded) {
+            return this;
+        }
+        HomoglyphTable result = caseFolded;
+        if (result == null) {
+            caseFolded = result = fold();
+        }
+        return result;
+    }
+
+    private static int fold(int c) { return Character.toLowerCase(Character.toUpperCase(c)); }
+
+    private static final class Cased {
+        // Every code point that folding changes. This only depends on the JDK, so it's found
+        // once and shared by every table. The JDK has no case mappings past the first two
+        // planes (the rest are CJK, tags and private use), so those aren't looked at.
+        private static final int[] CODE_POINTS = scan();
+
+        private static int[] scan() {
+            IntList cased = new IntArrayList(2048);
+            for (int c = 0; c < 0x20000; c++) {
+                if (fold(c) != c) {
+                    cased.add(c);
+                }
+            }
+            return cased.toIntArray();
+        }
+    }
+
+    private HomoglyphTable fold() {
+        // Nodes up to classCount are the existing classes. Characters without a class
+        // get a node of their own once folding links them to something.
+        IntList parents = new IntArrayList(classCount + 4096);
+        for (int i = 0; i < classCount; i++) {
+            parents.add(i);
+        }
+        CodePointMap.Builder nodes = CodePointMap.builder();
+        int[] cased = Cased.CODE_POINTS;
+        for (int c : cased) {
+            int one = find(parents, node(nodes, parents, c));
+            int two = find(parents, node(nodes, parents, fold(c)));
+            // The lower node wins, so existing classes keep their place
+            parents.set(Math.max(one, two), Math.min(one, two));
+        }
+
+        int[] ids = new int[parents.size()];
+        Arrays.fill(ids, -1);
+        int foldedCount = 0;
+        for (int n = 0; n < ids.length; n++) {
+            int root = find(parents, n);
+            if (ids[root] == -1) {
+                ids[root] = foldedCount++;
+            }
+            ids[n] = ids[root];
+        }
+        CodePointMap.Builder foldedClasses = CodePointMap.builder();
+        for (CodePointMap map : new CodePointMap[] { classCache, nodes.build() }) {
+            for (int c : map.keys()) {
+                foldedClasses.put(c, ids[map.get(c)]);
+            }
+        }
+        CodePointMap classes = foldedClasses.build();
+
+        // Every transform only maps characters with a class, so one pass over
+        // the old classes and the cased characters covers all of them
+        int[] classKeys = classCache.keys();
+        TransformMode[] modes = TransformMode.values();
+        CodePointMap[] transforms = new CodePointMap[modes.length];
+        for (TransformMode mode : modes) {
+            CodePointMap transform = transform(mode);
+            CodePointMap.Builder foldedTransform = CodePointMap.builder();
+            for (int[] keys : new int[][] { classKeys, cased }) {
+                for (int c : keys) {
+                    // Characters the list doesn't cover borrow the mapping of their folded form
+                    int r = transform.get(c);
+                    if (r == CodePointMap.NO_MAPPING) {
+                        r = transform.getOrDefault(fold(c), fold(c));
+                    }
+                    putTransform(foldedTransform, c, fold(r));
+                }
+            }
+            transforms[mode.ordinal()] = CodePointMap.byClass(classes, foldedCount, foldedTransform);
+        }
+
+        return new HomoglyphTable(null, classes, null, foldedCount, transforms, skeleton(classes, foldedCount), true);
+    }
+
+    private int node(CodePointMap.Builder nodes, IntList parents, int c) {
+        int id = classCache.get(c);
+        if (id != CodePointMap.NO_MAPPING) {
+            return id;
+        }
+        id = nodes.get(c);
+        if (id == CodePointMap.NO_MAPPING) {
+            id = parents.size();
+            parents.add(id);
+            nodes.put(c, id);
+        }
+        return id;
+    }
+
+    private static int find(IntList parents, int n) {
+        while (parents.getInt(n) != n) {
+            parents.set(n, parents.getInt(parents.getInt(n)));
+            n = parents.getInt(n);
+        }
+        return n;
+    }
+
+    CodePointMap transform(TransformMode mode) {
+        switch (mode) {
+            case ORDERED_ASCII:
+                return orderedTransform;
+            case ALPHANUMERIC:
+                return alphanumericTransform;
+            case STANDARD_CHARSET:
+                return standardTransform;
+            case ASCII:
+                return asciiTransform;
+            default:
+                throw new IllegalArgumentException("mode is not supported.");
+        }
+    }
+
+    private static void putTransform(CodePointMap.Builder transform, int c, int r) {
+        if (r != c) {
+            transform.put(c, r);
+        }
+    }
+
+    /**
+     * Returns true if the two characters are equal, or if the second
+     * character is in the first homoglyph list the first one appears in.
+     */
+    boolean similar(int one, int two) {
+        if (one == two) {
+            return true;
+        }
+        int c = classCache.get(one);
+        return c != CodePointMap.NO_MAPPING && c == classCache.get(two) && (groupCache == null || inGroup(groupCache.get(one), two));
+    }
+
+    /**
+     * Returns true if any character is in more than one homoglyph list,
+     * in which case {@link #similar(int, int)} isn't an equivalence relation.
+     */
+    boolean overlaps() { return groupCache != null; }
+
+    /**
+     * Returns a symbol which is the same for two characters exactly when they're in the
+     * same homoglyph class. Characters in a class get its ID, and every other character
+     * gets a value past the last class ID, so the two ranges never collide.
+     */
+    int symbol(int c) {
+        if (c < 0x80) {
+            return asciiSymbols[c];
+        }
+        int id = classCache.get(c);
+        return id != CodePointMap.NO_MAPPING ? id : classCount + c;
+    }
+
+    private boolean inGroup(int group, int c) {
+        for (int i = groups.start(group); i < groups.end(group); i++) {
+            if (groups.member(i) == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static HomoglyphTable compile(GlyphGroups groups) {
+        if (groups == null) {
+            throw new IllegalArgumentException("groups cannot be null.");
+        }
+
+        CodePointMap.Builder orderedCache = CodePointMap.builder();
+        IntList targets = new IntArrayList();
+        IntList targetGroups = new IntArrayList();
+
+        // One pass over the list builds the ordered cache and collects every
+        // member that could be the target of one of the other caches
+        for (int g = 0; g < groups.size(); g++) {
+            int start = groups.start(g);
+            int main = groups.member(start);
+            for (int i = start; i < groups.end(g); i++) {
+                int c = groups.member(i);
+                if (i != start) {
+                    orderedCache.putIfAbsent(c, main);
+                }
+                if (c <= MAX_TARGET) {
+                    targets.add(i);
+                    targetGroups.add(g);
+                }
+            }
+        }
+
+        return classify(groups, new Caches(
+                orderedCache.build(),
+                project(groups, targets, targetGroups, ALPHANUMERIC_RANGES),
+                project(groups, targets, targetGroups, STANDARD_RANGES),
+                project(groups, targets, targetGroups, ASCII_RANGES)
+        ));
+    }
+
+    /**
+     * Points every member of a group at the first of its members that falls in the
+     * current range and isn't already mapped itself. Ranges are applied in order,
+     * and later writes win, so the targets have to be visited in list order.
+     */
+    private static CodePointMap project(GlyphGroups groups, IntList targets, IntList targetGroups, int[][] ranges) {
+        CodePointMap.Builder cache = CodePointMap.builder();
+        for (int[] range : ranges) {
+            for (int t = 0; t < targets.size(); t++) {
+                int i = targets.getInt(t);
+                int c = groups.member(i);
+                if (c < range[0] || c > range[1] || cache.containsKey(c)) {
+                    continue;
+                }
+
+                // ASCII char found
+                int g = targetGroups.getInt(t);
+                for (int u = groups.start(g); u < groups.end(g); u++) {
+                    if (u != i) {
+                        // Add all chars to ASCII cache that are NOT the current char
+                        cache.put(groups.member(u), c);
+                    }
+                }
+            }
+        }
+        return cache.build();
+    }
+
+    /**
+     * Assigns class IDs by joining groups that share a character (union-find over
+     * group indices). IDs are handed out in the order classes first appear.
+     * Then works out every transform from the caches, on top of those classes.
+     */
+    private static HomoglyphTable classify(GlyphGroups groups, Caches caches) {
+        CodePointMap.Builder groupCache = CodePointMap.builder();
+        int[] parents = new int[groups.size()];
+        boolean overlapping = false;
+
+        for (int g = 0; g < groups.size(); g++) {
+            parents[g] = g;
+            for (int i = groups.start(g); i < groups.end(g); i++) {
+                int first = groupCache.get(groups.member(i));
+                if (first == CodePointMap.NO_MAPPING) {
+                    groupCache.put(groups.member(i), g);
+                } else {
+                    overlapping = true;
+                    parents[find(parents, g)] = find(parents, first);
+                }
+            }
+        }
+
+        int[] ids = new int[groups.size()];
+        Arrays.fill(ids, -1);
+        int classCount = 0;
+        CodePointMap.Builder classCache = CodePointMap.builder();
+        for (int g = 0; g < groups.size(); g++) {
+            int root = find(parents, g);
+            if (ids[root] == -1) {
+                ids[root] = classCount++;
+            }
+            for (int i = groups.start(g); i < groups.end(g); i++) {
+                classCache.putIfAbsent(groups.member(i), ids[root]);
+            }
+        }
+
+        CodePointMap classes = classCache.build();
+
+        TransformMode[] modes = TransformMode.values();
+        CodePointMap.Builder[] transforms = new CodePointMap.Builder[modes.length];
+        for (int i = 0; i < transforms.length; i++) {
+            transforms[i] = CodePointMap.builder();
+        }
+        // Anything that isn't a key in one of the caches is left alone by every method.
+        // Every key is a member of some list, so it has a class.
+        for (CodePointMap cache : new CodePointMap[] { caches.orderedCache, caches.alphanumericCache, caches.standardCache, caches.asciiCache }) {
+            for (int c : cache.keys()) {
+                putTransform(transforms[TransformMode.ORDERED_ASCII.ordinal()], c, caches.toOrderedASCII(c));
+                putTransform(transforms[TransformMode.ALPHANUMERIC.ordinal()], c, caches.toAlphanumeric(c));
+                putTransform(transforms[TransformMode.STANDARD_CHARSET.ordinal()], c, caches.toStandardCharset(c));
+                putTransform(transforms[TransformMode.ASCII.ordinal()], c, caches.toASCII(c));
+            }
+        }
+        CodePointMap[] derived = new CodePointMap[modes.length];
+        for (int i = 0; i < derived.length; i++) {
+            derived[i] = CodePointMap.byClass(classes, classCount, transforms[i]);
+        }
+
+        return new HomoglyphTable(overlapping ? groups : null, classes, overlapping ? groupCache.build() : null, classCount, derived, skeleton(classes, classCount), false);
+    }
+
+    private static int find(int[] parents, int g) {
+        while (parents[g] != g) {
+            parents[g] = parents[parents[g]];
+            g = parents[g];
+        }
+        return g;
+    }
+
+    /**
+     * Writes the table in its binary form.
+     * All values are big-endian: the header, the class count and class cache,
+     * each transform then the skeleton transform as their class values and exceptions,
+     * then (if lists overlap) the homoglyph list as group sizes followed by group members,
+     * and the group cache.
+     */
+    void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        out.writeInt(classCount);
+        classCache.write(out);
+        for (TransformMode mode : TransformMode.values()) {
+            transform(mode).write(out);
+        }
+        skeletonTransform.write(out);
+
+        out.writeInt(groupCache != null ? 1 : 0);
+        if (groupCache != null) {
+            out.writeInt(groups.size());
+            out.writeInt(groups.memberCount());
+            for (int g = 0; g < groups.size(); g++) {
+                out.writeInt(groups.end(g) - groups.start(g));
+            }
+            for (int i = 0; i < groups.memberCount(); i++) {
+                out.writeInt(groups.member(i));
+            }
+            groupCache.write(out);
+        }
+        out.flush();
+    }
+
+    static boolean isTable(ByteBuffer buffer) { return buffer.remaining() >= 4 && buffer.duplicate().order(ByteOrder.BIG_ENDIAN).getInt(buffer.position()) == MAGIC; }
+
+    /**
+     * Reads a table written by {@link #write(OutputStream)}.
+     * Every map is stored as built, so this only bulk-copies arrays out of the buffer.
+     * The buffer's position is left untouched.
+     */
+    static HomoglyphTable read(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("buffer cannot be null.");
+        }
+
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (in.remaining() < 16 || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("buffer does not contain a homoglyph table.");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("table version " + version + " is not supported (expected " + VERSION + ").");
+        }
+
+        int classCount = in.getInt();
+        if (classCount < 0) {
+            throw new IllegalArgumentException("buffer does not contain a valid homoglyph table.");
+        }
+        CodePointMap classCache = CodePointMap.read(in);
+        TransformMode[] modes = TransformMode.values();
+        CodePointMap[] transforms = new CodePointMap[modes.length];
+        for (TransformMode mode : modes) {
+            transforms[mode.ordinal()] = CodePointMap.read(in, classCache, classCount);
+        }
+        CodePointMap skeletonTransform = CodePointMap.read(in, classCache, classCount);
+
+        GlyphGroups groups = null;
+        CodePointMap groupCache = null;
+        if (in.getInt() != 0) {
+            int groupCount = in.getInt();
+            int memberCount = in.getInt();
+            if (groupCount < 0 || memberCount < 0 || (long) groupCount + memberCount > in.remaining() / 4) {
+                throw new IllegalArgumentException("buffer does not contain a valid homoglyph table.");
+            }
+            int[] offsets = new int[groupCount + 1];
+            int[] members = new int[memberCount];
+            IntBuffer ints = in.asIntBuffer();
+            ints.get(offsets, 1, groupCount);
+            ints.get(members);
+            in.position(in.position() + (groupCount + memberCount) * 4);
+            for (int g = 1; g <= groupCount; g++) {
+                offsets[g] += offsets[g - 1];
+            }
+            if (offsets[groupCount] != memberCount) {
+                throw new IllegalArgumentException("buffer does not contain a valid homoglyph table.");
+            }
+            groups = new GlyphGroups(offsets, members);
+            groupCache = CodePointMap.read(in);
+        }
+
+        return new HomoglyphTable(groups, classCache, groupCache, classCount, transforms, skeletonTransform, false);
+    }
+
+    /**
+     * The caches a homoglyph list compiles into, which every transform is worked out from.
+     * They're only needed while compiling, so tables don't keep them.
+     */
+    private static final class Caches {
+        /**
+         * Ordered cache where the key is an int character and the value is the first int character of its homoglyph list
+         */
+        private final CodePointMap orderedCache;
+        /**
+         * Alphanumeric cache where the key is an int character and the value is an ASCII int character that is similar to the key
+         */
+        private final CodePointMap alphanumericCache;
+        /**
+         * Standard keyboard cache where the key is an int character and the value is an ASCII int character that is similar to the key
+         */
+        private final CodePointMap standardCache;
+        /**
+         * ASCII cache where the key is an int character and the value is an ASCII int character that is similar to the key
+         */
+        private final CodePointMap asciiCache;
+
+        private Caches(CodePointMap orderedCache, CodePointMap alphanumericCache, CodePointMap standardCache, CodePointMap asciiCache) {
+            this.orderedCache = orderedCache;
+            this.alphanumericCache = alphanumericCache;
+            this.standardCache = standardCache;
+            this.asciiCache = asciiCache;
+        }
+
+        int toOrderedASCII(int c) { return c >= 0 && c <= 255 ? c : orderedCache.getOrDefault(c, c); }
+
+        int toAlphanumeric(int c) {
+            if ((c >= 48 && c <= 57) || (c >= 65 && c <= 90) || (c >= 97 && c <= 125)) {
+                return c;
+            }
+            int r = alphanumericCache.getOrDefault(c, c);
+            if (r < 0 || r > 255) {
+                r = standardCache.getOrDefault(c, c);
+                if (r < 0 || r > 255) {
+                    r = asciiCache.getOrDefault(c, c);
+                }
+            }
+            return r;
+        }
+
+        int toStandardCharset(int c) {
+            if (c >= 32 && c <= 126) {
+                return c;
+            }
+            int r = standardCache.getOrDefault(c, c);
+            if (r < 0 || r > 255) {
+                r = asciiCache.getOrDefault(c, c);
+            }
+            return r;
+        }
+
+        int toASCII(int c) { return c >= 0 && c <= 255 ? c : asciiCache.getOrDefault(c, c); }
+    }
+}
@@ -0,0 +1,58 @@
+package ninja.egg82.homoglyph;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compiles a homoglyph list into the binary table format read by
+ * {@link HomoglyphHelper#load(java.nio.ByteBuffer)} and {@link HomoglyphHelper#create(Path)}.
+ * The build runs this against char_codes.lst to produce char_codes.bin.
+ */
+public class HomoglyphTableGenerator {
+    private HomoglyphTableGenerator() { }
+
+    /**
+     * Usage: HomoglyphTableGenerator &lt;input list&gt; &lt;output table&gt;
+     *
+     * @param args The input list and the output table paths
+     * @throws IOException If the list could not be read or the table could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: HomoglyphTableGenerator <input list> <output table>");
+            System.exit(1);
+            return;
+        }
+
+        generate(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    /**
+     * Compiles the homoglyph list at the input path into a binary table at the output path.
+     *
+     * @param input The homoglyph list to compile
+     * @param output The file to write the table to
+     * @throws IOException If the list could not be read or the table could not be written
+     */
+    public static void generate(Path input, Path output) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("input cannot be null.");
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("output cannot be null.");
+        }
+
+        HomoglyphTable table = HomoglyphTable.compile(GlyphGroups.parse(Files.newBufferedReader(input, StandardCharsets.UTF_8)));
+
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(output)) {
+            table.write(out);
+        }
+    }
+}
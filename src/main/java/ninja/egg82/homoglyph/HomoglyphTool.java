@@ -0,0 +1,284 @@
+package ninja.egg82.homoglyph;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The command line entry point of the shaded jar, which normalizes or scans large UTF-8 files.
+ *
+ * The input is memory-mapped and split into chunks that end on a line break, so no line
+ * is ever split between two of them. Chunks are processed on every core at once, and their
+ * results are written out in the same order as the input, each with a single large write.
+ * Only a few chunks per thread are held in memory at any time, however large the input is.
+ *
+ * Normalizing works on the UTF-8 bytes directly, without decoding them into strings, and
+ * copies malformed bytes as-is. Scanning writes out every line that contains any of the
+ * patterns in a list, byte for byte.
+ */
+public final class HomoglyphTool {
+    // Large enough that each chunk is a single large write, small enough to keep every core busy on modest files
+    static final int CHUNK_SIZE = 16 * 1024 * 1024;
+    // How many chunks each thread may have waiting to be written
+    private static final int IN_FLIGHT = 2;
+
+    private HomoglyphTool() { }
+
+    /**
+     * Usage: HomoglyphTool [--list &lt;file&gt;] [--threads &lt;count&gt;] &lt;mode&gt; &lt;input&gt; [output]
+     * or HomoglyphTool [--list &lt;file&gt;] [--threads &lt;count&gt;] scan &lt;patterns&gt; &lt;input&gt; [output]
+     *
+     * The mode is one of ascii, standard-charset, alphanumeric or ordered-ascii, and the
+     * patterns file holds one pattern per line. The result is written to standard output if
+     * no output file is given, and a throughput summary is printed to standard error.
+     *
+     * @param args The options, mode and paths
+     * @throws IOException If the input could not be read or the output could not be written
+     * @throws InterruptedException If interrupted while waiting for a chunk
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path list = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--list".equals(args[i]) && i + 1 < args.length) {
+                list = Paths.get(args[++i]);
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+
+        boolean scan = !positional.isEmpty() && "scan".equals(positional.get(0));
+        int paths = positional.size() - (scan ? 2 : 1);
+        TransformMode mode = scan || positional.isEmpty() ? null : mode(positional.get(0));
+        if ((!scan && mode == null) || paths < 1 || paths > 2 || threads < 1) {
+            System.err.println("Usage: HomoglyphTool [--list <file>] [--threads <count>] <ascii|standard-charset|alphanumeric|ordered-ascii> <input> [output]");
+            System.err.println("       HomoglyphTool [--list <file>] [--threads <count>] scan <patterns> <input> [output]");
+            System.exit(1);
+            return;
+        }
+
+        HomoglyphHelper helper = list != null ? HomoglyphHelper.create(list) : HomoglyphHelper.create();
+        Path input = Paths.get(positional.get(positional.size() - paths));
+        LongAdder matches = new LongAdder();
+        Job job;
+        if (scan) {
+            List<String> patterns = new ArrayList<>();
+            for (String line : Files.readAllLines(Paths.get(positional.get(1)), StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    patterns.add(line);
+                }
+            }
+            job = scan(helper.matcher(patterns), matches);
+        } else {
+            job = normalize(helper.transform(mode));
+        }
+
+        long start = System.nanoTime();
+        long written;
+        try (WritableByteChannel out = paths == 2
+                ? FileChannel.open(Paths.get(positional.get(positional.size() - 1)), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+                : new FileOutputStream(FileDescriptor.out).getChannel()) {
+            written = run(input, out, job, threads, CHUNK_SIZE);
+        }
+        long nanos = Math.max(System.nanoTime() - start, 1L);
+
+        double read = Files.size(input) / (1024.0 * 1024.0);
+        double seconds = nanos / 1_000_000_000.0;
+        System.err.println(String.format(Locale.ROOT, "Read %.1f MiB and wrote %.1f MiB in %.2fs (%.1f MiB/s) on %d threads%s",
+                read,
+                written / (1024.0 * 1024.0),
+                seconds,
+                read / seconds,
+                threads,
+                scan ? ", " + matches.sum() + " matching lines" : ""
+        ));
+    }
+
+    private static TransformMode mode(String name) {
+        for (TransformMode mode : TransformMode.values()) {
+            if (mode.name().equals(name.toUpperCase(Locale.ROOT).replace('-', '_'))) {
+                return mode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Processes one chunk of whole lines into a buffer ready to be written.
+     */
+    interface Job {
+        ByteBuffer process(ByteBuffer chunk);
+    }
+
+    /**
+     * Returns a job which transforms chunks of UTF-8 bytes, growing
+     * its output for the rare chunks whose result doesn't fit.
+     */
+    static Job normalize(CodePointMap transform) {
+        return chunk -> {
+            ByteBuffer out = ByteBuffer.allocate(chunk.remaining() + (chunk.remaining() >> 3) + 16);
+            Utf8Kernel.transform(transform, chunk, out);
+            while (chunk.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(out.capacity() * 2);
+                out.flip();
+                grown.put(out);
+                out = grown;
+                Utf8Kernel.transform(transform, chunk, out);
+            }
+            out.flip();
+            return out;
+        };
+    }
+
+    /**
+     * Returns a job which keeps the lines of a chunk that contain any of the matcher's
+     * patterns, counting them as it goes. Each line is decoded into one reused buffer,
+     * with malformed bytes replaced for matching only, and kept lines are copied as-is.
+     */
+    static Job scan(HomoglyphMatcher matcher, LongAdder matches) {
+        return chunk -> {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            // Every byte decodes to at most one char
+            CharBuffer line = CharBuffer.allocate(0);
+            ByteBuffer out = ByteBuffer.allocate(chunk.remaining() + 1);
+
+            int end = chunk.limit();
+            int start = chunk.position();
+            while (start < end) {
+                int lineEnd = start;
+                while (lineEnd < end && chunk.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+
+                ByteBuffer bytes = chunk.duplicate();
+                bytes.limit(lineEnd).position(start);
+                if (line.capacity() < lineEnd - start) {
+                    line = CharBuffer.allocate(Math.max(lineEnd - start, line.capacity() * 2));
+                }
+                line.clear();
+                decoder.reset();
+                decoder.decode(bytes, line, true);
+                decoder.flush(line);
+                line.flip();
+
+                if (matcher.containsAny(line)) {
+                    matches.increment();
+                    bytes.position(start);
+                    out.put(bytes);
+                    out.put((byte) '\n');
+                }
+                start = lineEnd + 1;
+            }
+            out.flip();
+            return out;
+        };
+    }
+
+    /**
+     * Runs the job over every chunk of the input on a pool of threads, and
+     * writes the results to the output in order. Returns the number of bytes written.
+     */
+    static long run(Path input, WritableByteChannel out, Job job, int threads, int chunkSize) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "homoglyph-tool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+        long written = 0L;
+
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0L;
+            while (position < size) {
+                ByteBuffer chunk = chunk(channel, position, size, chunkSize);
+                position += chunk.remaining();
+                pending.add(executor.submit(() -> job.process(chunk)));
+
+                if (pending.size() >= threads * IN_FLIGHT) {
+                    written += write(pending.remove(), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                written += write(pending.remove(), out);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return written;
+    }
+
+    /**
+     * Maps the next chunk of the file, ending just after the last line break in it.
+     * A line longer than the chunk size keeps doubling the mapped size until the line
+     * fits, or the end of the file is reached.
+     */
+    private static ByteBuffer chunk(FileChannel channel, long position, long size, int chunkSize) throws IOException {
+        long length = chunkSize;
+        while (true) {
+            int mapped = (int) Math.min(size - position, length);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+            if (position + mapped == size) {
+                return buffer;
+            }
+
+            for (int i = mapped - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    buffer.limit(i + 1);
+                    return buffer;
+                }
+            }
+            if (length >= Integer.MAX_VALUE) {
+                throw new IOException("Line at byte " + position + " is longer than " + Integer.MAX_VALUE + " bytes.");
+            }
+            length = Math.min(length * 2, Integer.MAX_VALUE);
+        }
+    }
+
+    private static int write(Future<ByteBuffer> future, WritableByteChannel out) throws IOException, InterruptedException {
+        ByteBuffer buffer;
+        try {
+            buffer = future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+
+        int written = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,106 @@
+package ninja.egg82.homoglyph;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer which converts homoglyphs before passing them to the underlying writer.
+ * A high surrogate at the end of a write is held back until the next write
+ * (or close) shows whether it begins a surrogate pair.
+ */
+final class HomoglyphWriter extends FilterWriter {
+    private static final int BUFFER_SIZE = 1024;
+
+    private final CodePointMap transform;
+    private final char[] scratch = new char[BUFFER_SIZE];
+    private final char[] single = new char[1];
+    private final char[] converted = new char[2];
+
+    private char carry;
+    private boolean hasCarry = false;
+
+    HomoglyphWriter(Writer out, CodePointMap transform) {
+        super(out);
+        this.transform = transform;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        single[0] = (char) c;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > str.length() - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        while (len > 0) {
+            int n = Math.min(len, BUFFER_SIZE);
+            str.getChars(off, off + n, scratch, 0);
+            write(scratch, 0, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int end = off + len;
+        int i = off;
+        if (hasCarry && i < end) {
+            hasCarry = false;
+            if (Character.isLowSurrogate(cbuf[i])) {
+                writeCodePoint(Character.toCodePoint(carry, cbuf[i++]));
+            } else {
+                writeCodePoint(carry);
+            }
+        }
+
+        int run = i;
+        while (i < end) {
+            char ch = cbuf[i];
+            if (i + 1 == end && Character.isHighSurrogate(ch)) {
+                carry = ch;
+                hasCarry = true;
+                break;
+            }
+
+            int c = Character.codePointAt(cbuf, i, end);
+            int n = Character.charCount(c);
+            int r = transform.get(c);
+            if (r != CodePointMap.NO_MAPPING) {
+                if (run < i) {
+                    out.write(cbuf, run, i - run);
+                }
+                out.write(converted, 0, Character.toChars(r, converted, 0));
+                run = i + n;
+            }
+            i += n;
+        }
+        if (run < i) {
+            out.write(cbuf, run, i - run);
+        }
+    }
+
+    private void writeCodePoint(int c) throws IOException {
+        int r = transform.get(c);
+        out.write(converted, 0, Character.toChars(r != CodePointMap.NO_MAPPING ? r : c, converted, 0));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (hasCarry) {
+            // Nothing followed it, so it's unpaired and passes through as-is
+            hasCarry = false;
+            writeCodePoint(carry);
+        }
+        out.close();
+    }
+}
@@ -0,0 +1,194 @@
+package ninja.egg82.homoglyph;
+
+/**
+ * A set of code points which searches and comparisons skip over, such as zero-width
+ * spaces, variation selectors and combining marks, so text with them sprinkled between
+ * letters still matches. Use one through {@link HomoglyphHelper#withIgnorables(IgnorableSet)}.
+ *
+ * The set is compiled into a bitmap split into 4096 code point pages, where pages with
+ * nothing in them all share one empty page, so a lookup is two array reads and the whole
+ * set usually takes a few kilobytes.
+ *
+ * Sets are immutable and can be shared between threads.
+ */
+public final class IgnorableSet {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGES = (Character.MAX_CODE_POINT + 1) >>> PAGE_BITS;
+    private static final long[] EMPTY = new long[(1 << PAGE_BITS) / Long.SIZE];
+
+    /**
+     * Returns a set of the code points that don't change how text looks on their own:
+     * format characters (zero-width spaces and joiners, the byte order mark, soft hyphens
+     * and direction marks among them), variation selectors and combining marks.
+     *
+     * @return The default set
+     */
+    public static IgnorableSet defaults() { return Defaults.SET; }
+
+    private static final class Defaults {
+        private static final IgnorableSet SET = builder()
+                .addType(Character.FORMAT)
+                .addType(Character.NON_SPACING_MARK)
+                .addType(Character.ENCLOSING_MARK)
+                .build();
+    }
+
+    /**
+     * Returns a builder for a new, empty set.
+     *
+     * @return The new builder
+     */
+    public static Builder builder() { return new Builder(); }
+
+    private final long[][] pages;
+    private final boolean ascii;
+
+    private IgnorableSet(long[][] pages) {
+        this.pages = pages;
+        this.ascii = (pages[0][0] | pages[0][1]) != 0L;
+    }
+
+    /**
+     * Returns true if the code point is in this set.
+     *
+     * @param codePoint The code point to check
+     * @return Whether or not the code point is ignored
+     */
+    public boolean contains(int codePoint) { return codePoint >= 0 && codePoint <= Character.MAX_CODE_POINT && (pages[codePoint >>> PAGE_BITS][(codePoint >>> 6) & (EMPTY.length - 1)] & (1L << codePoint)) != 0L; }
+
+    /**
+     * Returns true if any ASCII code point is in this set, in which case
+     * runs of ASCII can't be compared in bulk without checking each one.
+     */
+    boolean ignoresASCII() { return ascii; }
+
+    /**
+     * Returns the index of the first char at or after the index given
+     * which doesn't start an ignored code point, or the end index.
+     * The code points stepped over are handed to the recorder, if there is one.
+     */
+    int skip(CharSequence text, int index, int end, CallRecorder recorder) {
+        while (index < end) {
+            int c = TransformKernel.codePointAt(text, index, end);
+            if (!contains(c)) {
+                break;
+            }
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            index += Character.charCount(c);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index after the last char before the index given
+     * which doesn't end an ignored code point, or the start index.
+     * The code points stepped over are handed to the recorder, if there is one.
+     */
+    int skipBack(CharSequence text, int index, int start, CallRecorder recorder) {
+        while (index > start) {
+            int c = TransformKernel.codePointBefore(text, index, start);
+            if (!contains(c)) {
+                break;
+            }
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            index -= Character.charCount(c);
+        }
+        return index;
+    }
+
+    public static final class Builder {
+        private final long[][] pages = new long[PAGES][];
+
+        private Builder() { }
+
+        /**
+         * Adds a code point to the set.
+         *
+         * @param codePoint The code point to add
+         * @return This builder
+         */
+        public Builder add(int codePoint) { return addRange(codePoint, codePoint); }
+
+        /**
+         * Adds every code point in a range to the set.
+         *
+         * @param from The first code point to add
+         * @param to The last code point to add, inclusive
+         * @return This builder
+         */
+        public Builder addRange(int from, int to) {
+            if (from < 0 || to > Character.MAX_CODE_POINT || from > to) {
+                throw new IllegalArgumentException("from and to must be a valid range of code points.");
+            }
+            for (int c = from; c <= to; c++) {
+                set(c);
+            }
+            return this;
+        }
+
+        /**
+         * Adds every code point of a general category to the set, such as
+         * {@link Character#FORMAT} or {@link Character#OTHER_PUNCTUATION}.
+         *
+         * @param type The category, as returned by {@link Character#getType(int)}
+         * @return This builder
+         */
+        public Builder addType(int type) {
+            for (int c = 0; c <= Character.MAX_CODE_POINT; c++) {
+                if (Character.getType(c) == type) {
+                    set(c);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds every code point of the set given to this set.
+         *
+         * @param set The set to add
+         * @return This builder
+         */
+        public Builder addAll(IgnorableSet set) {
+            if (set == null) {
+                throw new IllegalArgumentException("set cannot be null.");
+            }
+            for (int p = 0; p < PAGES; p++) {
+                if (set.pages[p] == EMPTY) {
+                    continue;
+                }
+                long[] page = page(p);
+                for (int w = 0; w < page.length; w++) {
+                    page[w] |= set.pages[p][w];
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Builds the set. The builder can keep being used afterwards
+         * without changing the set.
+         *
+         * @return The new set
+         */
+        public IgnorableSet build() {
+            long[][] built = new long[PAGES][];
+            for (int p = 0; p < PAGES; p++) {
+                built[p] = pages[p] != null ? pages[p].clone() : EMPTY;
+            }
+            return new IgnorableSet(built);
+        }
+
+        private void set(int c) { page(c >>> PAGE_BITS)[(c >>> 6) & (EMPTY.length - 1)] |= 1L << c; }
+
+        private long[] page(int p) {
+            if (pages[p] == null) {
+                pages[p] = new long[EMPTY.length];
+            }
+            return pages[p];
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ninja.egg82.homoglyph;
+
+/**
+ * Receives the matches found by a {@link HomoglyphMatcher}.
+ */
+@FunctionalInterface
+public interface MatchHandler {
+    /**
+     * Called once for every match found.
+     *
+     * @param pattern The index of the pattern that matched, in the order the patterns were given
+     * @param start The index of the first char of the match
+     * @param end The index after the last char of the match
+     * @return True to keep searching, false to stop
+     */
+    boolean onMatch(int pattern, int start, int end);
+}
@@ -0,0 +1,20 @@
+package ninja.egg82.homoglyph;
+
+/**
+ * Receives the matches found by {@link HomoglyphMatcher#matchLongest(CharSequence, RangeHandler)},
+ * with their positions as both char and code point indexes.
+ */
+@FunctionalInterface
+public interface RangeHandler {
+    /**
+     * Called once for every match found.
+     *
+     * @param pattern The index of the pattern that matched, in the order the patterns were given
+     * @param start The index of the first char of the match
+     * @param end The index after the last char of the match
+     * @param codePointStart The index of the first code point of the match
+     * @param codePointEnd The index after the last code point of the match
+     * @return True to keep searching, false to stop
+     */
+    boolean onMatch(int pattern, int start, int end, int codePointStart, int codePointEnd);
+}
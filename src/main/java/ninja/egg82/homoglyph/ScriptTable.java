@@ -0,0 +1,55 @@
+package ninja.egg82.homoglyph;
+
+/**
+ * The {@link Character.UnicodeScript} of every code point, compiled into 256 code point
+ * pages of script ordinals so a lookup is two array reads instead of the binary search
+ * {@link Character.UnicodeScript#of(int)} does. Pages that are all one script, which
+ * covers unassigned planes and most of the large CJK blocks, share one page per script.
+ *
+ * The table is built the first time it's used, from whichever Unicode version the
+ * running JDK supports.
+ */
+final class ScriptTable {
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_COUNT = (Character.MAX_CODE_POINT + 1) >>> PAGE_SHIFT;
+
+    static final Character.UnicodeScript[] SCRIPTS = Character.UnicodeScript.values();
+
+    private static final byte[][] PAGES = build();
+
+    private ScriptTable() { }
+
+    private static byte[][] build() {
+        if (SCRIPTS.length > 256) {
+            throw new IllegalStateException("There are too many scripts to fit in a byte.");
+        }
+
+        byte[][] pages = new byte[PAGE_COUNT][];
+        byte[][] uniform = new byte[SCRIPTS.length][];
+        byte[] page = new byte[PAGE_SIZE];
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            boolean same = true;
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                page[i] = (byte) Character.UnicodeScript.of((p << PAGE_SHIFT) | i).ordinal();
+                same &= page[i] == page[0];
+            }
+
+            if (!same) {
+                pages[p] = page.clone();
+            } else {
+                int script = page[0] & 0xFF;
+                if (uniform[script] == null) {
+                    uniform[script] = page.clone();
+                }
+                pages[p] = uniform[script];
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Returns the ordinal of the code point's script, which must be a valid code point.
+     */
+    static int script(int codePoint) { return PAGES[codePoint >>> PAGE_SHIFT][codePoint & (PAGE_SIZE - 1)] & 0xFF; }
+}
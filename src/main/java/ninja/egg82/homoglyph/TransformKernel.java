@@ -0,0 +1,326 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+
+/**
+ * The loops behind every {@link HomoglyphHelper} transform.
+ * Each one walks its input's code points in place and copies
+ * unchanged runs as a whole, so nothing is allocated beyond
+ * what the output itself needs.
+ */
+final class TransformKernel {
+    // The FNV-1a offset basis every hash64 starts from
+    static final long HASH_SEED = 0xCBF29CE484222325L;
+
+    private TransformKernel() { }
+
+    /**
+     * Returns the code point at the given index, pairing surrogates
+     * the same way {@link String#codePointAt(int)} does, but without
+     * looking past the end index.
+     */
+    static int codePointAt(CharSequence text, int index, int end) {
+        char high = text.charAt(index);
+        if (Character.isHighSurrogate(high) && index + 1 < end) {
+            char low = text.charAt(index + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(high, low);
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns the code point before the given index, pairing surrogates
+     * the same way {@link String#codePointBefore(int)} does, but without
+     * looking before the start index.
+     */
+    static int codePointBefore(CharSequence text, int index, int start) {
+        char low = text.charAt(index - 1);
+        if (Character.isLowSurrogate(low) && index - 2 >= start) {
+            char high = text.charAt(index - 2);
+            if (Character.isHighSurrogate(high)) {
+                return Character.toCodePoint(high, low);
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first char at or after the given index that isn't ASCII, or the end index.
+     * Transforms that leave ASCII alone skip these runs without decoding or looking anything up.
+     */
+    static int skipASCII(CharSequence text, int index, int end) {
+        while (index < end && text.charAt(index) < 0x80) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns how many ASCII chars the two strings have in common from the given indexes,
+     * up to the given maximum. Equal ASCII is always similar, and never ignored unless the
+     * ignored set has ASCII in it, so comparisons step over these runs as a whole.
+     */
+    static int sameASCII(String one, int i, String two, int j, int max) {
+        int n = 0;
+        while (n < max) {
+            char c = one.charAt(i + n);
+            if (c >= 0x80 || c != two.charAt(j + n)) {
+                break;
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns how many ASCII chars the two strings have in common before the given indexes,
+     * up to the given maximum, the same way {@link #sameASCII(String, int, String, int, int)} does.
+     */
+    static int sameASCIIBefore(String one, int i, String two, int j, int max) {
+        int n = 0;
+        while (n < max) {
+            char c = one.charAt(i - n - 1);
+            if (c >= 0x80 || c != two.charAt(j - n - 1)) {
+                break;
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the index of the first code point the transform changes, or -1 if there is none,
+     * handing every code point it decodes on the way to the recorder, if there is one.
+     */
+    static int firstChange(CodePointMap transform, CharSequence unicode, int start, int end, CallRecorder recorder) {
+        boolean skipASCII = !transform.mapsASCII();
+        int i = start;
+        while (i < end) {
+            if (skipASCII) {
+                i = skipASCII(unicode, i, end);
+                if (i == end) {
+                    break;
+                }
+            }
+            int c = codePointAt(unicode, i, end);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            if (transform.get(c) != CodePointMap.NO_MAPPING) {
+                return i;
+            }
+            i += Character.charCount(c);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the transformed sequence, or the sequence itself if the transform doesn't change it.
+     */
+    static CharSequence transform(CodePointMap transform, CharSequence unicode, CallRecorder recorder) {
+        int first = firstChange(transform, unicode, 0, unicode.length(), recorder);
+        if (first == -1) {
+            return unicode;
+        }
+
+        StringBuilder result = new StringBuilder(unicode.length());
+        result.append(unicode, 0, first);
+        return append(transform, unicode, first, unicode.length(), result, recorder).toString();
+    }
+
+    /**
+     * Returns the transformed sequence with every ignored code point left out,
+     * or the sequence itself if that doesn't change it.
+     */
+    static CharSequence transform(CodePointMap transform, CharSequence unicode, IgnorableSet ignorables) { return transform(transform, unicode, ignorables, null); }
+
+    /**
+     * Returns the transformed sequence with every ignored code point left out,
+     * or the sequence itself if that doesn't change it, handing every code point
+     * it decodes to the recorder, if there is one.
+     */
+    static CharSequence transform(CodePointMap transform, CharSequence unicode, IgnorableSet ignorables, CallRecorder recorder) {
+        if (ignorables == null) {
+            return transform(transform, unicode, recorder);
+        }
+
+        StringBuilder result = null;
+        int end = unicode.length();
+        int run = 0;
+        int i = 0;
+        while (i < end) {
+            int c = codePointAt(unicode, i, end);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            int n = Character.charCount(c);
+            boolean ignored = ignorables.contains(c);
+            int r = ignored ? CodePointMap.NO_MAPPING : transform.get(c);
+            if (ignored || r != CodePointMap.NO_MAPPING) {
+                if (result == null) {
+                    result = new StringBuilder(end);
+                }
+                result.append(unicode, run, i);
+                if (!ignored) {
+                    result.appendCodePoint(r);
+                }
+                run = i + n;
+            }
+            i += n;
+        }
+        return result != null ? result.append(unicode, run, end).toString() : unicode;
+    }
+
+    static StringBuilder append(CodePointMap transform, CharSequence unicode, int start, int end, StringBuilder out, CallRecorder recorder) {
+        boolean skipASCII = !transform.mapsASCII();
+        int run = start;
+        int i = start;
+        while (i < end) {
+            if (skipASCII) {
+                i = skipASCII(unicode, i, end);
+                if (i == end) {
+                    break;
+                }
+            }
+            int c = codePointAt(unicode, i, end);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            int n = Character.charCount(c);
+            int r = transform.get(c);
+            if (r != CodePointMap.NO_MAPPING) {
+                if (run < i) {
+                    out.append(unicode, run, i);
+                }
+                out.appendCodePoint(r);
+                run = i + n;
+            }
+            i += n;
+        }
+        if (run < end) {
+            out.append(unicode, run, end);
+        }
+        return out;
+    }
+
+    static <T extends Appendable> T append(CodePointMap transform, CharSequence unicode, int start, int end, T out, CallRecorder recorder) throws IOException {
+        boolean skipASCII = !transform.mapsASCII();
+        int run = start;
+        int i = start;
+        while (i < end) {
+            if (skipASCII) {
+                i = skipASCII(unicode, i, end);
+                if (i == end) {
+                    break;
+                }
+            }
+            int c = codePointAt(unicode, i, end);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            int n = Character.charCount(c);
+            int r = transform.get(c);
+            if (r != CodePointMap.NO_MAPPING) {
+                if (run < i) {
+                    out.append(unicode, run, i);
+                }
+                if (Character.isBmpCodePoint(r)) {
+                    out.append((char) r);
+                } else {
+                    out.append(Character.highSurrogate(r));
+                    out.append(Character.lowSurrogate(r));
+                }
+                run = i + n;
+            }
+            i += n;
+        }
+        if (run < end) {
+            out.append(unicode, run, end);
+        }
+        return out;
+    }
+
+    /**
+     * Returns a 64-bit hash of the transformed sequence without building it.
+     * This is FNV-1a over whole code points, finished with the MurmurHash3 mixer
+     * so short inputs still spread over every bit.
+     */
+    static long hash64(CodePointMap transform, CharSequence unicode, IgnorableSet ignorables) {
+        long hash = HASH_SEED;
+        int end = unicode.length();
+        int i = 0;
+        while (i < end) {
+            int c = codePointAt(unicode, i, end);
+            i += Character.charCount(c);
+            if (ignorables != null && ignorables.contains(c)) {
+                continue;
+            }
+            hash = hash(hash, transform.getOrDefault(c, c));
+        }
+        return finish(hash);
+    }
+
+    /**
+     * Adds one code point to a hash started from {@link #HASH_SEED}.
+     */
+    static long hash(long hash, int codePoint) { return (hash ^ codePoint) * 0x100000001B3L; }
+
+    /**
+     * Mixes a hash built by {@link #hash(long, int)} into its final value.
+     */
+    static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Writes the transformed sequence into the array and returns the number of chars written.
+     */
+    static int write(CodePointMap transform, CharSequence unicode, int start, int end, char[] out, int offset, CallRecorder recorder) {
+        boolean skipASCII = !transform.mapsASCII();
+        int o = offset;
+        int i = start;
+        while (i < end) {
+            if (skipASCII) {
+                int next = skipASCII(unicode, i, end);
+                o = getChars(unicode, i, next, out, o);
+                i = next;
+                if (i == end) {
+                    break;
+                }
+            }
+            int c = codePointAt(unicode, i, end);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            int r = transform.get(c);
+            if (r != CodePointMap.NO_MAPPING) {
+                o += Character.toChars(r, out, o);
+            } else {
+                out[o++] = unicode.charAt(i);
+                if (c > Character.MAX_VALUE) {
+                    out[o++] = unicode.charAt(i + 1);
+                }
+            }
+            i += Character.charCount(c);
+        }
+        return o - offset;
+    }
+
+    private static int getChars(CharSequence unicode, int start, int end, char[] out, int offset) {
+        if (unicode instanceof String) {
+            ((String) unicode).getChars(start, end, out, offset);
+        } else {
+            for (int i = start; i < end; i++) {
+                out[offset + i - start] = unicode.charAt(i);
+            }
+        }
+        return offset + end - start;
+    }
+}
@@ -0,0 +1,24 @@
+package ninja.egg82.homoglyph;
+
+/**
+ * The conversions a {@link HomoglyphHelper} can apply,
+ * for the methods that take the conversion as a parameter.
+ */
+public enum TransformMode {
+    /**
+     * The conversion done by {@link HomoglyphHelper#toOrderedASCII(String)}
+     */
+    ORDERED_ASCII,
+    /**
+     * The conversion done by {@link HomoglyphHelper#toAlphanumeric(String)}
+     */
+    ALPHANUMERIC,
+    /**
+     * The conversion done by {@link HomoglyphHelper#toStandardCharset(String)}
+     */
+    STANDARD_CHARSET,
+    /**
+     * The conversion done by {@link HomoglyphHelper#toASCII(String)}
+     */
+    ASCII
+}
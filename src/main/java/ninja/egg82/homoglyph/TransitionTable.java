@@ -0,0 +1,119 @@
+package ninja.egg82.homoglyph;
+
+import java.util.Arrays;
+
+/**
+ * The edges of a trie over homoglyph symbols, as an open-addressed hash from
+ * (state, symbol) to state. Symbols cover every code point, so per-state
+ * arrays are out of the question.
+ */
+final class TransitionTable {
+    static final int NONE = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    TransitionTable(int expected) {
+        // At most half full, so probes stay short
+        int capacity = Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) * 2;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NONE);
+        mask = capacity - 1;
+    }
+
+    int get(int state, int symbol) {
+        long key = key(state, symbol);
+        int i = slot(key);
+        int value;
+        while ((value = values[i]) != NONE) {
+            if (keys[i] == key) {
+                return value;
+            }
+            i = (i + 1) & mask;
+        }
+        return NONE;
+    }
+
+    void put(int state, int symbol, int value) {
+        if ((size + 1) * 2 > values.length) {
+            resize(values.length * 2);
+        }
+
+        long key = key(state, symbol);
+        int i = slot(key);
+        while (values[i] != NONE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    void remove(int state, int symbol) {
+        long key = key(state, symbol);
+        int i = slot(key);
+        while (keys[i] != key || values[i] == NONE) {
+            if (values[i] == NONE) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        values[i] = NONE;
+        size--;
+
+        // Shift back anything further along the probe run that can no longer be reached
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == NONE) {
+                return;
+            }
+            int k = slot(keys[j]);
+            boolean reachable = i <= j ? i < k && k <= j : i < k || k <= j;
+            if (!reachable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = NONE;
+                i = j;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NONE);
+        mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != NONE) {
+                int j = slot(oldKeys[i]);
+                while (values[j] != NONE) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private static long key(int state, int symbol) { return ((long) state << 32) | (symbol & 0xFFFFFFFFL); }
+
+    private int slot(long key) {
+        // The finalizer from MurmurHash3, to spread sequential states and symbols
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
@@ -0,0 +1,414 @@
+package ninja.egg82.homoglyph;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The loops behind the {@link HomoglyphHelper} methods that work on UTF-8 bytes.
+ * Code points are decoded in place with absolute indexes, so neither heap nor
+ * direct buffers are ever copied into a String first.
+ *
+ * Bytes that aren't part of a well-formed UTF-8 sequence are handled one at a time,
+ * the same way unpaired surrogates are in the char versions: they're never transformed,
+ * and they're only similar to the exact same byte.
+ */
+final class Utf8Kernel {
+    // The top bit of every byte in a long, which are all clear exactly when all eight bytes are ASCII
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private Utf8Kernel() { }
+
+    /**
+     * Returns the code point at the given index, or the complement of the byte at
+     * that index (which is always negative) if it doesn't begin a well-formed sequence.
+     */
+    static int codePointAt(ByteBuffer buffer, int index, int end) {
+        int b0 = buffer.get(index);
+        if (b0 >= 0) {
+            return b0;
+        }
+        b0 &= 0xFF;
+
+        if (b0 >= 0xC2 && b0 <= 0xDF) {
+            if (index + 1 < end) {
+                int b1 = buffer.get(index + 1);
+                if (isContinuation(b1)) {
+                    return ((b0 & 0x1F) << 6) | (b1 & 0x3F);
+                }
+            }
+        } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+            if (index + 2 < end) {
+                int b1 = buffer.get(index + 1) & 0xFF;
+                int b2 = buffer.get(index + 2);
+                // Reject overlong forms and encoded surrogates
+                int min = b0 == 0xE0 ? 0xA0 : 0x80;
+                int max = b0 == 0xED ? 0x9F : 0xBF;
+                if (b1 >= min && b1 <= max && isContinuation(b2)) {
+                    return ((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F);
+                }
+            }
+        } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+            if (index + 3 < end) {
+                int b1 = buffer.get(index + 1) & 0xFF;
+                int b2 = buffer.get(index + 2);
+                int b3 = buffer.get(index + 3);
+                // Reject overlong forms and anything past U+10FFFF
+                int min = b0 == 0xF0 ? 0x90 : 0x80;
+                int max = b0 == 0xF4 ? 0x8F : 0xBF;
+                if (b1 >= min && b1 <= max && isContinuation(b2) && isContinuation(b3)) {
+                    return ((b0 & 0x07) << 18) | ((b1 & 0x3F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F);
+                }
+            }
+        }
+        return ~b0;
+    }
+
+    /**
+     * Returns the index of the first byte at or after the given index that isn't ASCII, or the end index.
+     * Bytes are checked eight at a time for as long as there are eight left, or a whole vector
+     * at a time where {@link VectorKernel} can.
+     */
+    static int skipASCII(ByteBuffer buffer, int index, int end) {
+        if (VectorKernel.ENABLED && buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return VectorKernel.skipASCII(buffer.array(), offset + index, offset + end) - offset;
+        }
+        if (VectorKernel.BUFFERS) {
+            return VectorKernel.skipASCII(buffer, index, end);
+        }
+
+        while (index + 8 <= end && (buffer.getLong(index) & HIGH_BITS) == 0) {
+            index += 8;
+        }
+        while (index < end && buffer.get(index) >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns how many ASCII bytes the two buffers have in common from the given indexes,
+     * up to the given maximum. Bytes are compared eight at a time when both buffers read
+     * longs in the same byte order.
+     */
+    static int sameASCII(ByteBuffer one, int i, ByteBuffer two, int j, int max) {
+        if (VectorKernel.ENABLED && one.hasArray() && two.hasArray()) {
+            return VectorKernel.sameASCII(one.array(), one.arrayOffset() + i, two.array(), two.arrayOffset() + j, max);
+        }
+        if (VectorKernel.BUFFERS) {
+            return VectorKernel.sameASCII(one, i, two, j, max);
+        }
+
+        int n = 0;
+        if (one.order() == two.order()) {
+            while (n + 8 <= max) {
+                long word = one.getLong(i + n);
+                if (word != two.getLong(j + n) || (word & HIGH_BITS) != 0) {
+                    break;
+                }
+                n += 8;
+            }
+        }
+        while (n < max) {
+            byte b = one.get(i + n);
+            if (b < 0 || b != two.get(j + n)) {
+                break;
+            }
+            n++;
+        }
+        return n;
+    }
+
+    private static boolean isContinuation(int b) { return (b & 0xC0) == 0x80; }
+
+    /**
+     * Returns the number of bytes consumed by a value returned from {@link #codePointAt(ByteBuffer, int, int)}.
+     */
+    static int length(int c) { return c < 0 ? 1 : encodedLength(c); }
+
+    static int encodedLength(int c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800) {
+            return 2;
+        }
+        return c < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * Writes the code point at the given index and returns the index after it.
+     */
+    static int encode(int c, ByteBuffer out, int index) {
+        if (c < 0x80) {
+            out.put(index++, (byte) c);
+        } else if (c < 0x800) {
+            out.put(index++, (byte) (0xC0 | (c >>> 6)));
+            out.put(index++, (byte) (0x80 | (c & 0x3F)));
+        } else if (c < 0x10000) {
+            out.put(index++, (byte) (0xE0 | (c >>> 12)));
+            out.put(index++, (byte) (0x80 | ((c >>> 6) & 0x3F)));
+            out.put(index++, (byte) (0x80 | (c & 0x3F)));
+        } else {
+            out.put(index++, (byte) (0xF0 | (c >>> 18)));
+            out.put(index++, (byte) (0x80 | ((c >>> 12) & 0x3F)));
+            out.put(index++, (byte) (0x80 | ((c >>> 6) & 0x3F)));
+            out.put(index++, (byte) (0x80 | (c & 0x3F)));
+        }
+        return index;
+    }
+
+    /**
+     * Transforms the remaining bytes of src into dst, advancing both positions.
+     * Stops early (on a code point boundary) if dst fills up, so src's position
+     * marks where to carry on from. Returns the number of bytes written.
+     */
+    static int transform(CodePointMap transform, ByteBuffer src, ByteBuffer dst) { return transform(transform, src, dst, null); }
+
+    static int transform(CodePointMap transform, ByteBuffer src, ByteBuffer dst, CallRecorder recorder) {
+        boolean skipASCII = !transform.mapsASCII();
+        int end = src.limit();
+        int limit = dst.limit();
+        int o = dst.position();
+
+        int run = src.position();
+        int i = run;
+        while (i < end) {
+            // Whatever's left in dst once the unchanged run so far is copied
+            int room = limit - o - (i - run);
+            if (room == 0) {
+                break;
+            }
+
+            if (skipASCII && src.get(i) >= 0) {
+                // Plain ASCII never changes, so it's copied with the rest of the run without decoding
+                i = skipASCII(src, i, Math.min(end, i + room));
+                continue;
+            }
+
+            int c = codePointAt(src, i, end);
+            int n = length(c);
+            int r = c < 0 ? CodePointMap.NO_MAPPING : transform.get(c);
+            if (r == CodePointMap.NO_MAPPING ? n > room : encodedLength(r) > room) {
+                // Left for the next call to read
+                break;
+            }
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            if (r == CodePointMap.NO_MAPPING) {
+                i += n;
+                continue;
+            }
+
+            o = copy(src, run, dst, o, i - run);
+            o = encode(r, dst, o);
+            i += n;
+            run = i;
+        }
+        o = copy(src, run, dst, o, i - run);
+
+        int written = o - dst.position();
+        src.position(i);
+        dst.position(o);
+        return written;
+    }
+
+    private static int copy(ByteBuffer src, int start, ByteBuffer dst, int index, int length) {
+        if (length == 0) {
+            return index;
+        }
+
+        if (src.hasArray() && dst.hasArray()) {
+            System.arraycopy(src.array(), src.arrayOffset() + start, dst.array(), dst.arrayOffset() + index, length);
+        } else {
+            // Direct buffers copy in bulk through views
+            ByteBuffer from = src.duplicate();
+            from.limit(start + length);
+            from.position(start);
+            ByteBuffer into = dst.duplicate();
+            into.position(index);
+            into.put(from);
+        }
+        return index + length;
+    }
+
+    /**
+     * Returns true if the two ranges are equal, given variance for homoglyphs,
+     * stepping over ignored code points on both sides. ASCII runs are compared
+     * in bulk unless the ignored set has ASCII code points in it. Code points
+     * read from one are handed to the recorder, if there is one.
+     */
+    static boolean equals(HomoglyphTable table, IgnorableSet ignorables, ByteBuffer one, int oneStart, int oneEnd, ByteBuffer two, int twoStart, int twoEnd, CallRecorder recorder) {
+        boolean bulk = ignorables == null || !ignorables.ignoresASCII();
+        int i = skip(ignorables, one, oneStart, oneEnd, recorder);
+        int j = skip(ignorables, two, twoStart, twoEnd, null);
+        while (i < oneEnd && j < twoEnd) {
+            int same = bulk ? sameASCII(one, i, two, j, Math.min(oneEnd - i, twoEnd - j)) : 0;
+            if (same > 0) {
+                i = skip(ignorables, one, i + same, oneEnd, recorder);
+                j = skip(ignorables, two, j + same, twoEnd, null);
+                continue;
+            }
+
+            int o = codePointAt(one, i, oneEnd);
+            int t = codePointAt(two, j, twoEnd);
+            if (recorder != null) {
+                recorder.read(o);
+            }
+            if (!table.similar(o, t)) {
+                return false;
+            }
+            i = skip(ignorables, one, i + length(o), oneEnd, recorder);
+            j = skip(ignorables, two, j + length(t), twoEnd, null);
+        }
+        return i == oneEnd && j == twoEnd;
+    }
+
+    /**
+     * Returns the index of the first byte at or after the index given which doesn't
+     * start an ignored code point, or the end index. Malformed bytes are never ignored.
+     * The code points stepped over are handed to the recorder, if there is one.
+     */
+    private static int skip(IgnorableSet ignorables, ByteBuffer buffer, int index, int end, CallRecorder recorder) {
+        if (ignorables == null) {
+            return index;
+        }
+        while (index < end) {
+            int c = codePointAt(buffer, index, end);
+            if (!ignorables.contains(c)) {
+                break;
+            }
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            index += length(c);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the first byte of the first match, or -1 if there is none.
+     * Both sides are decoded into homoglyph class symbols, with malformed bytes kept as
+     * their own negative values, and the needle's symbols are searched for with
+     * Knuth-Morris-Pratt the same way {@link HomoglyphPattern} does, so the search
+     * never backs up in the haystack. Tables whose lists overlap fall back to
+     * a plain comparison at every position. Ignored code points are left out of the
+     * needle and stepped over in the haystack, and a match never starts on one.
+     * Code points read from the haystack are handed to the recorder, if there is one.
+     */
+    static int indexOf(HomoglyphTable table, IgnorableSet ignorables, ByteBuffer haystack, int haystackStart, int haystackEnd, ByteBuffer needle, int needleStart, int needleEnd, CallRecorder recorder) {
+        if (table.overlaps()) {
+            return indexOfSimilar(table, ignorables, haystack, haystackStart, haystackEnd, needle, needleStart, needleEnd, recorder);
+        }
+
+        int length = 0;
+        for (int j = skip(ignorables, needle, needleStart, needleEnd, null); j < needleEnd; j = skip(ignorables, needle, j + length(codePointAt(needle, j, needleEnd)), needleEnd, null)) {
+            length++;
+        }
+        if (length == 0) {
+            return haystackStart;
+        }
+        int[] symbols = new int[length];
+        int n = 0;
+        for (int j = skip(ignorables, needle, needleStart, needleEnd, null); j < needleEnd; ) {
+            int c = codePointAt(needle, j, needleEnd);
+            symbols[n++] = symbol(table, c);
+            j = skip(ignorables, needle, j + length(c), needleEnd, null);
+        }
+        int[] borders = HomoglyphPattern.borders(symbols);
+
+        // Where each of the last few compared code points started, to find where a match began
+        int[] starts = new int[length];
+        int compared = 0;
+        int k = 0;
+        int i = haystackStart;
+        while (i < haystackEnd) {
+            int c = codePointAt(haystack, i, haystackEnd);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            if (ignorables != null && ignorables.contains(c)) {
+                i += length(c);
+                continue;
+            }
+            starts[compared++ % length] = i;
+            i += length(c);
+
+            int symbol = symbol(table, c);
+            while (k > 0 && symbol != symbols[k]) {
+                k = borders[k - 1];
+            }
+            if (symbol == symbols[k]) {
+                k++;
+                if (k == length) {
+                    return starts[compared % length];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the homoglyph class symbol of a value returned from {@link #codePointAt(ByteBuffer, int, int)}.
+     * Malformed bytes are negative, and symbols never are, so they only ever match the same byte.
+     */
+    private static int symbol(HomoglyphTable table, int c) { return c < 0 ? c : table.symbol(c); }
+
+    private static int indexOfSimilar(HomoglyphTable table, IgnorableSet ignorables, ByteBuffer haystack, int haystackStart, int haystackEnd, ByteBuffer needle, int needleStart, int needleEnd, CallRecorder recorder) {
+        boolean bulk = ignorables == null || !ignorables.ignoresASCII();
+        int first = skip(ignorables, needle, needleStart, needleEnd, null);
+        if (first == needleEnd) {
+            return haystackStart;
+        }
+
+        // The haystack is recorded as the start moves through it, and whatever the last
+        // comparison read past the start is recorded once it's known to be the last
+        int s = skip(ignorables, haystack, haystackStart, haystackEnd, recorder);
+        while (s < haystackEnd) {
+            int i = s;
+            int j = first;
+            while (i < haystackEnd && j < needleEnd) {
+                int same = bulk ? sameASCII(haystack, i, needle, j, Math.min(haystackEnd - i, needleEnd - j)) : 0;
+                if (same > 0) {
+                    i = skip(ignorables, haystack, i + same, haystackEnd, null);
+                    j = skip(ignorables, needle, j + same, needleEnd, null);
+                    continue;
+                }
+
+                int h = codePointAt(haystack, i, haystackEnd);
+                int p = codePointAt(needle, j, needleEnd);
+                if (!table.similar(h, p)) {
+                    break;
+                }
+                i = skip(ignorables, haystack, i + length(h), haystackEnd, null);
+                j = skip(ignorables, needle, j + length(p), needleEnd, null);
+            }
+            if (j == needleEnd) {
+                read(recorder, haystack, s, i);
+                return s;
+            }
+            if (i == haystackEnd) {
+                // The rest of the haystack ran out before the needle did, so no later start can match either
+                read(recorder, haystack, s, i);
+                return -1;
+            }
+            int c = codePointAt(haystack, s, haystackEnd);
+            if (recorder != null) {
+                recorder.read(c);
+            }
+            s = skip(ignorables, haystack, s + length(c), haystackEnd, recorder);
+        }
+        return -1;
+    }
+
+    private static void read(CallRecorder recorder, ByteBuffer buffer, int index, int end) {
+        if (recorder == null) {
+            return;
+        }
+        while (index < end) {
+            int c = codePointAt(buffer, index, end);
+            recorder.read(c);
+            index += length(c);
+        }
+    }
+}
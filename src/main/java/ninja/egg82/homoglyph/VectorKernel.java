@@ -0,0 +1,77 @@
+package ninja.egg82.homoglyph;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Byte array and buffer scans that a JDK 17+ runtime can run with SIMD instructions.
+ *
+ * This is the version Java 8 through 16 load, which never vectorizes and leaves
+ * {@link Utf8Kernel} to scan a word at a time on its own. The jar carries a second
+ * version in META-INF/versions/17 which uses jdk.incubator.vector when that module
+ * is resolved (with --add-modules jdk.incubator.vector) and falls back to this
+ * behaviour when it isn't.
+ */
+final class VectorKernel {
+    /**
+     * Whether the methods below are worth calling instead of the word-at-a-time scans.
+     * The JIT treats this as a constant and drops whichever branch doesn't apply.
+     */
+    static final boolean ENABLED = enabled();
+
+    /**
+     * Whether the buffer methods below are worth calling for buffers without an accessible array.
+     */
+    static final boolean BUFFERS = buffers();
+
+    private VectorKernel() { }
+
+    // Not compile-time constants, or javac would fold this version's values into every
+    // caller and the META-INF/versions/17 class would never get a say
+    private static boolean enabled() { return false; }
+
+    private static boolean buffers() { return false; }
+
+    /**
+     * Returns the index of the first byte at or after the given index that isn't ASCII, or the end index.
+     */
+    static int skipASCII(byte[] array, int index, int end) {
+        while (index < end && array[index] >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns how many ASCII bytes the two arrays have in common from the given indexes,
+     * up to the given maximum.
+     */
+    static int sameASCII(byte[] one, int i, byte[] two, int j, int max) {
+        int n = 0;
+        while (n < max && one[i + n] >= 0 && one[i + n] == two[j + n]) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the index of the first byte at or after the given index that isn't ASCII, or the end index.
+     */
+    static int skipASCII(ByteBuffer buffer, int index, int end) {
+        while (index < end && buffer.get(index) >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns how many ASCII bytes the two buffers have in common from the given indexes,
+     * up to the given maximum.
+     */
+    static int sameASCII(ByteBuffer one, int i, ByteBuffer two, int j, int max) {
+        int n = 0;
+        while (n < max && one.get(i + n) >= 0 && one.get(i + n) == two.get(j + n)) {
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,107 @@
+package ninja.egg82.homoglyph;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Byte array and buffer scans that run with SIMD instructions through jdk.incubator.vector.
+ *
+ * This is the version JDK 17+ loads from META-INF/versions/17. Incubator modules
+ * aren't resolved unless the application asks for them, so everything that touches
+ * the Vector API lives in {@link VectorScan}, which is only linked once the module
+ * is known to be there. Setting the homoglyph.vector system property to false turns
+ * this off regardless.
+ */
+final class VectorKernel {
+    /**
+     * Whether the methods below are worth calling instead of the word-at-a-time scans.
+     * The JIT treats this as a constant and drops whichever branch doesn't apply.
+     */
+    static final boolean ENABLED = enabled();
+
+    /**
+     * Whether the buffer methods below are worth calling for buffers without an accessible array.
+     * Loading vectors straight from a buffer went away in JDK 20, so this can be off while
+     * {@link #ENABLED} is on.
+     */
+    static final boolean BUFFERS = ENABLED && buffers();
+
+    private VectorKernel() { }
+
+    private static boolean enabled() {
+        if (!Boolean.parseBoolean(System.getProperty("homoglyph.vector", "true"))) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorScan.supported();
+        } catch (LinkageError ignored) {
+            return false;
+        }
+    }
+
+    private static boolean buffers() {
+        try {
+            return VectorScan.buffersSupported();
+        } catch (LinkageError ignored) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the index of the first byte at or after the given index that isn't ASCII, or the end index.
+     */
+    static int skipASCII(byte[] array, int index, int end) {
+        if (ENABLED) {
+            return VectorScan.skipASCII(array, index, end);
+        }
+        while (index < end && array[index] >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns how many ASCII bytes the two arrays have in common from the given indexes,
+     * up to the given maximum.
+     */
+    static int sameASCII(byte[] one, int i, byte[] two, int j, int max) {
+        if (ENABLED) {
+            return VectorScan.sameASCII(one, i, two, j, max);
+        }
+        int n = 0;
+        while (n < max && one[i + n] >= 0 && one[i + n] == two[j + n]) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the index of the first byte at or after the given index that isn't ASCII, or the end index.
+     */
+    static int skipASCII(ByteBuffer buffer, int index, int end) {
+        if (BUFFERS) {
+            return VectorScan.skipASCII(buffer, index, end);
+        }
+        while (index < end && buffer.get(index) >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns how many ASCII bytes the two buffers have in common from the given indexes,
+     * up to the given maximum.
+     */
+    static int sameASCII(ByteBuffer one, int i, ByteBuffer two, int j, int max) {
+        if (BUFFERS) {
+            return VectorScan.sameASCII(one, i, two, j, max);
+        }
+        int n = 0;
+        while (n < max && one.get(i + n) >= 0 && one.get(i + n) == two.get(j + n)) {
+            n++;
+        }
+        return n;
+    }
+}
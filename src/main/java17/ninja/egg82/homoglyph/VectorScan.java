@@ -0,0 +1,94 @@
+package ninja.egg82.homoglyph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vector API side of {@link VectorKernel}. Only ever linked once
+ * jdk.incubator.vector is known to be resolved.
+ */
+final class VectorScan {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private VectorScan() { }
+
+    /**
+     * Returns true if the preferred vector is wide enough to beat eight bytes
+     * at a time. Anything narrower means the hardware has no SIMD to speak of.
+     */
+    static boolean supported() { return SPECIES.length() >= 16; }
+
+    /**
+     * Returns true if vectors can be loaded straight from a buffer. JDK 20 replaced
+     * ByteVector.fromByteBuffer with memory segments, so there this throws a LinkageError.
+     */
+    static boolean buffersSupported() {
+        ByteVector.fromByteBuffer(SPECIES, ByteBuffer.allocate(SPECIES.length()), 0, ByteOrder.nativeOrder());
+        return true;
+    }
+
+    static int skipASCII(byte[] array, int index, int end) {
+        int bound = index + SPECIES.loopBound(end - index);
+        for (; index < bound; index += SPECIES.length()) {
+            // ASCII bytes are exactly the ones that aren't negative
+            VectorMask<Byte> high = ByteVector.fromArray(SPECIES, array, index).compare(VectorOperators.LT, (byte) 0);
+            if (high.anyTrue()) {
+                return index + high.firstTrue();
+            }
+        }
+        while (index < end && array[index] >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    static int sameASCII(byte[] one, int i, byte[] two, int j, int max) {
+        int n = 0;
+        int bound = SPECIES.loopBound(max);
+        for (; n < bound; n += SPECIES.length()) {
+            ByteVector a = ByteVector.fromArray(SPECIES, one, i + n);
+            VectorMask<Byte> stop = a.compare(VectorOperators.NE, ByteVector.fromArray(SPECIES, two, j + n)).or(a.compare(VectorOperators.LT, (byte) 0));
+            if (stop.anyTrue()) {
+                return n + stop.firstTrue();
+            }
+        }
+        while (n < max && one[i + n] >= 0 && one[i + n] == two[j + n]) {
+            n++;
+        }
+        return n;
+    }
+
+    static int skipASCII(ByteBuffer buffer, int index, int end) {
+        int bound = index + SPECIES.loopBound(end - index);
+        for (; index < bound; index += SPECIES.length()) {
+            VectorMask<Byte> high = ByteVector.fromByteBuffer(SPECIES, buffer, index, ByteOrder.nativeOrder()).compare(VectorOperators.LT, (byte) 0);
+            if (high.anyTrue()) {
+                return index + high.firstTrue();
+            }
+        }
+        while (index < end && buffer.get(index) >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    static int sameASCII(ByteBuffer one, int i, ByteBuffer two, int j, int max) {
+        int n = 0;
+        int bound = SPECIES.loopBound(max);
+        for (; n < bound; n += SPECIES.length()) {
+            ByteVector a = ByteVector.fromByteBuffer(SPECIES, one, i + n, ByteOrder.nativeOrder());
+            VectorMask<Byte> stop = a.compare(VectorOperators.NE, ByteVector.fromByteBuffer(SPECIES, two, j + n, ByteOrder.nativeOrder())).or(a.compare(VectorOperators.LT, (byte) 0));
+            if (stop.anyTrue()) {
+                return n + stop.firstTrue();
+            }
+        }
+        while (n < max && one.get(i + n) >= 0 && one.get(i + n) == two.get(j + n)) {
+            n++;
+        }
+        return n;
+    }
+}
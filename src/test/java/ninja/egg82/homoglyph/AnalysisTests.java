@@ -0,0 +1,74 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AnalysisTests {
+    @Test
+    public void testAnalyze() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        HomoglyphAnalysis plain = helper.analyze("paypal.com");
+        Assertions.assertEquals(HomoglyphAnalysis.RestrictionLevel.ASCII, plain.restrictionLevel());
+        Assertions.assertEquals(EnumSet.of(Character.UnicodeScript.LATIN), plain.scripts());
+        Assertions.assertFalse(plain.isMixedScript());
+        Assertions.assertFalse(plain.changedByToASCII());
+        Assertions.assertEquals(10, plain.codePoints());
+
+        // Cyrillic а and р mixed into Latin
+        HomoglyphAnalysis spoof = helper.analyze("раypal.com");
+        Assertions.assertEquals(HomoglyphAnalysis.RestrictionLevel.MINIMALLY_RESTRICTIVE, spoof.restrictionLevel());
+        Assertions.assertEquals(EnumSet.of(Character.UnicodeScript.LATIN, Character.UnicodeScript.CYRILLIC), spoof.scripts());
+        Assertions.assertTrue(spoof.isMixedScript());
+        Assertions.assertTrue(spoof.changedByToASCII());
+        Assertions.assertTrue(spoof.confusables() >= 2);
+        Assertions.assertEquals(helper.hash64("paypal.com"), spoof.skeletonHash());
+
+        Assertions.assertEquals(HomoglyphAnalysis.RestrictionLevel.SINGLE_SCRIPT, helper.analyze("привет").restrictionLevel());
+        Assertions.assertEquals(HomoglyphAnalysis.RestrictionLevel.HIGHLY_RESTRICTIVE, helper.analyze("abc漢字ひらカタ").restrictionLevel());
+        Assertions.assertEquals(HomoglyphAnalysis.RestrictionLevel.MODERATELY_RESTRICTIVE, helper.analyze("abcاب").restrictionLevel());
+        Assertions.assertEquals(HomoglyphAnalysis.RestrictionLevel.MINIMALLY_RESTRICTIVE, helper.analyze("αا").restrictionLevel());
+
+        // Common and Inherited code points don't count towards mixing
+        HomoglyphAnalysis common = helper.analyze("été 2024! ́");
+        Assertions.assertEquals(EnumSet.of(Character.UnicodeScript.LATIN), common.scripts());
+        Assertions.assertEquals(HomoglyphAnalysis.RestrictionLevel.SINGLE_SCRIPT, common.restrictionLevel());
+
+        Assertions.assertEquals(HomoglyphAnalysis.RestrictionLevel.ASCII, helper.analyze("").restrictionLevel());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> helper.analyze(null));
+    }
+
+    @Test
+    public void testMatchesSeparateCalls() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphHelper ignoring = helper.withIgnorables(IgnorableSet.defaults());
+        for (String s : Arrays.asList("", "HELLO", "ＨＥＬＬＯ", "𝐖𝐎𝐑𝐋𝐃 😀", "l1I|", "pay​pal", "\uD800 unpaired", "中文 and Latin")) {
+            for (HomoglyphHelper h : Arrays.asList(helper, ignoring, helper.caseInsensitive())) {
+                HomoglyphAnalysis analysis = h.analyze(s);
+                Assertions.assertEquals(h.hash64(s), analysis.skeletonHash());
+                Assertions.assertEquals(!h.toASCII(s).equals(s), analysis.changedByToASCII());
+
+                String skeleton = h.skeleton(s);
+                int confusables = 0;
+                int[] before = s.codePoints().filter(c -> h != ignoring || !IgnorableSet.defaults().contains(c)).toArray();
+                int[] after = skeleton.codePoints().toArray();
+                for (int i = 0; i < before.length; i++) {
+                    if (before[i] != after[i]) {
+                        confusables++;
+                    }
+                }
+                Assertions.assertEquals(before.length, analysis.codePoints());
+                Assertions.assertEquals(confusables, analysis.confusables());
+
+                EnumSet<Character.UnicodeScript> scripts = EnumSet.noneOf(Character.UnicodeScript.class);
+                Arrays.stream(before).mapToObj(Character.UnicodeScript::of).forEach(scripts::add);
+                scripts.remove(Character.UnicodeScript.COMMON);
+                scripts.remove(Character.UnicodeScript.INHERITED);
+                Assertions.assertEquals(scripts, analysis.scripts());
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BatchTests {
+    @Test
+    public void testTransform() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        List<String> input = Arrays.asList("ＨＥＬＬＯ", "hello", "", "𝐰𝐨𝐫𝐥𝐝");
+        List<String> ascii = helper.toASCII(input);
+        String[] standard = helper.toStandardCharset(input.toArray(new String[0]));
+        Assertions.assertEquals(input.size(), ascii.size());
+        Assertions.assertEquals(input.size(), standard.length);
+        for (int i = 0; i < input.size(); i++) {
+            Assertions.assertEquals(helper.toASCII(input.get(i)), ascii.get(i));
+            Assertions.assertEquals(helper.toStandardCharset(input.get(i)), standard[i]);
+        }
+
+        // Unchanged strings are passed through rather than copied
+        Assertions.assertSame(input.get(1), helper.toOrderedASCII(input).get(1));
+    }
+
+    @Test
+    public void testParallel() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        String[] forms = { "a", "ａ", "𝐚", "b", "ｂ", "c", "Ｃ" };
+        Random random = new Random(82);
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            input.add(RandomText.upTo(random, forms, 11));
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (String s : input) {
+            expected.add(helper.toASCII(s));
+        }
+
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            Assertions.assertEquals(expected, helper.transform(input, TransformMode.ASCII, ForkJoinPool.commonPool()));
+            Assertions.assertEquals(expected, helper.transform(input, TransformMode.ASCII, single));
+            Assertions.assertEquals(expected, Arrays.asList(helper.transform(input.toArray(new String[0]), TransformMode.ASCII, single)));
+
+            Assertions.assertTrue(helper.containsAny(input, "ccc", ForkJoinPool.commonPool()));
+            Assertions.assertFalse(helper.containsAny(input, "d", single));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelOnFailure() {
+        // Holds on to every chunk handed to it, so they only run once the batch has failed
+        List<Runnable> queued = new ArrayList<>();
+        int[] ran = new int[1];
+        Assertions.assertThrows(IllegalStateException.class, () -> BatchKernel.run(BatchKernel.MIN_CHUNK * 4, queued::add, (start, end) -> {
+            if (end == BatchKernel.MIN_CHUNK * 4) {
+                throw new IllegalStateException();
+            }
+            ran[0]++;
+        }));
+        Assertions.assertFalse(queued.isEmpty());
+        queued.forEach(Runnable::run);
+        Assertions.assertEquals(0, ran[0]);
+    }
+
+    @Test
+    public void testCancelOnRejection() {
+        // Takes two chunks, then rejects the next one, the way a saturated or shut down pool would
+        List<Runnable> queued = new ArrayList<>();
+        int[] ran = new int[1];
+        Executor rejecting = command -> {
+            if (queued.size() == 2) {
+                throw new RejectedExecutionException();
+            }
+            queued.add(command);
+        };
+        Assertions.assertThrows(RejectedExecutionException.class, () -> BatchKernel.run(BatchKernel.MIN_CHUNK * 4, rejecting, (start, end) -> ran[0]++));
+        Assertions.assertEquals(2, queued.size());
+        queued.forEach(Runnable::run);
+        Assertions.assertEquals(0, ran[0]);
+    }
+
+    @Test
+    public void testContainsAny() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        Assertions.assertTrue(helper.containsAny(Arrays.asList("foo", "ｈｅｌｌｏ"), "ell"));
+        Assertions.assertFalse(helper.containsAny(Arrays.asList("foo", "bar"), "ell"));
+        Assertions.assertFalse(helper.containsAny(Collections.emptyList(), "ell"));
+        Assertions.assertFalse(helper.containsAny(Arrays.asList("foo", "bar"), null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> helper.toASCII(Arrays.asList("foo", null)));
+    }
+}
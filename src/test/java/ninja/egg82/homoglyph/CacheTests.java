@@ -0,0 +1,114 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CacheTests {
+    @Test
+    public void testCache() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphCache cache = helper.newCache(100, 64);
+
+        String unicode = "ＨＥＬＬＯ，　ＷＯＲＬＤ！";
+        Assertions.assertEquals(helper.toASCII(unicode), cache.toASCII(unicode));
+        Assertions.assertEquals(helper.toASCII(unicode), cache.toASCII(unicode));
+        Assertions.assertEquals(1, cache.missCount());
+        Assertions.assertEquals(1, cache.hitCount());
+
+        // Each mode is cached on its own
+        Assertions.assertEquals(helper.toAlphanumeric(unicode), cache.toAlphanumeric(unicode));
+        Assertions.assertEquals(helper.toOrderedASCII(unicode), cache.transform(unicode, TransformMode.ORDERED_ASCII));
+        Assertions.assertEquals(helper.toStandardCharset(unicode), cache.toStandardCharset(unicode));
+        Assertions.assertEquals(helper.skeleton(unicode), cache.skeleton(unicode));
+        Assertions.assertEquals(5, cache.missCount());
+        Assertions.assertEquals(5, cache.size());
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testIgnorables() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create().withIgnorables(IgnorableSet.defaults());
+        HomoglyphCache cache = helper.newCache(100, 64);
+
+        // Skeletons leave ignored code points out, like the helper's, and transforms keep them
+        String unicode = "ｐａｙ\u200Bｐａｌ";
+        Assertions.assertEquals(helper.skeleton(unicode), cache.skeleton(unicode));
+        Assertions.assertEquals(helper.skeleton("paypal"), cache.skeleton(unicode));
+        Assertions.assertEquals(helper.toASCII(unicode), cache.toASCII(unicode));
+        Assertions.assertTrue(cache.toASCII(unicode).contains("\u200B"));
+    }
+
+    @Test
+    public void testBounds() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphCache cache = helper.newCache(32, 8);
+
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(helper.toASCII("ｕｓｅｒ" + i), cache.toASCII("ｕｓｅｒ" + i));
+        }
+        Assertions.assertTrue(cache.size() <= 32);
+        Assertions.assertEquals(1000 - cache.size(), cache.evictionCount());
+
+        // Too long to be cached
+        String longer = "ｌｏｎｇｅｒ　ｔｈａｎ　ｅｉｇｈｔ";
+        Assertions.assertEquals(helper.toASCII(longer), cache.toASCII(longer));
+        Assertions.assertEquals(helper.toASCII(longer), cache.toASCII(longer));
+        Assertions.assertEquals(0, cache.hitCount());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> helper.newCache(0, 8));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cache.toASCII(null));
+    }
+
+    @Test
+    public void testKeepsReadEntries() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        // Small enough for a single segment, so every entry competes for the same room
+        HomoglyphCache cache = helper.newCache(16, 32);
+
+        String hot = "ｈｏｔ";
+        cache.toASCII(hot);
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals(helper.toASCII(hot), cache.toASCII(hot));
+            cache.toASCII("ｃｏｌｄ" + i);
+        }
+        Assertions.assertEquals(200, cache.hitCount());
+        Assertions.assertEquals(201, cache.missCount());
+        Assertions.assertEquals(16, cache.size());
+        Assertions.assertEquals(201 - 16, cache.evictionCount());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphCache cache = helper.newCache(64, 32);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        String unicode = "ｎａｍｅ" + (i % 100);
+                        Assertions.assertEquals(helper.toAlphanumeric(unicode), cache.toAlphanumeric(unicode));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(20000, cache.hitCount() + cache.missCount());
+        Assertions.assertTrue(cache.size() <= 64);
+    }
+}
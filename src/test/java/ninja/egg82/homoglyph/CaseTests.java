@@ -0,0 +1,71 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CaseTests {
+    @Test
+    public void testCaseInsensitive() throws IOException {
+        HomoglyphHelper plain = HomoglyphHelper.create();
+        HomoglyphHelper helper = plain.caseInsensitive();
+
+        Assertions.assertTrue(helper.equals("ＴＥＳＴ", "test"));
+        Assertions.assertTrue(helper.equals("ｔｅｓｔ", "TEST"));
+        Assertions.assertFalse(helper.equals("test", "tent"));
+        Assertions.assertEquals("test", helper.toASCII("ＴＥＳＴ"));
+        Assertions.assertEquals(plain.toStandardCharset("ＨＥＬＬＯ，　ＷＯＲＬＤ！").toLowerCase(Locale.ROOT), helper.toStandardCharset("ＨＥＬＬＯ，　ＷＯＲＬＤ！"));
+        Assertions.assertEquals(helper.skeleton("ＨｅＬｌＯ"), helper.skeleton("hello"));
+        Assertions.assertEquals(helper.hash64("ＨｅＬｌＯ"), helper.hash64("HELLO"));
+
+        Assertions.assertEquals(2, helper.indexOf("𝐇𝐄𝐡𝐞𝐋𝐋𝐎", "hello"));
+        Assertions.assertTrue(helper.startsWith("ＴＥＳＴＩＮＧ", "test"));
+        Assertions.assertTrue(helper.matcher(Arrays.asList("hello")).containsAny("ＨＥＬＬＯ"));
+        Assertions.assertEquals(0, helper.distance("Paypal", "pAYPAL", 0));
+
+        byte[] utf8 = "ＴＥＳＴ".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertTrue(helper.equalsUTF8(utf8, 0, utf8.length, "test".getBytes(StandardCharsets.UTF_8), 0, 4));
+
+        // The original is untouched, and asking twice shares the folded tables
+        Assertions.assertFalse(plain.equals("ＴＥＳＴ", "test"));
+        Assertions.assertTrue(plain.caseInsensitive().caseInsensitive().equals("ＴＥＳＴ", "test"));
+    }
+
+    @Test
+    public void testLocale() throws IOException {
+        Locale locale = Locale.getDefault();
+        try {
+            // Turkish lower cases I to dotless ı, which mustn't matter here
+            Locale.setDefault(new Locale("tr", "TR"));
+            HomoglyphHelper helper = HomoglyphHelper.create(new StringReader("69,456\n")).caseInsensitive();
+            Assertions.assertTrue(helper.equals("INDEX", "index"));
+            Assertions.assertTrue(helper.equals("ІNDEX", "index"));
+            Assertions.assertEquals("index", helper.toASCII("INDEX"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testJoinsClasses() throws IOException {
+        // Two lists which only share a character once case is ignored
+        HomoglyphHelper helper = HomoglyphHelper.create(new StringReader("41,391\n61,3b1\n")).caseInsensitive();
+
+        Assertions.assertTrue(helper.equals("Α", "a"));
+        Assertions.assertTrue(helper.equals("α", "A"));
+        Assertions.assertEquals("aa", helper.toASCII("Αα"));
+        Assertions.assertEquals(helper.skeleton("a"), helper.skeleton("Α"));
+    }
+
+    @Test
+    public void testCasedPlanes() {
+        // Folding only looks at the first two planes for characters that change case
+        for (int c = 0x20000; c <= Character.MAX_CODE_POINT; c++) {
+            Assertions.assertEquals(c, Character.toLowerCase(Character.toUpperCase(c)), Integer.toHexString(c));
+        }
+    }
+}
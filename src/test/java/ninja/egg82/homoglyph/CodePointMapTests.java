@@ -0,0 +1,77 @@
+package ninja.egg82.homoglyph;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CodePointMapTests {
+    @Test
+    public void testLookup() {
+        CodePointMap map = CodePointMap.builder()
+                .put(0xFF34, 'T')
+                .put('l', '|')
+                .put(0x1D40D, 0x1D400) // Supplementary to supplementary
+                .put(0x10FFFF, 0xFFFF) // Values that collide with the reserved chars
+                .put(0x10FFFE, 0xFFFE)
+                .build();
+
+        Assertions.assertEquals(5, map.size());
+        Assertions.assertEquals('T', map.get(0xFF34));
+        Assertions.assertEquals('|', map.get('l'));
+        Assertions.assertEquals(0x1D400, map.get(0x1D40D));
+        Assertions.assertEquals(0xFFFF, map.get(0x10FFFF));
+        Assertions.assertEquals(0xFFFE, map.get(0x10FFFE));
+
+        Assertions.assertEquals(CodePointMap.NO_MAPPING, map.get('T'));
+        Assertions.assertEquals(CodePointMap.NO_MAPPING, map.get(-1));
+        Assertions.assertEquals(CodePointMap.NO_MAPPING, map.get(Character.MAX_CODE_POINT + 1));
+        Assertions.assertEquals('x', map.getOrDefault('x', 'x'));
+    }
+
+    @Test
+    public void testBuilder() {
+        CodePointMap.Builder builder = CodePointMap.builder();
+        builder.putIfAbsent('a', 'b');
+        builder.putIfAbsent('a', 'c');
+        builder.put('d', 'e');
+        builder.put('d', 'f');
+
+        CodePointMap map = builder.build();
+        Assertions.assertEquals(2, map.size());
+        Assertions.assertEquals('b', map.get('a'));
+        Assertions.assertEquals('f', map.get('d'));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.put(-1, 'a'));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.put('a', Character.MAX_CODE_POINT + 1));
+        Assertions.assertTrue(CodePointMap.empty().isEmpty());
+    }
+
+    @Test
+    public void testByClass() {
+        CodePointMap classes = CodePointMap.builder()
+                .put('a', 0).put(0xFF41, 0).put(0x430, 0)
+                .put('b', 1).put(0xFF42, 1)
+                .put('x', 2)
+                .put('c', 3).put(0xFF43, 3).put(0x441, 3)
+                .put('d', 4).put(0xFF44, 4)
+                .put(0x1D41E, 5).put(0x1D41F, 5)
+                .build();
+        CodePointMap.Builder transform = CodePointMap.builder()
+                .put(0xFF41, 'a').put(0x430, 'a')
+                .put(0xFF42, 'b')
+                // Members that don't go where the rest of their class goes
+                .put(0xFF43, 'c').put(0x441, 's')
+                .put('d', 'q').put(0xFF44, 'd')
+                .put(0x1D41E, 0x1D41F).put(0x1D41F, 0x1D41E);
+
+        CodePointMap map = CodePointMap.byClass(classes, 6, transform);
+        Assertions.assertEquals(transform.size(), map.size());
+        Assertions.assertArrayEquals(new int[] { 'd', 0x430, 0x441, 0xFF41, 0xFF42, 0xFF43, 0xFF44, 0x1D41E, 0x1D41F }, map.keys());
+        for (int c : classes.keys()) {
+            Assertions.assertEquals(transform.get(c), map.get(c), Integer.toHexString(c));
+        }
+        Assertions.assertEquals(CodePointMap.NO_MAPPING, map.get('z'));
+        Assertions.assertTrue(map.mapsASCII());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CodePointMap.byClass(classes, 6, CodePointMap.builder().put('z', 'a')));
+    }
+}
@@ -72,4 +72,37 @@ public class HomoglyphTests {
         Assertions.assertTrue(helper.contains("ｈｅｌｌｏ‚ㅤｗｏｒｌｄǃ", "world!"));
         Assertions.assertFalse(helper.contains("ｈｅｌｌｏ‚ㅤｗｏｒｌｄǃ", "WORLD!"));
     }
+
+    @Test
+    public void testLongASCII() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphHelper ignoring = helper.withIgnorables(IgnorableSet.defaults());
+
+        // Long runs of ASCII are handled a chunk at a time, so put a change at every position
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        String ascii = builder.toString();
+        for (int p = 0; p < ascii.length(); p++) {
+            String changed = String.valueOf((char) (ascii.charAt(p) - 'a' + 'ａ'));
+            String wide = ascii.substring(0, p) + changed + ascii.substring(p + 1);
+            String other = ascii.substring(0, p) + '!' + ascii.substring(p + 1);
+            String spaced = ascii.substring(0, p) + '\u200B' + ascii.substring(p);
+
+            Assertions.assertEquals(ascii.substring(0, p) + helper.toASCII(changed) + ascii.substring(p + 1), helper.toASCII(wide));
+            Assertions.assertTrue(helper.equals(wide, ascii));
+            Assertions.assertFalse(helper.equals(other, ascii));
+            Assertions.assertTrue(ignoring.equals(spaced, ascii));
+            Assertions.assertTrue(helper.startsWith(wide, ascii.substring(0, p + 1)));
+            Assertions.assertFalse(helper.startsWith(other, ascii.substring(0, p + 1)));
+            Assertions.assertTrue(ignoring.startsWith(spaced, ascii.substring(0, p + 1)));
+            Assertions.assertTrue(helper.endsWith(wide, ascii.substring(p)));
+            Assertions.assertFalse(helper.endsWith(other, ascii.substring(p)));
+            Assertions.assertTrue(ignoring.endsWith(spaced, ascii.substring(p)));
+            Assertions.assertEquals(p, helper.indexOf(other + wide, "!"));
+            Assertions.assertEquals(ascii.length(), helper.indexOf(other + wide, ascii));
+            Assertions.assertEquals(ascii.length() + (p == 0 ? 1 : 0), ignoring.indexOf(other + spaced, ascii));
+        }
+    }
 }
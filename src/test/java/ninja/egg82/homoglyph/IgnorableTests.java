@@ -0,0 +1,144 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IgnorableTests {
+    @Test
+    public void testSet() {
+        IgnorableSet set = IgnorableSet.defaults();
+        Assertions.assertTrue(set.contains(0x200B));
+        Assertions.assertTrue(set.contains(0xFE0F));
+        Assertions.assertTrue(set.contains(0x301));
+        Assertions.assertTrue(set.contains(0xE0100));
+        Assertions.assertFalse(set.contains('a'));
+        Assertions.assertFalse(set.contains('.'));
+        Assertions.assertFalse(set.contains(-1));
+
+        IgnorableSet punctuation = IgnorableSet.builder().addAll(set).add('.').addRange('-', '-').build();
+        Assertions.assertTrue(punctuation.contains('.'));
+        Assertions.assertTrue(punctuation.contains('-'));
+        Assertions.assertTrue(punctuation.contains(0x200B));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IgnorableSet.builder().addRange(2, 1));
+    }
+
+    @Test
+    public void testHelper() throws IOException {
+        HomoglyphHelper plain = HomoglyphHelper.create();
+        HomoglyphHelper helper = plain.withIgnorables(IgnorableSet.builder().addAll(IgnorableSet.defaults()).add('.').build());
+
+        String spam = "buy ｐ.a\u200By\uFE0Fｐa\u0301l now";
+        Assertions.assertFalse(plain.contains(spam, "paypal"));
+        Assertions.assertTrue(helper.contains(spam, "paypal"));
+        // Indexes are still into the string given
+        Assertions.assertEquals(4, helper.indexOf(spam, "paypal"));
+        Assertions.assertEquals(4, helper.lastIndexOf(spam, "paypal"));
+        Assertions.assertEquals(6, helper.indexOf(spam, "aypal"));
+
+        Assertions.assertTrue(helper.equals("p\u200Ba.y", "ｐａｙ\u200B"));
+        Assertions.assertTrue(helper.startsWith("\u200Bｐ.ａｙ", "pa\u200B"));
+        Assertions.assertTrue(helper.endsWith("ｐａ.y\u200B", "ay"));
+        Assertions.assertEquals(helper.skeleton("paypal"), helper.skeleton(spam.substring(4, 14)));
+        Assertions.assertEquals(helper.hash64("paypal"), helper.hash64(spam.substring(4, 14)));
+        Assertions.assertEquals(0, helper.distance("paypal", spam.substring(4, 14), 1));
+
+        Assertions.assertEquals("buy ********** now", helper.matcher(Arrays.asList("paypal")).mask(spam, '*'));
+        Assertions.assertEquals("buy [x] now", helper.replaceAll(spam, "paypal", "[x]"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> helper.matcher(Arrays.asList("\u200B")));
+
+        // Transforms don't drop anything
+        Assertions.assertEquals(plain.toASCII(spam), helper.toASCII(spam));
+    }
+
+    @Test
+    public void testMatchesStripped() throws IOException {
+        HomoglyphHelper plain = HomoglyphHelper.create();
+        IgnorableSet set = IgnorableSet.defaults();
+        HomoglyphHelper helper = plain.withIgnorables(set);
+
+        Random random = new Random(22);
+        String[] pieces = { "a", "b", "ａ", "ｂ", "𝐚", "\u200B", "\u0301", "\uDB40\uDD00" };
+        for (int n = 0; n < 500; n++) {
+            String haystack = RandomText.upTo(random, pieces, 24);
+            String needle = RandomText.upTo(random, pieces, 4);
+            String strippedHaystack = strip(set, haystack);
+            String strippedNeedle = strip(set, needle);
+            int[] positions = positions(set, haystack);
+
+            int expected = plain.indexOf(strippedHaystack, strippedNeedle);
+            if (expected > -1 && !strippedNeedle.isEmpty()) {
+                expected = positions[expected];
+            }
+            if (!strippedNeedle.isEmpty()) {
+                Assertions.assertEquals(expected, helper.indexOf(haystack, needle), haystack + " / " + needle);
+            }
+            Assertions.assertEquals(plain.equals(strippedHaystack, strippedNeedle), helper.equals(haystack, needle));
+            Assertions.assertEquals(plain.startsWith(strippedHaystack, strippedNeedle), helper.startsWith(haystack, needle));
+            Assertions.assertEquals(plain.endsWith(strippedHaystack, strippedNeedle), helper.endsWith(haystack, needle));
+            if (!strippedNeedle.isEmpty()) {
+                List<String> expectedMatches = new ArrayList<>();
+                plain.matcher(Arrays.asList(strippedNeedle)).match(strippedHaystack, (p, start, end) -> expectedMatches.add(positions[strippedHaystack.codePointCount(0, start)] + ""));
+                List<String> matches = new ArrayList<>();
+                helper.matcher(Arrays.asList(needle)).match(haystack, (p, start, end) -> matches.add(haystack.codePointCount(0, start) + ""));
+                Assertions.assertEquals(expectedMatches, matches, haystack + " / " + needle);
+            }
+        }
+    }
+
+    @Test
+    public void testUTF8() throws IOException {
+        IgnorableSet withDot = IgnorableSet.builder().addAll(IgnorableSet.defaults()).add('.').build();
+        // The last list puts a in two lists, so searches can't use class symbols
+        HomoglyphHelper overlapping = HomoglyphHelper.create(new StringReader("61,ff41\n61,430\n62,ff42\n"));
+        List<HomoglyphHelper> helpers = Arrays.asList(
+                HomoglyphHelper.create().withIgnorables(IgnorableSet.defaults()),
+                HomoglyphHelper.create().withIgnorables(withDot),
+                overlapping.withIgnorables(withDot)
+        );
+
+        Random random = new Random(7);
+        String[] pieces = { "a", "b", ".", "ａ", "ｂ", "а", "𝐚", "\u200B", "\u0301", "\uDB40\uDD00" };
+        for (HomoglyphHelper helper : helpers) {
+            for (int n = 0; n < 500; n++) {
+                String haystack = RandomText.upTo(random, pieces, 16);
+                String needle = RandomText.upTo(random, pieces, 4);
+                byte[] h = haystack.getBytes(StandardCharsets.UTF_8);
+                byte[] b = needle.getBytes(StandardCharsets.UTF_8);
+
+                Assertions.assertEquals(helper.equals(haystack, needle), helper.equalsUTF8(h, 0, h.length, b, 0, b.length), haystack + " / " + needle);
+                int index = helper.indexOf(haystack, needle);
+                int expected = index < 0 ? -1 : haystack.substring(0, haystack.offsetByCodePoints(0, index)).getBytes(StandardCharsets.UTF_8).length;
+                Assertions.assertEquals(expected, helper.indexOfUTF8(h, 0, h.length, b, 0, b.length), haystack + " / " + needle);
+            }
+        }
+
+        byte[] spam = "ｐａｙ\u200Bｐａｌ".getBytes(StandardCharsets.UTF_8);
+        byte[] needle = "payp".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(0, helpers.get(0).indexOfUTF8(spam, 0, spam.length, needle, 0, needle.length));
+    }
+
+    private static String strip(IgnorableSet set, String text) {
+        StringBuilder builder = new StringBuilder();
+        text.codePoints().filter(c -> !set.contains(c)).forEach(builder::appendCodePoint);
+        return builder.toString();
+    }
+
+    // The code point index in the text of each code point that isn't ignored
+    private static int[] positions(IgnorableSet set, String text) {
+        int[] codePoints = text.codePoints().toArray();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < codePoints.length; i++) {
+            if (!set.contains(codePoints[i])) {
+                positions.add(i);
+            }
+        }
+        return positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,170 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IndexTests {
+    @Test
+    public void testFind() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphIndex index = helper.newIndex();
+
+        Assertions.assertTrue(index.add("hello"));
+        Assertions.assertTrue(index.add("ｈｅｌｌｏ"));
+        Assertions.assertTrue(index.add("help"));
+        Assertions.assertTrue(index.add("world"));
+        Assertions.assertFalse(index.add("hello"));
+        Assertions.assertEquals(4, index.size());
+
+        Assertions.assertTrue(index.hasEqual("𝐡𝐞𝐥𝐥𝐨"));
+        Assertions.assertFalse(index.hasEqual("hell"));
+        Assertions.assertEquals(set("hello", "ｈｅｌｌｏ"), new HashSet<>(index.findEqual("𝐡𝐞𝐥𝐥𝐨")));
+        Assertions.assertEquals(set("hello", "ｈｅｌｌｏ", "help"), new HashSet<>(index.findStartingWith("ｈｅｌ")));
+        Assertions.assertEquals(set("hello", "ｈｅｌｌｏ", "help", "world"), new HashSet<>(index.findContaining("l")));
+        Assertions.assertEquals(set("hello", "ｈｅｌｌｏ"), new HashSet<>(index.findContaining("llo")));
+        Assertions.assertTrue(index.findContaining("xyz").isEmpty());
+    }
+
+    @Test
+    public void testRemove() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphIndex index = helper.newIndex();
+
+        index.add("hello");
+        index.add("help");
+        Assertions.assertTrue(index.remove("hello"));
+        Assertions.assertFalse(index.remove("hello"));
+        Assertions.assertFalse(index.remove("ｈｅｌｌｏ"));
+        Assertions.assertEquals(1, index.size());
+
+        Assertions.assertFalse(index.hasEqual("hello"));
+        Assertions.assertEquals(Collections.singletonList("help"), index.findStartingWith("hel"));
+        Assertions.assertTrue(index.findContaining("llo").isEmpty());
+
+        Assertions.assertTrue(index.add("ｈｅｌｌｏ"));
+        Assertions.assertEquals(Collections.singletonList("ｈｅｌｌｏ"), index.findEqual("hello"));
+    }
+
+    @Test
+    public void testScan() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphIndex index = helper.newIndex();
+
+        // Every answer should be exactly what a linear scan with the helper finds
+        String[] forms = { "a", "ａ", "а", "b", "ｂ", "c" };
+        Random random = new Random(82);
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String entry = RandomText.exactly(random, forms, 1 + random.nextInt(6));
+            if (index.add(entry)) {
+                entries.add(entry);
+            }
+            if (i % 3 == 0) {
+                String removed = entries.remove(random.nextInt(entries.size()));
+                Assertions.assertTrue(index.remove(removed));
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String query = RandomText.exactly(random, forms, random.nextInt(5));
+            Set<String> equal = new HashSet<>();
+            Set<String> prefixed = new HashSet<>();
+            Set<String> containing = new HashSet<>();
+            for (String entry : entries) {
+                if (helper.equals(entry, query)) {
+                    equal.add(entry);
+                }
+                if (helper.startsWith(entry, query)) {
+                    prefixed.add(entry);
+                }
+                if (helper.contains(entry, query)) {
+                    containing.add(entry);
+                }
+            }
+            Assertions.assertEquals(equal, new HashSet<>(index.findEqual(query)), query);
+            Assertions.assertEquals(prefixed, new HashSet<>(index.findStartingWith(query)), query);
+            Assertions.assertEquals(containing, new HashSet<>(index.findContaining(query)), query);
+        }
+    }
+
+    @Test
+    public void testIgnorables() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create().withIgnorables(IgnorableSet.defaults());
+        HomoglyphIndex index = helper.newIndex();
+
+        String[] entries = { "pay\u200Bpal", "paypal", "ｐａｙ\u00ADｐａｌ.com", "pa\u0301y", "x\uFE0Fyz" };
+        for (String entry : entries) {
+            index.add(entry);
+        }
+
+        // Entries and queries are both searched without their ignored code points, the same as the helper
+        for (String query : new String[] { "payp", "pay\u200Dp", "ypal", "paypal", "pay", "\u200B", "xyz", "x\u200By", "ay" }) {
+            Set<String> equal = new HashSet<>();
+            Set<String> prefixed = new HashSet<>();
+            Set<String> containing = new HashSet<>();
+            for (String entry : entries) {
+                if (helper.equals(entry, query)) {
+                    equal.add(entry);
+                }
+                if (helper.startsWith(entry, query)) {
+                    prefixed.add(entry);
+                }
+                if (helper.contains(entry, query)) {
+                    containing.add(entry);
+                }
+            }
+            Assertions.assertEquals(equal, new HashSet<>(index.findEqual(query)), query);
+            Assertions.assertEquals(prefixed, new HashSet<>(index.findStartingWith(query)), query);
+            Assertions.assertEquals(containing, new HashSet<>(index.findContaining(query)), query);
+        }
+        Assertions.assertTrue(index.findStartingWith("payp").contains("pay\u200Bpal"));
+
+        Assertions.assertTrue(index.remove("pay\u200Bpal"));
+        Assertions.assertFalse(index.findStartingWith("payp").contains("pay\u200Bpal"));
+    }
+
+    @Test
+    public void testConcurrentSearches() throws Exception {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphIndex index = helper.newIndex();
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            index.add("entry number " + i);
+            queries.add("ｎｕｍｂｅｒ " + i);
+        }
+        Map<String, Set<String>> expected = new HashMap<>();
+        for (String query : queries) {
+            expected.put(query, new HashSet<>(index.findContaining(query)));
+        }
+
+        // Searches only read the index, so they can't see each other's symbols
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int r = 0; r < 20; r++) {
+                        for (String query : queries) {
+                            if (!expected.get(query).equals(new HashSet<>(index.findContaining(query)))) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                Assertions.assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Set<String> set(String... values) { return new HashSet<>(Arrays.asList(values)); }
+}
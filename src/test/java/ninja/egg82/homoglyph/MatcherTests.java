@@ -0,0 +1,125 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MatcherTests {
+    @Test
+    public void testMatch() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphMatcher matcher = helper.matcher(Arrays.asList("he", "she", "his", "hers"));
+
+        List<String> matches = new ArrayList<>();
+        Assertions.assertTrue(matcher.match("ushers", (pattern, start, end) -> matches.add(matcher.pattern(pattern) + "@" + start + "-" + end)));
+        Assertions.assertEquals(Arrays.asList("she@1-4", "he@2-4", "hers@2-6"), matches);
+
+        matches.clear();
+        matcher.match("ｕｓｈｅｒｓ", (pattern, start, end) -> matches.add(matcher.pattern(pattern) + "@" + start + "-" + end));
+        Assertions.assertEquals(Arrays.asList("she@1-4", "he@2-4", "hers@2-6"), matches);
+    }
+
+    @Test
+    public void testSurrogates() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphMatcher matcher = helper.matcher(Collections.singletonList("HELLO"));
+
+        // Each of these takes two chars, so the match's char range is twice the pattern's length
+        List<int[]> matches = new ArrayList<>();
+        matcher.match("> 𝐇𝐄𝐋𝐋𝐎", (pattern, start, end) -> matches.add(new int[] { start, end }));
+        Assertions.assertEquals(1, matches.size());
+        Assertions.assertArrayEquals(new int[] { 2, 12 }, matches.get(0));
+    }
+
+    @Test
+    public void testContainsAny() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        List<String> patterns = Arrays.asList("TEST", "hello", "ab", "aab");
+        HomoglyphMatcher matcher = helper.matcher(patterns);
+
+        for (String text : Arrays.asList("this is a ＴＥＳＴ", "ｈｅｌｌｏ", "aaab", "hell", "a b", "")) {
+            boolean expected = patterns.stream().anyMatch(pattern -> helper.contains(text, pattern));
+            Assertions.assertEquals(expected, matcher.containsAny(text), text);
+        }
+    }
+
+    @Test
+    public void testStop() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphMatcher matcher = helper.matcher(Arrays.asList("a", "a"));
+
+        int[] count = new int[1];
+        Assertions.assertFalse(matcher.match("aaaa", (pattern, start, end) -> ++count[0] < 3));
+        Assertions.assertEquals(3, count[0]);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> helper.matcher(Collections.singletonList("")));
+    }
+
+    @Test
+    public void testMatchLongest() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphMatcher matcher = helper.matcher(Arrays.asList("he", "she", "his", "hers"));
+
+        // "she" starts first, so "hers" loses even though it's longer
+        List<String> matches = new ArrayList<>();
+        Assertions.assertTrue(matcher.matchLongest("ushers", (pattern, start, end, codePointStart, codePointEnd) -> matches.add(matcher.pattern(pattern) + "@" + start + "-" + end)));
+        Assertions.assertEquals(Collections.singletonList("she@1-4"), matches);
+
+        // Char and code point ranges differ once surrogate pairs are involved
+        List<int[]> ranges = new ArrayList<>();
+        matcher.matchLongest("𝐡𝐞𝐫𝐬 hers", (pattern, start, end, codePointStart, codePointEnd) -> ranges.add(new int[] { pattern, start, end, codePointStart, codePointEnd }));
+        Assertions.assertEquals(2, ranges.size());
+        Assertions.assertArrayEquals(new int[] { 3, 0, 8, 0, 4 }, ranges.get(0));
+        Assertions.assertArrayEquals(new int[] { 3, 9, 13, 5, 9 }, ranges.get(1));
+
+        Assertions.assertFalse(matcher.matchLongest("he he he", (pattern, start, end, codePointStart, codePointEnd) -> start == 0));
+    }
+
+    @Test
+    public void testReplaceAll() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        Assertions.assertEquals("this is a ****", helper.replaceAll("this is a ＴＥＳＴ", "TEST", "****"));
+        Assertions.assertEquals("[x] [x]ing 𝐡𝐞𝐥𝐩", helper.replaceAll("ｈｅｌｌｏ 𝐡𝐞𝐥𝐥𝐨ing 𝐡𝐞𝐥𝐩", "hello", "[x]"));
+        Assertions.assertEquals("no match", helper.replaceAll("no match", Arrays.asList("he", "she"), "-"));
+        Assertions.assertEquals("u-rs", helper.replaceAll("ushers", Arrays.asList("he", "she", "hers"), "-"));
+
+        Assertions.assertEquals("u***rs", helper.mask("ushers", Arrays.asList("he", "she", "his"), '*'));
+        Assertions.assertEquals("> *****!", helper.mask("> 𝐇𝐄𝐋𝐋𝐎!", Collections.singletonList("HELLO"), '*'));
+    }
+
+    @Test
+    public void testReplaceMatchesNaive() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        List<String> patterns = Arrays.asList("ab", "aab", "b", "abab", "ba", "ａｂａ");
+        HomoglyphMatcher matcher = helper.matcher(patterns);
+
+        Random random = new Random(82);
+        String[] pieces = { "a", "b", "ａ", "ｂ", "𝐚", "𝐛", "c", " " };
+        for (int n = 0; n < 500; n++) {
+            String text = RandomText.upTo(random, pieces, 19);
+
+            // Every match, earliest start first, then longest
+            List<int[]> all = new ArrayList<>();
+            matcher.match(text, (pattern, start, end) -> all.add(new int[] { start, end }));
+            all.sort((one, two) -> one[0] != two[0] ? Integer.compare(one[0], two[0]) : Integer.compare(two[1], one[1]));
+
+            StringBuilder expected = new StringBuilder();
+            int copied = 0;
+            for (int[] match : all) {
+                if (match[0] >= copied) {
+                    expected.append(text, copied, match[0]).append('#');
+                    copied = match[1];
+                }
+            }
+            expected.append(text, copied, text.length());
+
+            Assertions.assertEquals(expected.toString(), matcher.replaceAll(text, "#"), text);
+        }
+    }
+}
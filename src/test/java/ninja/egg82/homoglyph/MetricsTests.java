@@ -0,0 +1,114 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MetricsTests {
+    @Test
+    public void testMetrics() throws IOException {
+        HomoglyphMetrics metrics = new HomoglyphMetrics();
+        HomoglyphHelper plain = HomoglyphHelper.create();
+        HomoglyphHelper helper = plain.withListener(metrics);
+
+        Assertions.assertEquals(plain.toASCII("ＨＥＬＬＯ"), helper.toASCII("ＨＥＬＬＯ"));
+        Assertions.assertEquals("hello", helper.toASCII("hello"));
+        Assertions.assertTrue(helper.equals("ＨＥＬＬＯ", "HELLO"));
+        Assertions.assertTrue(helper.contains("say ＨＥＬＬＯ", "HELLO"));
+        helper.skeleton("abc");
+
+        Assertions.assertEquals(2, metrics.calls(HomoglyphListener.Operation.TO_ASCII));
+        Assertions.assertEquals(1, metrics.asciiCalls(HomoglyphListener.Operation.TO_ASCII));
+        Assertions.assertEquals(1, metrics.calls(HomoglyphListener.Operation.EQUALS));
+        Assertions.assertEquals(1, metrics.calls(HomoglyphListener.Operation.INDEX_OF));
+        Assertions.assertEquals(1, metrics.calls(HomoglyphListener.Operation.SKELETON));
+        Assertions.assertEquals(0, metrics.calls(HomoglyphListener.Operation.TO_ALPHANUMERIC));
+        Assertions.assertEquals(2, Arrays.stream(metrics.histogram(HomoglyphListener.Operation.TO_ASCII)).sum());
+        Assertions.assertTrue(metrics.totalNanos(HomoglyphListener.Operation.TO_ASCII) >= 0);
+
+        // The original helper doesn't report anything
+        plain.toASCII("ＨＥＬＬＯ");
+        Assertions.assertEquals(2, metrics.calls(HomoglyphListener.Operation.TO_ASCII));
+
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.calls(HomoglyphListener.Operation.TO_ASCII));
+    }
+
+    @Test
+    public void testUnmapped() throws IOException {
+        HomoglyphMetrics metrics = new HomoglyphMetrics();
+        HomoglyphHelper helper = HomoglyphHelper.create().withListener(metrics);
+
+        // Mapped and ASCII code points aren't counted, only the ones no list covers
+        helper.toAlphanumeric("ａ☃b☃ｃ");
+        Map<Integer, Long> unmapped = metrics.unmapped();
+        Assertions.assertEquals(1, unmapped.size());
+        Assertions.assertEquals(2L, unmapped.get((int) '☃'));
+
+        for (int c = 0x4E00; c < 0x4E00 + 5000; c++) {
+            helper.toAlphanumeric(new String(Character.toChars(c)));
+        }
+        Assertions.assertTrue(metrics.unmapped().size() <= 4096);
+        Assertions.assertTrue(metrics.unmappedOverflow() > 0);
+    }
+
+    @Test
+    public void testOverloads() throws IOException {
+        HomoglyphMetrics metrics = new HomoglyphMetrics();
+        HomoglyphHelper helper = HomoglyphHelper.create().withListener(metrics);
+
+        // Every overload reads the snowman exactly once
+        String text = "ＨＥＬＬＯ ☃";
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        helper.toASCII(text, new StringBuilder());
+        helper.toASCII(text, new StringWriter());
+        helper.toASCII(text, new char[text.length() * 2], 0);
+        helper.toASCII(utf8, 0, utf8.length, new byte[utf8.length], 0);
+        helper.toASCII(ByteBuffer.wrap(utf8), ByteBuffer.allocate(utf8.length));
+        helper.toASCII(new String[] { text, "plain" });
+        Assertions.assertEquals(7, metrics.calls(HomoglyphListener.Operation.TO_ASCII));
+        Assertions.assertEquals(1, metrics.asciiCalls(HomoglyphListener.Operation.TO_ASCII));
+        Assertions.assertEquals(6L, metrics.unmapped().get((int) '☃'));
+
+        Assertions.assertEquals(6, helper.lastIndexOf("HELLO ＨＥＬＬＯ", "HELLO"));
+        Assertions.assertTrue(helper.startsWith("ＨＥＬＬＯ", "HE"));
+        Assertions.assertTrue(helper.endsWith("ＨＥＬＬＯ", "LO"));
+        Assertions.assertTrue(helper.equalsUTF8(utf8, 0, utf8.length, utf8, 0, utf8.length));
+        Assertions.assertEquals(0, helper.indexOfUTF8(utf8, 0, utf8.length, new byte[] { 'H' }, 0, 1));
+        Assertions.assertTrue(helper.containsAny(Arrays.asList("nothing", "say ＨＥＬＬＯ", "never searched"), "HELLO"));
+        Assertions.assertEquals(1, metrics.calls(HomoglyphListener.Operation.LAST_INDEX_OF));
+        Assertions.assertEquals(1, metrics.calls(HomoglyphListener.Operation.STARTS_WITH));
+        Assertions.assertEquals(1, metrics.calls(HomoglyphListener.Operation.ENDS_WITH));
+        Assertions.assertEquals(1, metrics.calls(HomoglyphListener.Operation.EQUALS));
+        Assertions.assertEquals(3, metrics.calls(HomoglyphListener.Operation.INDEX_OF));
+        Assertions.assertEquals(1, metrics.asciiCalls(HomoglyphListener.Operation.INDEX_OF));
+    }
+
+    @Test
+    public void testStopsReading() throws IOException {
+        HomoglyphMetrics metrics = new HomoglyphMetrics();
+        HomoglyphHelper helper = HomoglyphHelper.create().withListener(metrics);
+
+        // Searches only report what they read before finding the needle
+        Assertions.assertEquals(0, helper.indexOf("HELLO ☃", "HELLO"));
+        Assertions.assertEquals(1, metrics.asciiCalls(HomoglyphListener.Operation.INDEX_OF));
+        Assertions.assertTrue(metrics.unmapped().isEmpty());
+
+        Assertions.assertEquals(-1, helper.indexOf("HELLO ☃", "WORLD"));
+        Assertions.assertEquals(1, metrics.asciiCalls(HomoglyphListener.Operation.INDEX_OF));
+        Assertions.assertEquals(1L, metrics.unmapped().get((int) '☃'));
+    }
+
+    @Test
+    public void testBuckets() {
+        Assertions.assertEquals(64L, HomoglyphMetrics.bucketBound(0));
+        Assertions.assertEquals(128L, HomoglyphMetrics.bucketBound(1));
+        Assertions.assertEquals(Long.MAX_VALUE, HomoglyphMetrics.bucketBound(HomoglyphMetrics.BUCKETS - 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HomoglyphMetrics.bucketBound(HomoglyphMetrics.BUCKETS));
+    }
+}
@@ -0,0 +1,116 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PatternTests {
+    @Test
+    public void testCompile() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphPattern pattern = helper.compile("abcd");
+
+        Assertions.assertEquals(0, pattern.indexOf("ａｂｃｄａｂｃｄ"));
+        Assertions.assertEquals(4, pattern.indexOf("ａｂｃｄａｂｃｄ", 1));
+        Assertions.assertEquals(4, pattern.lastIndexOf("ａｂｃｄａｂｃｄ"));
+        Assertions.assertEquals(0, pattern.lastIndexOf("ａｂｃｄａｂｃｄ", -1));
+        Assertions.assertEquals(-1, pattern.indexOf("ａｂｃ"));
+        Assertions.assertEquals(-1, pattern.indexOf(null));
+        Assertions.assertTrue(pattern.contains("xx𝐚𝐛𝐜𝐝"));
+
+        // Indexes are in code points, the same as the helper's
+        Assertions.assertEquals(2, helper.compile("HELLO").indexOf("𝐇𝐄𝐇𝐄𝐋𝐋𝐎"));
+        Assertions.assertEquals(2, helper.indexOf("𝐇𝐄𝐇𝐄𝐋𝐋𝐎", "HELLO"));
+    }
+
+    @Test
+    public void testAdversarial() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        StringBuilder haystack = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            haystack.append(i % 2 == 0 ? 'a' : 'ａ');
+        }
+        StringBuilder needle = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            needle.append('a');
+        }
+        needle.append('b');
+        String h = haystack.toString();
+        String n = needle.toString();
+
+        // Backtracking would take about a billion comparisons for each of these
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            Assertions.assertEquals(-1, helper.indexOf(h, n));
+            Assertions.assertEquals(-1, helper.lastIndexOf(h, n));
+            Assertions.assertEquals(h.length() - n.length(), helper.indexOf(h.substring(1) + "b", n));
+        });
+    }
+
+    @Test
+    public void testDistance() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        Assertions.assertEquals(0, helper.distance("paypal", "ｐａｙｐａｌ", 2));
+        Assertions.assertEquals(1, helper.distance("paypal", "ｐａｙ\u200Bｐａｌ", 2));
+        // 1 and l are homoglyphs, but 4 and a aren't
+        Assertions.assertEquals(1, helper.distance("paypal", "p4ypa1", 2));
+        Assertions.assertEquals(2, helper.distance("paypal", "p4yp41", 2));
+        Assertions.assertEquals(-1, helper.distance("paypal", "p4yp4i", 2));
+        Assertions.assertEquals(-1, helper.distance("paypal", "pay", 2));
+        Assertions.assertEquals(3, helper.distance("", "𝐚𝐛𝐜", 3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> helper.distance("a", "b", -1));
+
+        Assertions.assertTrue(helper.containsWithin("log in to ｐａｙ\u200Bｐａｌ now", "paypal", 1));
+        Assertions.assertFalse(helper.containsWithin("log in to ｐａｙ\u200Bｐａｌ now", "paypal", 0));
+        Assertions.assertTrue(helper.containsWithin("ＨＥＬＬＯ", "HELLO", 0));
+        Assertions.assertFalse(helper.containsWithin(null, "HELLO", 1));
+    }
+
+    @Test
+    public void testDistanceMatchesNaive() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        Random random = new Random(20);
+        String[] pieces = { "a", "b", "c", "ａ", "ｂ", "𝐚", "𝐜", "\u200B" };
+
+        for (int n = 0; n < 400; n++) {
+            // Long enough, now and then, to need more than one long of bits
+            int max = n % 4 == 0 ? 90 : 12;
+            String one = RandomText.upTo(random, pieces, max);
+            String two = RandomText.upTo(random, pieces, max);
+            int k = random.nextInt(6);
+
+            int expected = naive(helper, one, two, false);
+            Assertions.assertEquals(expected <= k ? expected : -1, helper.compile(one).distance(two, k), one + " / " + two);
+            Assertions.assertEquals(naive(helper, one, two, true) <= k, helper.containsWithin(two, one, k), one + " in " + two);
+        }
+    }
+
+    private static int naive(HomoglyphHelper helper, String needle, String other, boolean search) {
+        int[] a = needle.codePoints().toArray();
+        int[] b = other.codePoints().toArray();
+        int[][] d = new int[a.length + 1][b.length + 1];
+        for (int i = 0; i <= a.length; i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length; j++) {
+            d[0][j] = search ? 0 : j;
+        }
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                boolean same = helper.equals(new String(b, j - 1, 1), new String(a, i - 1, 1));
+                d[i][j] = Math.min(d[i - 1][j - 1] + (same ? 0 : 1), Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        if (!search) {
+            return d[a.length][b.length];
+        }
+        int best = d[a.length][0];
+        for (int j = 1; j <= b.length; j++) {
+            best = Math.min(best, d[a.length][j]);
+        }
+        return best;
+    }
+}
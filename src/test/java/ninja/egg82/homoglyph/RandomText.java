@@ -0,0 +1,27 @@
+package ninja.egg82.homoglyph;
+
+import java.util.Random;
+
+/**
+ * Builds random strings out of a few interesting pieces, for tests that check
+ * a fast path against a naive version of itself.
+ */
+final class RandomText {
+    private RandomText() { }
+
+    /**
+     * Returns up to max pieces, picked at random and joined together.
+     */
+    static String upTo(Random random, String[] pieces, int max) { return exactly(random, pieces, random.nextInt(max + 1)); }
+
+    /**
+     * Returns count pieces, picked at random and joined together.
+     */
+    static String exactly(Random random, String[] pieces, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(pieces[random.nextInt(pieces.length)]);
+        }
+        return builder.toString();
+    }
+}
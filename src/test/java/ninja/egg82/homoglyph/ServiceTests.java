@@ -0,0 +1,101 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ServiceTests {
+    @Test
+    public void testReload() throws IOException {
+        Path dir = Files.createTempDirectory("homoglyph");
+        Path list = dir.resolve("list.lst");
+        try {
+            write(list, "41,391,410\n");
+            try (HomoglyphService service = HomoglyphService.watch(list)) {
+                HomoglyphHelper first = service.helper();
+                Assertions.assertTrue(first.equals("Α", "A"));
+                Assertions.assertFalse(first.equals("α", "a"));
+                Assertions.assertEquals(1, service.reloadCount());
+
+                write(list, "41,391,410\n61,3b1,430\n");
+                service.reload();
+                Assertions.assertTrue(service.helper().equals("α", "a"));
+                Assertions.assertEquals(2, service.reloadCount());
+                Assertions.assertTrue(service.lastReloadNanos() > 0);
+
+                // The old snapshot is untouched
+                Assertions.assertFalse(first.equals("α", "a"));
+
+                Files.delete(list);
+                Assertions.assertThrows(IOException.class, service::reload);
+                Assertions.assertTrue(service.helper().equals("α", "a"));
+                Assertions.assertEquals(1, service.failureCount());
+                Assertions.assertNotNull(service.lastFailure());
+            }
+        } finally {
+            Files.deleteIfExists(list);
+            Files.deleteIfExists(dir.resolve("list.tmp"));
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testWatch() throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("homoglyph");
+        Path list = dir.resolve("list.lst");
+        try {
+            write(list, "41,391,410\n");
+            try (HomoglyphService service = HomoglyphService.watch(list)) {
+                Assertions.assertFalse(service.helper().equals("α", "a"));
+
+                write(list, "41,391,410\n61,3b1,430\n");
+                for (int i = 0; i < 200 && !service.helper().equals("α", "a"); i++) {
+                    Thread.sleep(50L);
+                }
+                Assertions.assertTrue(service.helper().equals("α", "a"));
+            }
+        } finally {
+            Files.deleteIfExists(list);
+            Files.deleteIfExists(dir.resolve("list.tmp"));
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testReloadTable() throws IOException {
+        Path dir = Files.createTempDirectory("homoglyph");
+        Path list = dir.resolve("list.lst");
+        Path table = dir.resolve("list.bin");
+        try {
+            write(list, "41,391,410\n");
+            HomoglyphTableGenerator.generate(list, table);
+            try (HomoglyphService service = HomoglyphService.watch(table)) {
+                HomoglyphHelper first = service.helper();
+                Assertions.assertFalse(first.equals("α", "a"));
+
+                // The table isn't held open by the service, so it can be written over in place
+                write(list, "41,391,410\n61,3b1,430\n");
+                HomoglyphTableGenerator.generate(list, table);
+                service.reload();
+                Assertions.assertTrue(service.helper().equals("α", "a"));
+                Assertions.assertTrue(first.equals("Α", "A"));
+                Assertions.assertFalse(first.equals("α", "a"));
+            }
+        } finally {
+            Files.deleteIfExists(list);
+            Files.deleteIfExists(table);
+            Files.deleteIfExists(dir.resolve("list.tmp"));
+            Files.delete(dir);
+        }
+    }
+
+    private static void write(Path path, String list) throws IOException {
+        Path temp = path.resolveSibling("list.tmp");
+        Files.write(temp, list.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
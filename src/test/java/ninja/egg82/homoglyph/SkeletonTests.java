@@ -0,0 +1,33 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SkeletonTests {
+    @Test
+    public void testSkeleton() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        String[] names = { "hello", "ｈｅｌｌｏ", "𝐡𝐞𝐥𝐥𝐨", "hеllо" };
+        for (String name : names) {
+            Assertions.assertTrue(helper.equals(names[0], name));
+            Assertions.assertEquals(helper.skeleton(names[0]), helper.skeleton(name));
+            Assertions.assertEquals(helper.hash64(names[0]), helper.hash64(name));
+        }
+
+        Assertions.assertNotEquals(helper.skeleton("hello"), helper.skeleton("help"));
+        Assertions.assertNotEquals(helper.hash64("hello"), helper.hash64("help"));
+        Assertions.assertEquals("", helper.skeleton(""));
+    }
+
+    @Test
+    public void testIdempotent() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        String skeleton = helper.skeleton("ＨＥＬＬＯ，　ＷＯＲＬＤ！");
+        Assertions.assertEquals(skeleton, helper.skeleton(skeleton));
+        Assertions.assertEquals(helper.hash64(skeleton), helper.hash64("ＨＥＬＬＯ，　ＷＯＲＬＤ！"));
+        Assertions.assertTrue(helper.equals("ＨＥＬＬＯ，　ＷＯＲＬＤ！", skeleton));
+    }
+}
@@ -0,0 +1,66 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SourceTests {
+    private static final String CONFUSABLES = "\uFEFF# confusables.txt\n"
+            + "\n"
+            + "0430 ;\t0061 ;\tMA\t# ( а → a ) CYRILLIC SMALL LETTER A → LATIN SMALL LETTER A\t#\n"
+            + "03B1 ;\t0061 ;\tMA\t# ( α → a ) GREEK SMALL LETTER ALPHA → LATIN SMALL LETTER A\t#\n"
+            + "217F ;\t006D ;\tMA\t# ( ⅿ → m ) SMALL ROMAN NUMERAL ONE THOUSAND → LATIN SMALL LETTER M\t#\n"
+            + "0271 ;\t0072 006E ;\tMA\t# ( ɱ → rn ) LATIN SMALL LETTER M WITH HOOK → LATIN SMALL LETTER R, LATIN SMALL LETTER N\t#\n";
+
+    @Test
+    public void testConfusables() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create(GlyphSource.confusables(new StringReader(CONFUSABLES)));
+
+        Assertions.assertTrue(helper.equals("аα", "aa"));
+        Assertions.assertTrue(helper.equals("ⅿ", "m"));
+        Assertions.assertEquals("aam", helper.toOrderedASCII("аαⅿ"));
+        // Sequences can't be a group member
+        Assertions.assertFalse(helper.equals("ɱ", "m"));
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create(
+                GlyphSource.list(new StringReader("41,391\n61,ff41\n")),
+                GlyphSource.confusables(new StringReader(CONFUSABLES)),
+                sink -> sink.group(0x391, 0x410)
+        );
+
+        // Groups sharing a member are joined, so the list and confusables agree with each other
+        Assertions.assertTrue(helper.equals("ａ", "а"));
+        Assertions.assertTrue(helper.equals("ａ", "α"));
+        Assertions.assertTrue(helper.equals("А", "A"));
+        Assertions.assertEquals("aaaAA", helper.toOrderedASCII("ａаαΑА"));
+    }
+
+    @Test
+    public void testRemove() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create(
+                sink -> sink.remove(0x3B1),
+                GlyphSource.list(new StringReader("61,3b1,430\n"))
+        );
+
+        Assertions.assertTrue(helper.equals("а", "a"));
+        Assertions.assertFalse(helper.equals("α", "a"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HomoglyphHelper.create(sink -> sink.group(-1)));
+    }
+
+    @Test
+    public void testDefaults() throws IOException {
+        HomoglyphHelper expected = HomoglyphHelper.create();
+        HomoglyphHelper helper = HomoglyphHelper.create(GlyphSource.defaults());
+
+        String unicode = "ＨＥＬＬＯ，　ＷＯＲＬＤ！ｈｅｌｌｏ‚ㅤｗｏｒｌｄǃ𝐇𝐞𝐥𝐥𝐨";
+        Assertions.assertEquals(expected.toASCII(unicode), helper.toASCII(unicode));
+        Assertions.assertEquals(expected.toOrderedASCII(unicode), helper.toOrderedASCII(unicode));
+        Assertions.assertEquals(expected.toStandardCharset(unicode), helper.toStandardCharset(unicode));
+        Assertions.assertEquals(expected.toAlphanumeric(unicode), helper.toAlphanumeric(unicode));
+        Assertions.assertEquals(expected.skeleton(unicode), helper.skeleton(unicode));
+    }
+}
@@ -0,0 +1,87 @@
+package ninja.egg82.homoglyph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TableTests {
+    @Test
+    public void testRoundTrip() throws IOException {
+        HomoglyphTable table = HomoglyphTable.compile(GlyphGroups.parse(new InputStreamReader(getClass().getClassLoader().getResourceAsStream("char_codes.lst"), StandardCharsets.UTF_8)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table.write(out);
+
+        HomoglyphHelper compiled = HomoglyphHelper.create("char_codes.lst");
+        HomoglyphHelper loaded = HomoglyphHelper.load(ByteBuffer.wrap(out.toByteArray()));
+
+        String unicode = "ＨＥＬＬＯ，　ＷＯＲＬＤ！ｈｅｌｌｏ‚ㅤｗｏｒｌｄǃ𝐇𝐞𝐥𝐥𝐨";
+        Assertions.assertEquals(compiled.toASCII(unicode), loaded.toASCII(unicode));
+        Assertions.assertEquals(compiled.toOrderedASCII(unicode), loaded.toOrderedASCII(unicode));
+        Assertions.assertEquals(compiled.toStandardCharset(unicode), loaded.toStandardCharset(unicode));
+        Assertions.assertEquals(compiled.toAlphanumeric(unicode), loaded.toAlphanumeric(unicode));
+        Assertions.assertTrue(loaded.equals("ＨＥＬＬＯ", "HELLO"));
+        Assertions.assertFalse(loaded.equals("ＨＥＬＬＯ", "hello"));
+    }
+
+    @Test
+    public void testRoundTripOverlapping() throws IOException {
+        // a is in two lists, so the table keeps the lists to tell them apart
+        HomoglyphTable table = HomoglyphTable.compile(GlyphGroups.parse(new StringReader("61,ff41\n61,430\n62,ff42\n")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table.write(out);
+        HomoglyphTable loaded = HomoglyphTable.read(ByteBuffer.wrap(out.toByteArray()));
+
+        Assertions.assertTrue(loaded.overlaps());
+        Assertions.assertTrue(loaded.similar(0x430, 'a'));
+        Assertions.assertFalse(loaded.similar(0xFF41, 0x430));
+        int[] codePoints = { 'a', 'b', 0xFF41, 0xFF42, 0x430 };
+        for (int c : codePoints) {
+            for (int d : codePoints) {
+                Assertions.assertEquals(table.similar(c, d), loaded.similar(c, d));
+            }
+            for (TransformMode mode : TransformMode.values()) {
+                Assertions.assertEquals(table.transform(mode).get(c), loaded.transform(mode).get(c));
+            }
+            Assertions.assertEquals(table.skeletonTransform.get(c), loaded.skeletonTransform.get(c));
+            Assertions.assertEquals(table.symbol(c), loaded.symbol(c));
+        }
+    }
+
+    @Test
+    public void testCreatePath() throws IOException {
+        Path list = Files.createTempFile("homoglyph", ".lst");
+        Path table = Files.createTempFile("homoglyph", ".bin");
+        try {
+            Files.write(list, "# comment\n41,391,410\n61,3b1,430\n".getBytes(StandardCharsets.UTF_8));
+            HomoglyphTableGenerator.generate(list, table);
+
+            for (Path path : new Path[] { list, table }) {
+                HomoglyphHelper helper = HomoglyphHelper.create(path);
+                Assertions.assertEquals("AAA", helper.toASCII("AΑА"));
+                Assertions.assertEquals("aaa", helper.toASCII("aαа"));
+                Assertions.assertTrue(helper.equals("Αα", "Aa"));
+
+                // Nothing is left mapped, so the file can be truncated under a live helper
+                Files.write(path, new byte[0]);
+                Assertions.assertEquals("AAA", helper.toASCII("AΑА"));
+                Assertions.assertTrue(helper.equals("Αα", "Aa"));
+            }
+        } finally {
+            Files.deleteIfExists(list);
+            Files.deleteIfExists(table);
+        }
+    }
+
+    @Test
+    public void testInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HomoglyphHelper.load(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 })));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> HomoglyphHelper.load(ByteBuffer.allocate(0)));
+    }
+}
@@ -0,0 +1,87 @@
+package ninja.egg82.homoglyph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ToolTests {
+    @Test
+    public void testNormalize() throws IOException, InterruptedException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        String text = text();
+        Path input = write(text);
+        try {
+            // Tiny chunks force lines longer than a chunk, and many chunks in flight at once
+            for (int chunkSize : new int[] { 7, 64, 4096, HomoglyphTool.CHUNK_SIZE }) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                long written = HomoglyphTool.run(input, Channels.newChannel(out), HomoglyphTool.normalize(helper.transform(TransformMode.ASCII)), 4, chunkSize);
+                Assertions.assertEquals(helper.toASCII(text), new String(out.toByteArray(), StandardCharsets.UTF_8));
+                Assertions.assertEquals(out.size(), written);
+            }
+        } finally {
+            Files.delete(input);
+        }
+    }
+
+    @Test
+    public void testScan() throws IOException, InterruptedException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        HomoglyphMatcher matcher = helper.matcher(Arrays.asList("HELLO", "WORLD"));
+        String text = text();
+        Path input = write(text + "no newline at the end ＷＯＲＬＤ");
+        try {
+            StringBuilder expected = new StringBuilder();
+            long lines = 0L;
+            for (String line : (text + "no newline at the end ＷＯＲＬＤ").split("\n")) {
+                if (matcher.containsAny(line)) {
+                    expected.append(line).append('\n');
+                    lines++;
+                }
+            }
+
+            for (int chunkSize : new int[] { 7, 64, 4096 }) {
+                LongAdder matches = new LongAdder();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                HomoglyphTool.run(input, Channels.newChannel(out), HomoglyphTool.scan(matcher, matches), 4, chunkSize);
+                Assertions.assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+                Assertions.assertEquals(lines, matches.sum());
+            }
+        } finally {
+            Files.delete(input);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException, InterruptedException {
+        Path input = write("");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Assertions.assertEquals(0L, HomoglyphTool.run(input, Channels.newChannel(out), HomoglyphTool.normalize(HomoglyphHelper.create().transform(TransformMode.ASCII)), 2, 64));
+            Assertions.assertEquals(0, out.size());
+        } finally {
+            Files.delete(input);
+        }
+    }
+
+    private static String text() {
+        StringBuilder text = new StringBuilder();
+        String[] lines = { "ＨＥＬＬＯ there", "plain ascii line", "", "𝐖𝐎𝐑𝐋𝐃 and emoji 😀😀", "a much longer line of ｆｕｌｌｗｉｄｔｈ text that spans several of the smallest chunks" };
+        for (int i = 0; i < 500; i++) {
+            text.append(lines[i % lines.length]).append(' ').append(i).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static Path write(String text) throws IOException {
+        Path input = Files.createTempFile("homoglyph", ".txt");
+        Files.write(input, text.getBytes(StandardCharsets.UTF_8));
+        return input;
+    }
+}
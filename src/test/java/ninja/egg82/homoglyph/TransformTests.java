@@ -0,0 +1,123 @@
+package ninja.egg82.homoglyph;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TransformTests {
+    @Test
+    public void testUnchanged() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        String ascii = "hello, world!";
+        Assertions.assertSame(ascii, helper.toASCII(ascii));
+        Assertions.assertSame(ascii, helper.toStandardCharset(ascii));
+        Assertions.assertSame(ascii, helper.toOrderedASCII(ascii));
+
+        CharSequence buffer = CharBuffer.wrap("TEST");
+        Assertions.assertSame(buffer, helper.toASCII(buffer));
+        Assertions.assertEquals("TEST", helper.toASCII(CharBuffer.wrap("ＴＥＳＴ")).toString());
+    }
+
+    @Test
+    public void testBuilder() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        StringBuilder out = new StringBuilder("> ");
+        Assertions.assertSame(out, helper.toAlphanumeric("ｈｅｌｌｏ", out));
+        helper.toStandardCharset("，　ＷＯＲＬＤ！", out);
+        Assertions.assertEquals("> " + helper.toAlphanumeric("ｈｅｌｌｏ") + helper.toStandardCharset("，　ＷＯＲＬＤ！"), out.toString());
+        Assertions.assertEquals("> hello", out.substring(0, 7));
+    }
+
+    @Test
+    public void testAppendable() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        StringWriter out = new StringWriter();
+        helper.toASCII("a𝐇b", out);
+        Assertions.assertEquals(helper.toASCII("a𝐇b"), out.toString());
+    }
+
+    @Test
+    public void testArray() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        char[] out = new char[16];
+        int written = helper.toASCII("ＴＥＳＴ", out, 2);
+        Assertions.assertEquals(4, written);
+        Assertions.assertEquals("TEST", new String(out, 2, written));
+
+        written = helper.toAlphanumeric("１２３", out, 0);
+        Assertions.assertEquals(helper.toAlphanumeric("１２３"), new String(out, 0, written));
+    }
+
+    @Test
+    public void testSurrogates() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        // Unpaired surrogates pass through untouched
+        String broken = "\uD835a\uDC07";
+        Assertions.assertEquals(broken, helper.toASCII(broken));
+        Assertions.assertEquals("H", helper.toASCII("𝐇"));
+    }
+
+    @Test
+    public void testReader() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        String unicode = "ｈｅｌｌｏ, 𝐇𝐄𝐋𝐋𝐎 \uD835";
+        // Hand out one char per read so every surrogate pair is split
+        Reader slow = new FilterReader(new StringReader(unicode)) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException { return super.read(cbuf, off, Math.min(len, 1)); }
+        };
+
+        StringBuilder result = new StringBuilder();
+        try (Reader reader = helper.reader(slow, TransformMode.ASCII)) {
+            char[] buffer = new char[3];
+            int read;
+            while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                result.append(buffer, 0, read);
+            }
+        }
+        Assertions.assertEquals(helper.toASCII(unicode), result.toString());
+
+        try (Reader reader = helper.reader(new StringReader("ＴＥＳＴ"), TransformMode.STANDARD_CHARSET)) {
+            Assertions.assertEquals('T', reader.read());
+        }
+    }
+
+    @Test
+    public void testWriter() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        String unicode = "ｈｅｌｌｏ, 𝐇𝐄𝐋𝐋𝐎 \uD835";
+        StringWriter out = new StringWriter();
+        try (Writer writer = helper.writer(out, TransformMode.ALPHANUMERIC)) {
+            for (int i = 0; i < unicode.length(); i++) {
+                writer.write(unicode.charAt(i));
+            }
+        }
+        Assertions.assertEquals(helper.toAlphanumeric(unicode), out.toString());
+
+        out = new StringWriter();
+        try (Writer writer = helper.writer(out, TransformMode.ASCII)) {
+            writer.write(unicode);
+        }
+        Assertions.assertEquals(helper.toASCII(unicode), out.toString());
+    }
+
+    @Test
+    public void testMapper() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        String unicode = "ｈｅｌｌｏ 𝐇";
+        String result = unicode.codePoints()
+                .map(helper.codePointMapper(TransformMode.ASCII))
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+                .toString();
+        Assertions.assertEquals(helper.toASCII(unicode), result);
+    }
+}
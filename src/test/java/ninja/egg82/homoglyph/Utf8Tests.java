@@ -0,0 +1,168 @@
+package ninja.egg82.homoglyph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class Utf8Tests {
+    private static final String UNICODE = "plain ascii, ｆｕｌｌｗｉｄｔｈ, 𝐇𝐄𝐋𝐋𝐎 and ΤΕЅΤ";
+
+    @Test
+    public void testTransform() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        byte[] bytes = UNICODE.getBytes(StandardCharsets.UTF_8);
+
+        byte[] out = new byte[bytes.length + 2];
+        int written = helper.toASCII(bytes, 0, bytes.length, out, 2);
+        Assertions.assertEquals(helper.toASCII(UNICODE), new String(out, 2, written, StandardCharsets.UTF_8));
+
+        ByteBuffer src = ByteBuffer.allocateDirect(bytes.length);
+        src.put(bytes).flip();
+        ByteBuffer dst = ByteBuffer.allocateDirect(bytes.length);
+        written = helper.toStandardCharset(src, dst);
+        Assertions.assertFalse(src.hasRemaining());
+        Assertions.assertEquals(written, dst.position());
+        dst.flip();
+        Assertions.assertEquals(helper.toStandardCharset(UNICODE), StandardCharsets.UTF_8.decode(dst).toString());
+    }
+
+    @Test
+    public void testSmallDestination() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+        ByteBuffer src = ByteBuffer.wrap(UNICODE.getBytes(StandardCharsets.UTF_8));
+
+        // Every chunk has to end on a code point boundary for the result to decode cleanly
+        ByteBuffer result = ByteBuffer.allocate(src.remaining());
+        ByteBuffer chunk = ByteBuffer.allocate(5);
+        while (src.hasRemaining()) {
+            chunk.clear();
+            Assertions.assertTrue(helper.toASCII(src, chunk) > 0);
+            chunk.flip();
+            result.put(chunk);
+        }
+        result.flip();
+        Assertions.assertEquals(helper.toASCII(UNICODE), StandardCharsets.UTF_8.decode(result).toString());
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> helper.toASCII(new byte[] { 'a', 'b' }, 0, 2, new byte[1], 0));
+    }
+
+    @Test
+    public void testEquals() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        byte[] one = "ｈｅｌｌｏ 𝐇".getBytes(StandardCharsets.UTF_8);
+        byte[] two = "hello H".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertTrue(helper.equalsUTF8(one, 0, one.length, two, 0, two.length));
+        Assertions.assertTrue(helper.equalsUTF8(ByteBuffer.wrap(two), ByteBuffer.wrap(one)));
+        Assertions.assertFalse(helper.equalsUTF8(one, 0, one.length, two, 0, two.length - 1));
+        Assertions.assertFalse(helper.equalsUTF8(ByteBuffer.wrap(one), null));
+    }
+
+    @Test
+    public void testIndexOf() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        byte[] haystack = "ａａ ＴＥＳＴ".getBytes(StandardCharsets.UTF_8);
+        byte[] needle = "TEST".getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(7, helper.indexOfUTF8(haystack, 0, haystack.length, needle, 0, needle.length));
+        Assertions.assertEquals(-1, helper.indexOfUTF8(haystack, 0, 10, needle, 0, needle.length));
+
+        ByteBuffer buffer = ByteBuffer.wrap(haystack);
+        buffer.position(3);
+        Assertions.assertEquals(3, helper.indexOfUTF8(buffer, ByteBuffer.allocate(0)));
+        Assertions.assertEquals(3, helper.indexOfUTF8(buffer, ByteBuffer.wrap("a".getBytes(StandardCharsets.UTF_8))));
+        Assertions.assertEquals(3, buffer.position());
+    }
+
+    @Test
+    public void testRepetitive() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        StringBuilder haystack = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            haystack.append(i % 2 == 0 ? 'a' : 'ａ');
+        }
+        StringBuilder needle = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            needle.append('a');
+        }
+        needle.append('b');
+        byte[] h = haystack.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] n = needle.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] found = (haystack + "ｂ").getBytes(StandardCharsets.UTF_8);
+
+        // Backtracking would take about a billion comparisons for each of these
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            Assertions.assertEquals(-1, helper.indexOfUTF8(h, 0, h.length, n, 0, n.length));
+            int start = (haystack.toString() + "ｂ").offsetByCodePoints(0, helper.indexOf(haystack + "ｂ", needle.toString()));
+            Assertions.assertEquals((haystack.substring(0, start)).getBytes(StandardCharsets.UTF_8).length, helper.indexOfUTF8(found, 0, found.length, n, 0, n.length));
+        });
+    }
+
+    @Test
+    public void testIndexOfMatchesChars() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        String[] pieces = { "a", "ａ", "b", "ｂ", "ab", "𝐚", "\u00E9" };
+        Random random = new Random(82);
+        for (int r = 0; r < 2_000; r++) {
+            String haystack = RandomText.upTo(random, pieces, 12);
+            String needle = RandomText.upTo(random, pieces, 4);
+            int index = helper.indexOf(haystack, needle);
+            int expected = index < 0 ? -1 : haystack.substring(0, haystack.offsetByCodePoints(0, index)).getBytes(StandardCharsets.UTF_8).length;
+            byte[] h = haystack.getBytes(StandardCharsets.UTF_8);
+            byte[] n = needle.getBytes(StandardCharsets.UTF_8);
+            Assertions.assertEquals(expected, helper.indexOfUTF8(h, 0, h.length, n, 0, n.length), haystack + " / " + needle);
+        }
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        // A stray continuation byte, a truncated sequence and an encoded surrogate all pass through as-is
+        byte[] malformed = { (byte) 0x80, 'a', (byte) 0xE2, (byte) 0x82, 'b', (byte) 0xED, (byte) 0xA0, (byte) 0x80 };
+        byte[] out = new byte[malformed.length];
+        Assertions.assertEquals(malformed.length, helper.toASCII(malformed, 0, malformed.length, out, 0));
+        Assertions.assertArrayEquals(malformed, out);
+
+        Assertions.assertTrue(helper.equalsUTF8(malformed, 0, malformed.length, out, 0, out.length));
+        byte[] other = { (byte) 0x81, 'a' };
+        Assertions.assertFalse(helper.equalsUTF8(malformed, 0, 2, other, 0, 2));
+    }
+
+    @Test
+    public void testLongASCII() throws IOException {
+        HomoglyphHelper helper = HomoglyphHelper.create();
+
+        // Long runs of ASCII are handled a word at a time, so put changes on either side of every word boundary
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            builder.append("abcdefg".substring(0, i % 8)).append(i % 3 == 0 ? "ｘ" : "x");
+        }
+        String unicode = builder.toString();
+        String ascii = helper.toASCII(unicode);
+        byte[] bytes = unicode.getBytes(StandardCharsets.UTF_8);
+        byte[] asciiBytes = ascii.getBytes(StandardCharsets.UTF_8);
+
+        byte[] out = new byte[bytes.length];
+        int written = helper.toASCII(bytes, 0, bytes.length, out, 0);
+        Assertions.assertEquals(ascii, new String(out, 0, written, StandardCharsets.UTF_8));
+
+        Assertions.assertTrue(helper.equalsUTF8(bytes, 0, bytes.length, asciiBytes, 0, asciiBytes.length));
+        asciiBytes[asciiBytes.length - 9] = 'z';
+        Assertions.assertFalse(helper.equalsUTF8(bytes, 0, bytes.length, asciiBytes, 0, asciiBytes.length));
+
+        // Buffers that read longs in different orders still compare byte by byte
+        ByteBuffer little = ByteBuffer.wrap(asciiBytes).order(ByteOrder.LITTLE_ENDIAN);
+        Assertions.assertFalse(helper.equalsUTF8(little, ByteBuffer.wrap(bytes)));
+        Assertions.assertTrue(helper.equalsUTF8(little, ByteBuffer.wrap(asciiBytes.clone())));
+        int index = unicode.offsetByCodePoints(0, helper.indexOf(unicode, "abcdefgx"));
+        Assertions.assertEquals(unicode.substring(0, index).getBytes(StandardCharsets.UTF_8).length, helper.indexOfUTF8(ByteBuffer.wrap(bytes), ByteBuffer.wrap("abcdefgx".getBytes(StandardCharsets.UTF_8)).order(ByteOrder.LITTLE_ENDIAN)));
+    }
+}
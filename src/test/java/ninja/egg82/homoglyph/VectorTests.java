@@ -0,0 +1,96 @@
+package ninja.egg82.homoglyph;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+public class VectorTests {
+    @Test
+    public void testMatchesScalar() throws Throwable {
+        // VectorScan only exists in META-INF/versions/17, which the multi-release profile puts on the
+        // test classpath along with jdk.incubator.vector. Anywhere else there's nothing to compare.
+        MethodHandle skipASCII;
+        MethodHandle sameASCII;
+        MethodHandle skipASCIIBuffer = null;
+        MethodHandle sameASCIIBuffer = null;
+        try {
+            Class<?> scan = Class.forName("ninja.egg82.homoglyph.VectorScan");
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Assumptions.assumeTrue((boolean) lookup.findStatic(scan, "supported", MethodType.methodType(boolean.class)).invoke());
+            skipASCII = lookup.findStatic(scan, "skipASCII", MethodType.methodType(int.class, byte[].class, int.class, int.class));
+            sameASCII = lookup.findStatic(scan, "sameASCII", MethodType.methodType(int.class, byte[].class, int.class, byte[].class, int.class, int.class));
+            // Buffers are only scanned with vectors on JDKs that can still load them from one
+            try {
+                lookup.findStatic(scan, "buffersSupported", MethodType.methodType(boolean.class)).invoke();
+                skipASCIIBuffer = lookup.findStatic(scan, "skipASCII", MethodType.methodType(int.class, ByteBuffer.class, int.class, int.class));
+                sameASCIIBuffer = lookup.findStatic(scan, "sameASCII", MethodType.methodType(int.class, ByteBuffer.class, int.class, ByteBuffer.class, int.class, int.class));
+            } catch (LinkageError ignored) {
+                // Arrays only
+            }
+        } catch (ClassNotFoundException | LinkageError ex) {
+            Assumptions.assumeTrue(false, "The Vector API isn't available");
+            return;
+        }
+
+        // Mostly ASCII, with non-ASCII bytes and differences landing on every offset around vector boundaries
+        Random random = new Random(17);
+        for (int r = 0; r < 20_000; r++) {
+            byte[] one = new byte[random.nextInt(200)];
+            for (int i = 0; i < one.length; i++) {
+                one[i] = (byte) random.nextInt(0x80);
+            }
+            if (one.length > 0 && random.nextBoolean()) {
+                one[random.nextInt(one.length)] = (byte) (0x80 | random.nextInt(0x80));
+            }
+            byte[] two = one.clone();
+            if (two.length > 0 && random.nextBoolean()) {
+                two[random.nextInt(two.length)] ^= (byte) (1 + random.nextInt(0x7F));
+            }
+
+            int start = one.length == 0 ? 0 : random.nextInt(one.length + 1);
+            int end = start + random.nextInt(one.length - start + 1);
+            Assertions.assertEquals(scalarSkipASCII(one, start, end), (int) skipASCII.invoke(one, start, end));
+
+            int max = end - start;
+            Assertions.assertEquals(scalarSameASCII(one, start, two, start, max), (int) sameASCII.invoke(one, start, two, start, max));
+            // Unaligned against each other, too
+            int shift = Math.min(max, random.nextInt(3));
+            Assertions.assertEquals(scalarSameASCII(one, start + shift, two, start, max - shift), (int) sameASCII.invoke(one, start + shift, two, start, max - shift));
+
+            if (skipASCIIBuffer != null) {
+                ByteBuffer directOne = direct(one);
+                ByteBuffer directTwo = direct(two);
+                Assertions.assertEquals(scalarSkipASCII(one, start, end), (int) skipASCIIBuffer.invoke(directOne, start, end));
+                Assertions.assertEquals(scalarSameASCII(one, start + shift, two, start, max - shift), (int) sameASCIIBuffer.invoke(directOne, start + shift, directTwo, start, max - shift));
+                // A heap buffer against a direct one
+                Assertions.assertEquals(scalarSameASCII(one, start, two, start, max), (int) sameASCIIBuffer.invoke(ByteBuffer.wrap(one), start, directTwo, start, max));
+            }
+        }
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    private static int scalarSkipASCII(byte[] array, int index, int end) {
+        while (index < end && array[index] >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int scalarSameASCII(byte[] one, int i, byte[] two, int j, int max) {
+        int n = 0;
+        while (n < max && one[i + n] >= 0 && one[i + n] == two[j + n]) {
+            n++;
+        }
+        return n;
+    }
+}